@@ -0,0 +1,244 @@
+package com.enterprise.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.util.FileSize;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Rolling file appender for binary log records, with zstd-compressed segments
+ *
+ * The active segment (e.g. requests.smile) is written uncompressed, so a crash
+ * loses at most a partial last record. It rolls when it reaches maxFileSize or
+ * the date changes; the rolled segment (requests.20261018-201518-413.smile) is
+ * compressed to .smile.zst on a background thread and the original removed.
+ * Compressed segments older than maxHistory days, or beyond totalSizeCap, are
+ * deleted oldest first. Segments left uncompressed by a crash are compressed on start.
+ */
+public class BinaryLogFileAppender extends OutputStreamAppender<ILoggingEvent> {
+
+    private static final String COMPRESSED_SUFFIX = ".zst";
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS")
+            .withZone(ZoneId.systemDefault());
+
+    private String file;
+    private FileSize maxFileSize = FileSize.valueOf("100MB");
+    private FileSize totalSizeCap = FileSize.valueOf("3GB");
+    private FileSize bufferSize = FileSize.valueOf("256KB");
+    private int maxHistory = 30;
+    private int compressionLevel = 3;
+
+    private Path activeFile;
+    private String segmentPrefix;
+    private String segmentSuffix;
+    private CountingOutputStream out;
+    private long nextDayMillis;
+    private ExecutorService compressor;
+
+    @Override
+    public void start() {
+        if (file == null) {
+            addError("No file set for appender [" + name + "]");
+            return;
+        }
+        activeFile = Path.of(file).toAbsolutePath();
+        String fileName = activeFile.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        segmentPrefix = (dot > 0 ? fileName.substring(0, dot) : fileName) + ".";
+        segmentSuffix = dot > 0 ? fileName.substring(dot) : "";
+        compressor = Executors.newSingleThreadExecutor(Thread.ofPlatform()
+                .name("log-compress-" + name).daemon(true).factory());
+        try {
+            openSegment();
+        } catch (IOException e) {
+            addError("Cannot open " + activeFile, e);
+            return;
+        }
+        for (Path leftover : segments(segmentSuffix)) {
+            compressor.execute(() -> compress(leftover));
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        compressor.shutdown();
+        try {
+            if (!compressor.awaitTermination(30, TimeUnit.SECONDS)) {
+                addWarn("Segment compression still running for [" + name + "]; it resumes on next start");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void subAppend(ILoggingEvent event) {
+        if (!isStarted()) {
+            return;
+        }
+        streamWriteLock.lock();
+        try {
+            if (out.count >= maxFileSize.getSize() || System.currentTimeMillis() >= nextDayMillis) {
+                rollover();
+            }
+        } catch (IOException e) {
+            addError("Rollover of " + activeFile + " failed", e);
+        } finally {
+            streamWriteLock.unlock();
+        }
+        super.subAppend(event);
+    }
+
+    private void rollover() throws IOException {
+        closeOutputStream();
+        if (Files.size(activeFile) > 0) {
+            Path rolled = activeFile.resolveSibling(segmentPrefix + SEGMENT_TIME.format(Instant.now()) + segmentSuffix);
+            Files.move(activeFile, rolled);
+            compressor.execute(() -> compress(rolled));
+        }
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        Files.createDirectories(activeFile.getParent());
+        OutputStream file = Files.newOutputStream(activeFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        out = new CountingOutputStream(new BufferedOutputStream(file, (int) bufferSize.getSize()),
+                Files.size(activeFile));
+        nextDayMillis = LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        setOutputStream(out);
+    }
+
+    private void compress(Path segment) {
+        Path compressed = segment.resolveSibling(segment.getFileName() + COMPRESSED_SUFFIX);
+        Path partial = segment.resolveSibling(segment.getFileName() + COMPRESSED_SUFFIX + ".tmp");
+        try (InputStream in = Files.newInputStream(segment);
+             OutputStream zstd = new ZstdOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)),
+                     compressionLevel)) {
+            in.transferTo(zstd);
+        } catch (IOException e) {
+            addError("Failed to compress " + segment, e);
+            return;
+        }
+        try {
+            Files.move(partial, compressed, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(segment);
+        } catch (IOException e) {
+            addError("Failed to replace " + segment + " with " + compressed, e);
+        }
+        removeExpiredSegments();
+    }
+
+    private void removeExpiredSegments() {
+        List<Path> compressed = segments(segmentSuffix + COMPRESSED_SUFFIX);
+        Instant cutoff = Instant.now().minus(Duration.ofDays(maxHistory));
+        long total = 0;
+        // Newest first: keep segments until the size cap is reached
+        for (int i = compressed.size() - 1; i >= 0; i--) {
+            Path segment = compressed.get(i);
+            try {
+                total += Files.size(segment);
+                boolean expired = maxHistory > 0 && Files.getLastModifiedTime(segment).toInstant().isBefore(cutoff);
+                if (expired || total > totalSizeCap.getSize()) {
+                    Files.delete(segment);
+                }
+            } catch (IOException e) {
+                addWarn("Failed to remove old segment " + segment + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rolled segments with the given suffix, oldest first (names sort by roll time).
+     */
+    private List<Path> segments(String suffix) {
+        try (Stream<Path> files = Files.list(activeFile.getParent())) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(segmentPrefix) && name.endsWith(suffix) && !path.equals(activeFile);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            addWarn("Cannot list " + activeFile.getParent() + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setMaxFileSize(FileSize maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    public void setTotalSizeCap(FileSize totalSizeCap) {
+        this.totalSizeCap = totalSizeCap;
+    }
+
+    public void setBufferSize(FileSize bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public void setMaxHistory(int maxHistory) {
+        this.maxHistory = maxHistory;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Tracks the active segment's size without asking the file system on every event.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out, long count) {
+            super(out);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
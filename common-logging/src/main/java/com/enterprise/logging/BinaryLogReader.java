@@ -0,0 +1,116 @@
+package com.enterprise.logging;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Command line reader for binary request/response logs
+ *
+ * Converts {@link SmileLogEncoder} records (active .smile segments or rolled
+ * .smile.zst segments) back into the JSON lines LogstashEncoder writes, one per
+ * record, on stdout. A partial last record (the active segment of a crashed
+ * process) is reported on stderr and skipped.
+ *
+ * Usage, from either application jar:
+ *   java -cp product-stock.jar -Dloader.main=com.enterprise.logging.BinaryLogReader \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher requests.*.smile.zst requests.smile
+ */
+public class BinaryLogReader {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+            .withZone(ZoneId.systemDefault());
+
+    private final ObjectMapper smileMapper = new ObjectMapper(SmileLogEncoder.SMILE_FACTORY)
+            .setNodeFactory(JsonNodeFactory.withExactBigDecimals(true));
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: BinaryLogReader <file.smile|file.smile.zst>...");
+            System.exit(2);
+        }
+        BinaryLogReader reader = new BinaryLogReader();
+        OutputStream out = new BufferedOutputStream(System.out, 64 * 1024);
+        for (String file : args) {
+            reader.convert(Path.of(file), out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes every record of a segment to out as a JSON line.
+     */
+    public void convert(Path file, OutputStream out) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(open(file), 64 * 1024))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                byte[] record = new byte[length];
+                try {
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    System.err.println(file + ": skipping truncated last record");
+                    return;
+                }
+                writeJson(smileMapper.readTree(record), out);
+            }
+        }
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        return file.getFileName().toString().endsWith(".zst") ? new ZstdInputStream(in) : in;
+    }
+
+    private void writeJson(JsonNode record, OutputStream out) throws IOException {
+        try (JsonGenerator json = jsonMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeStringField("@timestamp",
+                    TIMESTAMP.format(Instant.ofEpochMilli(record.path(SmileLogEncoder.TIMESTAMP).asLong())));
+            json.writeStringField("@version", "1");
+            JsonNode message = record.path(SmileLogEncoder.MESSAGE);
+            json.writeStringField("message", message.isContainerNode()
+                    ? jsonMapper.writeValueAsString(message) : message.asText(null));
+            json.writeStringField("logger_name", record.path(SmileLogEncoder.LOGGER).asText());
+            json.writeStringField("thread_name", record.path(SmileLogEncoder.THREAD).asText());
+            String level = record.path(SmileLogEncoder.LEVEL).asText();
+            json.writeStringField("level", level);
+            json.writeNumberField("level_value", Level.toLevel(level).toInt());
+            Iterator<Map.Entry<String, JsonNode>> mdc = record.path(SmileLogEncoder.MDC).fields();
+            while (mdc.hasNext()) {
+                Map.Entry<String, JsonNode> entry = mdc.next();
+                json.writeStringField(entry.getKey(), entry.getValue().asText());
+            }
+            if (record.has(SmileLogEncoder.STACK_TRACE)) {
+                json.writeStringField("stack_trace", record.get(SmileLogEncoder.STACK_TRACE).asText());
+            }
+            json.writeEndObject();
+        }
+        out.write('\n');
+    }
+}
@@ -0,0 +1,265 @@
+package com.enterprise.logging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.BufferRecycler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Streaming JSON encoder for request/response log events
+ *
+ * Events are written with a JsonGenerator straight into a per-thread reusable
+ * buffer, so encoding a log line allocates little beyond the final String and
+ * what Jackson needs to walk the payload. Each payload is serialized once into a
+ * second bounded buffer: serialization stops once the limit is reached and the
+ * payload is logged as a truncated string, otherwise it is copied in as raw JSON.
+ * Request headers are streamed from the servlet request with credentials masked.
+ *
+ * Callers check that the target logger is enabled before encoding anything.
+ */
+public class JsonLogEncoder {
+
+    private static final String TRUNCATED = "... [TRUNCATED]";
+    private static final String MASKED = "***MASKED***";
+
+    // Headers to mask for security (header names are case-insensitive)
+    private static final Set<String> SENSITIVE_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    static {
+        SENSITIVE_HEADERS.addAll(List.of("authorization", "x-api-key", "api-key", "cookie", "set-cookie"));
+    }
+
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper payloadMapper;
+    private final ThreadLocal<LogEvent> events = ThreadLocal.withInitial(LogEvent::new);
+
+    public JsonLogEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.payloadMapper = objectMapper.copyWith(new PayloadJsonFactory(objectMapper.getFactory()));
+    }
+
+    /**
+     * Writes the fields of one log event.
+     */
+    @FunctionalInterface
+    public interface EventWriter {
+        void write(LogEvent event) throws IOException;
+    }
+
+    /**
+     * Encodes one event as a JSON object.
+     */
+    public String encode(EventWriter writer) throws IOException {
+        LogEvent event = events.get();
+        if (event.generator != null) {
+            // Re-entrant call (e.g. a payload getter that logs): use throwaway buffers
+            event = new LogEvent();
+        }
+        try (JsonGenerator generator = objectMapper.createGenerator(event.buffer.reset(Integer.MAX_VALUE))) {
+            event.generator = generator;
+            generator.writeStartObject();
+            writer.write(event);
+            generator.writeEndObject();
+            generator.flush();
+            return event.buffer.toString();
+        } finally {
+            event.generator = null;
+            event.buffer.release();
+            event.payload.release();
+        }
+    }
+
+    /**
+     * One event being encoded; gives access to the generator and bounded payload writing.
+     */
+    public final class LogEvent {
+
+        private final CharBuffer buffer = new CharBuffer();
+        private final CharBuffer payload = new CharBuffer();
+        private JsonGenerator generator;
+
+        public JsonGenerator generator() {
+            return generator;
+        }
+
+        public LogEvent field(String name, String value) throws IOException {
+            generator.writeStringField(name, value);
+            return this;
+        }
+
+        public LogEvent field(String name, long value) throws IOException {
+            generator.writeNumberField(name, value);
+            return this;
+        }
+
+        /**
+         * Writes the request headers as an object, masking sensitive ones; empty without a request.
+         */
+        public LogEvent headers(String name, HttpServletRequest request) throws IOException {
+            generator.writeObjectFieldStart(name);
+            Enumeration<String> headerNames = request != null ? request.getHeaderNames() : null;
+            while (headerNames != null && headerNames.hasMoreElements()) {
+                String headerName = headerNames.nextElement();
+                generator.writeStringField(headerName, SENSITIVE_HEADERS.contains(headerName)
+                        ? MASKED : request.getHeader(headerName));
+            }
+            generator.writeEndObject();
+            return this;
+        }
+
+        /**
+         * Writes a payload as JSON, or as a truncated JSON string if it serializes
+         * to more than maxChars; unserializable payloads fall back to toString().
+         */
+        public LogEvent payload(String name, Object value, int maxChars) throws IOException {
+            generator.writeFieldName(name);
+            try (JsonGenerator payloadGenerator = payloadMapper.createGenerator(payload.reset(maxChars))) {
+                payloadMapper.writeValue(payloadGenerator, value);
+                payloadGenerator.flush();
+            } catch (IOException e) {
+                if (!payload.isFull()) {
+                    generator.writeString(String.valueOf(value));
+                    return this;
+                }
+            }
+            if (payload.isFull()) {
+                generator.writeString(payload.toString() + TRUNCATED);
+            } else {
+                generator.writeRawValue(payload.chars(), 0, payload.length());
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Reusable char buffer; writing past the limit fills it up to the limit and fails,
+     * which stops Jackson from serializing the rest of a large payload.
+     */
+    private static final class CharBuffer extends Writer {
+
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+        private char[] chars = new char[INITIAL_CAPACITY];
+        private int length;
+        private int limit;
+        private boolean full;
+
+        CharBuffer reset(int limit) {
+            this.length = 0;
+            this.limit = limit;
+            this.full = false;
+            return this;
+        }
+
+        /**
+         * Drops a buffer that a large event grew, so idle threads do not hold onto it.
+         */
+        void release() {
+            if (chars.length > MAX_RETAINED_CAPACITY) {
+                chars = new char[INITIAL_CAPACITY];
+            }
+        }
+
+        boolean isFull() {
+            return full;
+        }
+
+        char[] chars() {
+            return chars;
+        }
+
+        int length() {
+            return length;
+        }
+
+        @Override
+        public void write(char[] source, int offset, int count) throws IOException {
+            if (full) {
+                throw new LimitReachedException();
+            }
+            int accepted = Math.min(count, limit - length);
+            if (length + accepted > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + accepted));
+            }
+            System.arraycopy(source, offset, chars, length, accepted);
+            length += accepted;
+            if (accepted < count) {
+                full = true;
+                throw new LimitReachedException();
+            }
+        }
+
+        @Override
+        public void write(String source, int offset, int count) throws IOException {
+            if (full) {
+                throw new LimitReachedException();
+            }
+            int accepted = Math.min(count, limit - length);
+            if (length + accepted > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + accepted));
+            }
+            source.getChars(offset, offset + accepted, chars, length);
+            length += accepted;
+            if (accepted < count) {
+                full = true;
+                throw new LimitReachedException();
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+
+    /**
+     * Payload generators run while the event generator holds the thread's shared
+     * Jackson buffers, so they recycle buffers of their own instead of allocating.
+     */
+    private static final class PayloadJsonFactory extends JsonFactory {
+
+        private final transient ThreadLocal<BufferRecycler> recyclers = ThreadLocal.withInitial(BufferRecycler::new);
+
+        PayloadJsonFactory(JsonFactory source) {
+            super(source, null);
+        }
+
+        @Override
+        public JsonFactory copy() {
+            return new PayloadJsonFactory(this);
+        }
+
+        @Override
+        public BufferRecycler _getBufferRecycler() {
+            return recyclers.get();
+        }
+    }
+
+    private static final class LimitReachedException extends IOException {
+
+        LimitReachedException() {
+            super("Log payload limit reached");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
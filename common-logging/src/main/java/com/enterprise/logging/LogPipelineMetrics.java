@@ -0,0 +1,84 @@
+package com.enterprise.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Metrics for the {@link RingBufferAppender}s configured in logback-spring.xml
+ *
+ * Logback builds its appenders before the application context exists, so they
+ * are looked up in the logger context once the registry is available.
+ *
+ * Metrics (tagged by appender, prefixed with the service's metric prefix):
+ * log.queue.depth, log.queue.capacity, log.dropped, log.spilled, log.blocked,
+ * log.spill.backlog (bytes).
+ */
+public class LogPipelineMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final String prefix;
+
+    /**
+     * @param prefix metric name prefix, e.g. "stock" for stock.log.queue.depth
+     */
+    public LogPipelineMetrics(MeterRegistry meterRegistry, String prefix) {
+        this.meterRegistry = meterRegistry;
+        this.prefix = prefix;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        Map<String, RingBufferAppender> ringAppenders = new LinkedHashMap<>();
+        for (Logger logger : context.getLoggerList()) {
+            Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders();
+            while (it.hasNext()) {
+                if (it.next() instanceof RingBufferAppender appender) {
+                    ringAppenders.putIfAbsent(appender.getName(), appender);
+                }
+            }
+        }
+        ringAppenders.forEach(this::register);
+    }
+
+    private void register(String name, RingBufferAppender appender) {
+        Gauge.builder(prefix + ".log.queue.depth", appender, RingBufferAppender::getQueueDepth)
+                .description("Log events waiting in the ring buffer")
+                .tag("appender", name)
+                .register(meterRegistry);
+        Gauge.builder(prefix + ".log.queue.capacity", appender, RingBufferAppender::getCapacity)
+                .description("Ring buffer size in events")
+                .tag("appender", name)
+                .register(meterRegistry);
+        FunctionCounter.builder(prefix + ".log.dropped", appender, RingBufferAppender::getDroppedCount)
+                .description("DEBUG/TRACE events dropped because the ring buffer was full")
+                .tag("appender", name)
+                .register(meterRegistry);
+        FunctionCounter.builder(prefix + ".log.spilled", appender, RingBufferAppender::getSpilledCount)
+                .description("Events written to the spill file because the ring buffer was full")
+                .tag("appender", name)
+                .register(meterRegistry);
+        FunctionCounter.builder(prefix + ".log.blocked", appender, RingBufferAppender::getBlockedCount)
+                .description("Events whose logging thread waited for room in the ring buffer")
+                .tag("appender", name)
+                .register(meterRegistry);
+        Gauge.builder(prefix + ".log.spill.backlog", appender, RingBufferAppender::getSpillBacklogBytes)
+                .description("Spilled bytes not yet replayed")
+                .baseUnit("bytes")
+                .tag("appender", name)
+                .register(meterRegistry);
+    }
+}
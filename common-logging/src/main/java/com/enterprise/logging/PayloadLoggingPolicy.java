@@ -0,0 +1,130 @@
+package com.enterprise.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which request/response payloads reach requests.log and responses.log
+ *
+ * Head sampling: a request is logged up front with probability sample-rate
+ * (per endpoint via endpoint-sample-rates, e.g. "WarehouseController#bulkStockUpdate=0.01";
+ * endpoints are keyed by controller class and method name).
+ * Tail logging: a request that was not sampled is still logged, request and
+ * response together, once it turns out to have failed or taken longer than
+ * slow-threshold (per endpoint via endpoint-slow-thresholds). Only its arguments
+ * are encoded up front, since the handler may change them; the rest of the
+ * request event and the response are encoded only if it is logged.
+ *
+ * Logged bytes are capped at bytes-per-second; sampled events over the budget are
+ * dropped, while failed and slow requests are always logged.
+ *
+ * Settings are read from <prefix>.payload-logging.* (sample-rate, slow-threshold,
+ * bytes-per-second, endpoint-sample-rates, endpoint-slow-thresholds).
+ *
+ * Metrics: <prefix>.payload.log.dropped
+ */
+public class PayloadLoggingPolicy {
+
+    /**
+     * Why an event is logged; written to the event as logReason.
+     */
+    public enum Reason {
+        SAMPLED, ERROR, SLOW;
+
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final AtomicLong budgetWindow = new AtomicLong();
+    private final AtomicLong budgetUsed = new AtomicLong();
+    private final Counter dropped;
+    private final Map<String, Double> endpointSampleRates = new HashMap<>();
+    private final Map<String, Long> endpointSlowThresholds = new HashMap<>();
+
+    private final double sampleRate;
+    private final long slowThresholdMs;
+    private final long bytesPerSecond;
+
+    /**
+     * @param prefix property and metric prefix, e.g. "stock" for stock.payload-logging.*
+     */
+    public PayloadLoggingPolicy(MeterRegistry meterRegistry, PropertyResolver properties, String prefix) {
+        String settings = prefix + ".payload-logging.";
+        this.sampleRate = properties.getProperty(settings + "sample-rate", Double.class, 1.0);
+        this.slowThresholdMs = properties.getProperty(settings + "slow-threshold", Long.class, 1000L);
+        this.bytesPerSecond = properties.getProperty(settings + "bytes-per-second", Long.class, 0L);
+        parse(properties.getProperty(settings + "endpoint-sample-rates", ""))
+                .forEach((endpoint, value) -> endpointSampleRates.put(endpoint, Double.valueOf(value)));
+        parse(properties.getProperty(settings + "endpoint-slow-thresholds", ""))
+                .forEach((endpoint, value) -> endpointSlowThresholds.put(endpoint, Long.valueOf(value)));
+        this.dropped = Counter.builder(prefix + ".payload.log.dropped")
+                .description("Sampled payload log events dropped by the byte budget")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Head sampling decision, taken when the request arrives.
+     */
+    public boolean sample(String endpoint) {
+        double rate = endpointSampleRates.getOrDefault(endpoint, sampleRate);
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * Tail decision, taken once the response is known.
+     * @return why the exchange must be logged, or null if only sampling could log it
+     */
+    public Reason tailReason(String endpoint, boolean failed, long executionTimeMs) {
+        if (failed) {
+            return Reason.ERROR;
+        }
+        if (executionTimeMs >= endpointSlowThresholds.getOrDefault(endpoint, slowThresholdMs)) {
+            return Reason.SLOW;
+        }
+        return null;
+    }
+
+    /**
+     * Charges an encoded event against the per-second byte budget.
+     * @return false if a sampled event should be dropped
+     */
+    public boolean withinBudget(int length, Reason reason) {
+        if (bytesPerSecond <= 0) {
+            return true;
+        }
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        long window = budgetWindow.get();
+        if (window != second && budgetWindow.compareAndSet(window, second)) {
+            budgetUsed.set(0);
+        }
+        long used = budgetUsed.addAndGet(length);
+        if (reason != Reason.SAMPLED || used <= bytesPerSecond) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private static Map<String, String> parse(String spec) {
+        Map<String, String> values = new HashMap<>();
+        if (!StringUtils.hasText(spec)) {
+            return values;
+        }
+        for (String entry : spec.split(",")) {
+            String[] pair = entry.split("=", 2);
+            if (pair.length == 2 && StringUtils.hasText(pair[0]) && StringUtils.hasText(pair[1])) {
+                values.put(pair[0].trim(), pair[1].trim());
+            }
+        }
+        return values;
+    }
+}
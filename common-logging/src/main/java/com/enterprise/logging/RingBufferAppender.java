@@ -0,0 +1,510 @@
+package com.enterprise.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.net.server.HardenedLoggingEventInputStream;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEventVO;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous appender backed by a preallocated ring buffer
+ *
+ * Request threads claim a slot with a single CAS and never take a lock while
+ * there is room. One consumer thread drains the ring in batches of up to
+ * batchSize events, hands them to the attached appenders and flushes their
+ * output streams once per batch, so file appenders should be configured with
+ * immediateFlush=false and a large bufferSize.
+ *
+ * When the ring is full the overflow policy decides:
+ * BLOCK waits for room (lossless), DROP_DEBUG drops DEBUG/TRACE events and waits
+ * for anything else, SPILL appends events to spillFile until the ring has drained
+ * and the spilled events have been replayed. Events left in the spill file by a
+ * crash are replayed on the next start, before anything logged after it.
+ *
+ * Ordering: events of one thread are written in the order they were logged, and
+ * an event is never written before one whose append() returned before it was
+ * logged, under every policy (short of spill file write errors). Events appended
+ * concurrently by different threads have no defined order; while SPILL switches
+ * between the ring and the file, one that went to the ring can be written ahead
+ * of one spilled a moment earlier.
+ *
+ * Queue depth, drops, spills and blocked producers are exposed as metrics by each
+ * service's LogPipelineMetrics.
+ */
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    public enum OverflowPolicy { BLOCK, DROP_DEBUG, SPILL }
+
+    private static final int SPIN_TRIES = 100;
+    private static final long PRODUCER_PARK_NANOS = 50_000;
+    private static final long CONSUMER_PARK_NANOS = 100_000_000;
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+    private int capacity = 16384;
+    private int batchSize = 512;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private String spillFile;
+    private int maxFlushTime = 1000;
+
+    // Ring: slot i is free for sequence s when sequences[i] == s, readable when it is s + 1
+    private ILoggingEvent[] slots;
+    private AtomicLongArray sequences;
+    private int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private volatile Thread consumer;
+    private volatile boolean consumerWaiting;
+
+    private final ReentrantLock spillLock = new ReentrantLock();
+    private FileChannel spillChannel;
+    private volatile boolean spilling;
+    private volatile long spillWritePosition;
+    private volatile long spillReadPosition;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appender attached to ring buffer appender [" + name + "]");
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            if (spillFile == null) {
+                addError("SPILL overflow policy requires spillFile for appender [" + name + "]");
+                return;
+            }
+            if (!openSpillFile()) {
+                return;
+            }
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new ILoggingEvent[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+        capacity = size;
+
+        super.start();
+        Thread worker = new Thread(this::drainLoop, "log-ring-" + name);
+        worker.setDaemon(true);
+        consumer = worker;
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        Thread worker = consumer;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(maxFlushTime);
+            if (worker.isAlive()) {
+                addWarn("Max flush time exceeded, " + getQueueDepth() + " queued events of ["
+                        + name + "] were not written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appenders.detachAndStopAllAppenders();
+        closeSpillFile();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (spilling && spill(event)) {
+            return;
+        }
+        if (offer(event)) {
+            wakeConsumer();
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP_DEBUG -> {
+                if (event.getLevel().toInt() <= Level.DEBUG_INT) {
+                    dropped.increment();
+                    return;
+                }
+            }
+            case SPILL -> {
+                if (spill(event)) {
+                    return;
+                }
+            }
+            default -> { }
+        }
+        blocked.increment();
+        put(event);
+    }
+
+    private void put(ILoggingEvent event) {
+        int tries = 0;
+        while (!offer(event)) {
+            wakeConsumer();
+            if (++tries < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+            }
+        }
+        wakeConsumer();
+    }
+
+    /**
+     * Claims the next slot, or returns false if the ring is full. Safe for any number of producers.
+     */
+    private boolean offer(ILoggingEvent event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = event;
+                    // Volatile write, paired with the consumerWaiting check in wakeConsumer()
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest event, or null if the ring is empty. Consumer thread only.
+     */
+    private ILoggingEvent poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        ILoggingEvent event = slots[index];
+        slots[index] = null;
+        sequences.lazySet(index, position + mask + 1);
+        head = position + 1;
+        return event;
+    }
+
+    private void wakeConsumer() {
+        if (consumerWaiting) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void drainLoop() {
+        List<ILoggingEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            ILoggingEvent event;
+            while (batch.size() < batchSize && (event = poll()) != null) {
+                batch.add(event);
+            }
+            // Replay only once every claimed slot has been drained: poll() also returns null
+            // while the head slot is claimed but not yet published
+            if (batch.isEmpty() && spilling && getQueueDepth() == 0) {
+                replaySpill(batch);
+            }
+            if (!batch.isEmpty()) {
+                for (ILoggingEvent e : batch) {
+                    appenders.appendLoopOnAppenders(e);
+                }
+                batch.clear();
+                flushAppenders();
+                continue;
+            }
+            if (!isStarted()) {
+                return;
+            }
+            consumerWaiting = true;
+            if (getQueueDepth() == 0 && !spilling) {
+                LockSupport.parkNanos(this, CONSUMER_PARK_NANOS);
+            }
+            consumerWaiting = false;
+        }
+    }
+
+    private void flushAppenders() {
+        Iterator<Appender<ILoggingEvent>> it = appenders.iteratorForAppenders();
+        while (it.hasNext()) {
+            if (it.next() instanceof OutputStreamAppender<ILoggingEvent> streamAppender
+                    && !streamAppender.isImmediateFlush()) {
+                OutputStream out = streamAppender.getOutputStream();
+                try {
+                    if (out != null) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    addError("Failed to flush appender [" + streamAppender.getName() + "]", e);
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- spill file
+
+    private boolean openSpillFile() {
+        try {
+            Path path = Path.of(spillFile);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            spillChannel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            spillReadPosition = 0;
+            spillWritePosition = spillChannel.size();
+            spilling = spillWritePosition > 0;
+            if (spilling) {
+                addInfo("Replaying " + spillWritePosition + " bytes of spilled events for [" + name + "]");
+            }
+            return true;
+        } catch (IOException e) {
+            addError("Cannot open spill file " + spillFile, e);
+            return false;
+        }
+    }
+
+    private void closeSpillFile() {
+        spillLock.lock();
+        try {
+            if (spillChannel != null) {
+                spillChannel.close();
+            }
+        } catch (IOException e) {
+            addError("Failed to close spill file " + spillFile, e);
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * Appends an event to the spill file. Returns false (caller falls back to
+     * blocking) if spilling stopped meanwhile or the event cannot be written.
+     */
+    private boolean spill(ILoggingEvent event) {
+        byte[] record;
+        try {
+            record = serialize(event);
+        } catch (IOException e) {
+            addWarn("Cannot spill event of [" + name + "]: " + e.getMessage());
+            return false;
+        }
+        spillLock.lock();
+        try {
+            if (spilling || getQueueDepth() >= capacity) {
+                ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + record.length);
+                buffer.putInt(record.length).put(record).flip();
+                long position = spillWritePosition;
+                while (buffer.hasRemaining()) {
+                    position += spillChannel.write(buffer, position);
+                }
+                spillWritePosition = position;
+                spilling = true;
+                spilled.increment();
+                wakeConsumer();
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            addError("Failed to write spill file " + spillFile, e);
+            return false;
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * Reads up to batchSize spilled events. Once everything has been replayed the
+     * file is truncated and producers go back to the ring. Consumer thread only.
+     */
+    private void replaySpill(List<ILoggingEvent> batch) {
+        List<byte[]> records = new ArrayList<>();
+        spillLock.lock();
+        try {
+            long position = spillReadPosition;
+            long end = spillWritePosition;
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            while (records.size() < batchSize && position + Integer.BYTES <= end) {
+                length.clear();
+                spillChannel.read(length, position);
+                int size = length.flip().getInt();
+                if (size < 0 || position + Integer.BYTES + size > end) {
+                    addWarn("Discarding truncated spill record in " + spillFile);
+                    position = end;
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.allocate(size);
+                while (record.hasRemaining()) {
+                    spillChannel.read(record, position + Integer.BYTES + record.position());
+                }
+                records.add(record.array());
+                position += Integer.BYTES + size;
+            }
+            if (position + Integer.BYTES > end) {
+                spillChannel.truncate(0);
+                spillReadPosition = 0;
+                spillWritePosition = 0;
+                spilling = false;
+            } else {
+                spillReadPosition = position;
+            }
+        } catch (IOException e) {
+            addError("Failed to read spill file " + spillFile + ", discarding it", e);
+            try {
+                spillChannel.truncate(0);
+            } catch (IOException ignored) {
+                // the next write overwrites it anyway
+            }
+            spillReadPosition = 0;
+            spillWritePosition = 0;
+            spilling = false;
+        } finally {
+            spillLock.unlock();
+        }
+        for (byte[] record : records) {
+            try (HardenedLoggingEventInputStream in =
+                         new HardenedLoggingEventInputStream(new ByteArrayInputStream(record))) {
+                batch.add((ILoggingEvent) in.readObject());
+            } catch (IOException | ClassNotFoundException e) {
+                addWarn("Skipping unreadable spilled event: " + e.getMessage());
+            }
+        }
+    }
+
+    private static byte[] serialize(ILoggingEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(LoggingEventVO.build(event));
+        }
+        return bytes.toByteArray();
+    }
+
+    // ---------------------------------------------------------------- metrics
+
+    public int getQueueDepth() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    public long getSpillBacklogBytes() {
+        return spillWritePosition - spillReadPosition;
+    }
+
+    // ---------------------------------------------------------------- configuration
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setSpillFile(String spillFile) {
+        this.spillFile = spillFile;
+    }
+
+    public void setMaxFlushTime(int maxFlushTime) {
+        this.maxFlushTime = maxFlushTime;
+    }
+
+    // ---------------------------------------------------------------- AppenderAttachable
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
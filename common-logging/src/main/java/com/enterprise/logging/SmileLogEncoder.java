@@ -0,0 +1,137 @@
+package com.enterprise.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoder for requests.log / responses.log (binary-logs profile)
+ *
+ * Each event becomes one record: a 4-byte big-endian length followed by a Smile
+ * object with short field names. Messages that are JSON documents (what the
+ * logging aspects write) are embedded as structured values instead of escaped
+ * strings; decimals are kept exact. {@link BinaryLogReader} turns records back
+ * into the JSON lines LogstashEncoder would have written.
+ */
+public class SmileLogEncoder extends EncoderBase<ILoggingEvent> {
+
+    static final String TIMESTAMP = "t";
+    static final String LEVEL = "l";
+    static final String LOGGER = "n";
+    static final String THREAD = "th";
+    static final String MESSAGE = "m";
+    static final String MDC = "mdc";
+    static final String STACK_TRACE = "st";
+
+    static final SmileFactory SMILE_FACTORY = SmileFactory.builder()
+            .disable(SmileGenerator.Feature.WRITE_HEADER)
+            .disable(SmileParser.Feature.REQUIRE_HEADER)
+            .build();
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final List<String> includeMdcKeyNames = new ArrayList<>();
+
+    public void addIncludeMdcKeyName(String includeMdcKeyName) {
+        includeMdcKeyNames.add(includeMdcKeyName);
+    }
+
+    @Override
+    public byte[] headerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        try (ByteArrayBuilder out = new ByteArrayBuilder(512)) {
+            out.appendFourBytes(0);
+            try (SmileGenerator generator = SMILE_FACTORY.createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeNumberField(TIMESTAMP, event.getTimeStamp());
+                generator.writeStringField(LEVEL, event.getLevel().toString());
+                generator.writeStringField(LOGGER, event.getLoggerName());
+                generator.writeStringField(THREAD, event.getThreadName());
+                generator.writeFieldName(MESSAGE);
+                writeMessage(generator, event.getFormattedMessage());
+                writeMdc(generator, event.getMDCPropertyMap());
+                IThrowableProxy throwable = event.getThrowableProxy();
+                if (throwable != null) {
+                    generator.writeStringField(STACK_TRACE, ThrowableProxyUtil.asString(throwable));
+                }
+                generator.writeEndObject();
+            }
+            byte[] record = out.toByteArray();
+            int length = record.length - Integer.BYTES;
+            record[0] = (byte) (length >>> 24);
+            record[1] = (byte) (length >>> 16);
+            record[2] = (byte) (length >>> 8);
+            record[3] = (byte) length;
+            return record;
+        } catch (IOException e) {
+            addError("Failed to encode log event", e);
+            return new byte[0];
+        }
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+
+    private void writeMessage(SmileGenerator generator, String message) throws IOException {
+        if (message != null && !message.isEmpty() && (message.charAt(0) == '{' || message.charAt(0) == '[')) {
+            TokenBuffer document = parseJson(message);
+            if (document != null) {
+                document.serialize(generator);
+                return;
+            }
+        }
+        generator.writeString(message);
+    }
+
+    /**
+     * Returns the message as a single JSON document, or null if it is not one.
+     */
+    private TokenBuffer parseJson(String message) {
+        try (JsonParser parser = jsonFactory.createParser(message)) {
+            TokenBuffer document = new TokenBuffer(parser).forceUseOfBigDecimal(true);
+            parser.nextToken();
+            document.copyCurrentStructure(parser);
+            return parser.nextToken() == null ? document : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeMdc(SmileGenerator generator, Map<String, String> mdc) throws IOException {
+        if (mdc == null || mdc.isEmpty()) {
+            return;
+        }
+        boolean started = false;
+        for (Map.Entry<String, String> entry : mdc.entrySet()) {
+            if (!includeMdcKeyNames.isEmpty() && !includeMdcKeyNames.contains(entry.getKey())) {
+                continue;
+            }
+            if (!started) {
+                generator.writeObjectFieldStart(MDC);
+                started = true;
+            }
+            generator.writeStringField(entry.getKey(), entry.getValue());
+        }
+        if (started) {
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.enterprise.logging.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Actuator endpoint that dumps the last minutes of the continuous JFR recording
+ *
+ * GET /actuator/jfr?seconds=120 returns a .jfr file with the events of the last
+ * 120 seconds (default dump-window), ready for JDK Mission Control or `jfr print`.
+ * The window is cut from whatever recordings are running: the one started with
+ * -XX:StartFlightRecording in production, otherwise a continuous recording this
+ * endpoint starts itself (default settings, kept for max-age). One dump at a time.
+ * dump-window and max-age are read from <prefix>.jfr.*.
+ *
+ * Events that record the process environment, system properties and JVM
+ * arguments (credentials are often passed that way) are left out of the dump.
+ * The endpoint is not exposed by default; expose it only on a separate,
+ * internal management.server.port.
+ */
+@WebEndpoint(id = "jfr")
+public class FlightRecordingEndpoint implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecordingEndpoint.class);
+    private static final Set<String> SENSITIVE_EVENTS = Set.of(
+            "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation");
+
+    private final Lock dumpLock = new ReentrantLock();
+    private final String prefix;
+    private final Duration dumpWindow;
+    private final Duration maxAge;
+    private Recording recording;
+    private volatile boolean running;
+
+    /**
+     * @param prefix property prefix, e.g. "stock" for stock.jfr.*; also names the
+     *               recording and the dump files
+     */
+    public FlightRecordingEndpoint(PropertyResolver properties, String prefix) {
+        this.prefix = prefix;
+        this.dumpWindow = DurationStyle.detectAndParse(properties.getProperty(prefix + ".jfr.dump-window", "5m"));
+        this.maxAge = DurationStyle.detectAndParse(properties.getProperty(prefix + ".jfr.max-age", "30m"));
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> dump(@Nullable Long seconds) {
+        if (!FlightRecorder.isAvailable()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+        if (!dumpLock.tryLock()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        try {
+            Duration window = seconds != null && seconds > 0 ? Duration.ofSeconds(seconds) : dumpWindow;
+            return new WebEndpointResponse<>(new TemporaryFileSystemResource(dumpWindow(window)),
+                    WebEndpointResponse.STATUS_OK);
+        } catch (IOException e) {
+            logger.error("JFR dump failed: {}", e.getMessage());
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        } finally {
+            dumpLock.unlock();
+        }
+    }
+
+    private Path dumpWindow(Duration window) throws IOException {
+        Instant from = Instant.now().minus(window);
+        Path snapshotFile = Files.createTempFile(prefix + "-snapshot", ".jfr");
+        Path windowFile = Files.createTempFile(prefix + "-" + window.toSeconds() + "s", ".jfr");
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            snapshot.dump(snapshotFile);
+            try (RecordingFile recordingFile = new RecordingFile(snapshotFile)) {
+                recordingFile.write(windowFile, event -> !event.getEndTime().isBefore(from)
+                        && !SENSITIVE_EVENTS.contains(event.getEventType().getName()));
+            }
+            return windowFile;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(windowFile);
+            throw e;
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    /**
+     * Starts a continuous recording unless the JVM is already recording.
+     */
+    @Override
+    public void start() {
+        running = true;
+        if (!FlightRecorder.isAvailable() || FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .anyMatch(active -> active.getState() == RecordingState.RUNNING)) {
+            return;
+        }
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (IOException | ParseException e) {
+            logger.warn("Cannot load JFR default settings: {}", e.getMessage());
+            return;
+        }
+        recording.setName(prefix + "-continuous");
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.start();
+        logger.info("Started continuous JFR recording (max age {})", maxAge);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * The dump is written to a temporary file that is deleted once the response is sent.
+     */
+    private static final class TemporaryFileSystemResource extends FileSystemResource {
+
+        TemporaryFileSystemResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isFile() {
+            // Forces the response to be streamed through getInputStream
+            return false;
+        }
+    }
+}
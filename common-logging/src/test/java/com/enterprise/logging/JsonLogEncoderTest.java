@@ -0,0 +1,113 @@
+package com.enterprise.logging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonLogEncoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonLogEncoder encoder = new JsonLogEncoder(objectMapper);
+
+    @Test
+    void payloadAtTheLimitIsWrittenAsJson() throws IOException {
+        List<String> payload = List.of("SKU-001", "SKU-002");
+        int length = objectMapper.writeValueAsString(payload).length();
+
+        JsonNode event = encode(payload, length);
+
+        assertThat(event.get("payload").isArray()).isTrue();
+        assertThat(event.get("payload")).hasSize(2);
+        assertThat(event.get("after").asText()).isEqualTo("written");
+    }
+
+    @Test
+    void payloadOverTheLimitIsTruncated() throws IOException {
+        List<String> payload = Collections.nCopies(1000, "SKU-001");
+        String full = objectMapper.writeValueAsString(payload);
+
+        JsonNode event = encode(payload, 100);
+
+        assertThat(event.get("payload").asText()).isEqualTo(full.substring(0, 100) + "... [TRUNCATED]");
+        // The event stays well-formed after serialization was cut off
+        assertThat(event.get("after").asText()).isEqualTo("written");
+    }
+
+    @Test
+    void payloadOneCharOverTheLimitIsTruncated() throws IOException {
+        List<String> payload = List.of("SKU-001", "SKU-002");
+        String full = objectMapper.writeValueAsString(payload);
+
+        JsonNode event = encode(payload, full.length() - 1);
+
+        assertThat(event.get("payload").asText())
+                .isEqualTo(full.substring(0, full.length() - 1) + "... [TRUNCATED]");
+    }
+
+    @Test
+    void reusedBufferIsResetBetweenEvents() throws IOException {
+        encode(Collections.nCopies(1000, "SKU-001"), 100);
+
+        JsonNode event = encode(List.of("SKU-002"), 100);
+
+        assertThat(event.get("payload").get(0).asText()).isEqualTo("SKU-002");
+    }
+
+    @Test
+    void unserializablePayloadFallsBackToToString() throws IOException {
+        JsonNode event = encode(new Unserializable(), 100);
+
+        assertThat(event.get("payload").asText()).isEqualTo("unserializable");
+        assertThat(event.get("after").asText()).isEqualTo("written");
+    }
+
+    @Test
+    void sensitiveHeadersAreMaskedCaseInsensitively() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer secret");
+        request.addHeader("X-API-KEY", "secret");
+        request.addHeader("Cookie", "session=secret");
+        request.addHeader("Accept", "application/json");
+
+        JsonNode headers = objectMapper.readTree(encoder.encode(event -> event.headers("headers", request)))
+                .get("headers");
+
+        assertThat(headers.get("Authorization").asText()).isEqualTo("***MASKED***");
+        assertThat(headers.get("X-API-KEY").asText()).isEqualTo("***MASKED***");
+        assertThat(headers.get("Cookie").asText()).isEqualTo("***MASKED***");
+        assertThat(headers.get("Accept").asText()).isEqualTo("application/json");
+        assertThat(headers.toString()).doesNotContain("secret");
+    }
+
+    @Test
+    void missingRequestWritesNoHeaders() throws IOException {
+        JsonNode event = objectMapper.readTree(encoder.encode(e -> e.headers("headers", null)));
+
+        assertThat(event.get("headers").isEmpty()).isTrue();
+    }
+
+    private JsonNode encode(Object payload, int maxChars) throws IOException {
+        return objectMapper.readTree(encoder.encode(event -> event
+                .payload("payload", payload, maxChars)
+                .field("after", "written")));
+    }
+
+    static class Unserializable {
+
+        public String getValue() {
+            throw new IllegalStateException("not serializable");
+        }
+
+        @Override
+        public String toString() {
+            return "unserializable";
+        }
+    }
+}
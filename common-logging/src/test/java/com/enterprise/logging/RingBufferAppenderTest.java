@@ -0,0 +1,294 @@
+package com.enterprise.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import com.enterprise.logging.RingBufferAppender.OverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RingBufferAppenderTest {
+
+    private static final int THREADS = 8;
+    private static final int EVENTS_PER_THREAD = 2000;
+
+    private final LoggerContext context = new LoggerContext();
+    private final Logger logger = context.getLogger("test");
+    private final List<RingBufferAppender> rings = new ArrayList<>();
+    private final List<GatedAppender> targets = new ArrayList<>();
+
+    @TempDir
+    Path tempDir;
+
+    RingBufferAppenderTest() {
+        context.setMDCAdapter(new LogbackMDCAdapter());
+    }
+
+    @AfterEach
+    void tearDown() {
+        targets.forEach(GatedAppender::open);
+        rings.forEach(RingBufferAppender::stop);
+    }
+
+    @Test
+    void blockWaitsForRoomWithoutLoss() throws Exception {
+        GatedAppender target = target(false);
+        RingBufferAppender ring = ring(OverflowPolicy.BLOCK, 16, 64, target, null);
+
+        List<Thread> producers = produceConcurrently(ring);
+        awaitTrue(() -> ring.getBlockedCount() > 0);
+        target.open();
+        join(producers);
+        ring.stop();
+
+        assertPerThreadOrder(target.messages());
+        assertThat(ring.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void dropDebugDropsOnlyDebugAndTraceWhenFull() throws Exception {
+        GatedAppender target = target(false);
+        RingBufferAppender ring = ring(OverflowPolicy.DROP_DEBUG, 16, 1, target, null);
+        List<String> expected = fill(ring, target);
+
+        for (int i = 0; i < 5; i++) {
+            ring.doAppend(event(Level.DEBUG, "debug-" + i));
+            ring.doAppend(event(Level.TRACE, "trace-" + i));
+        }
+        assertThat(ring.getDroppedCount()).isEqualTo(10);
+
+        // Anything above DEBUG waits for room instead
+        Thread warn = new Thread(() -> ring.doAppend(event(Level.WARN, "warn")));
+        warn.start();
+        awaitTrue(() -> ring.getBlockedCount() == 1);
+        assertThat(warn.isAlive()).isTrue();
+
+        target.open();
+        warn.join(TimeUnit.SECONDS.toMillis(10));
+        ring.doAppend(event(Level.DEBUG, "debug-with-room"));
+        ring.stop();
+
+        expected.add("warn");
+        expected.add("debug-with-room");
+        assertThat(target.messages()).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void dropDebugLosesNothingAboveDebugUnderConcurrentProducers() throws Exception {
+        GatedAppender target = target(false);
+        RingBufferAppender ring = ring(OverflowPolicy.DROP_DEBUG, 16, 64, target, null);
+
+        List<Thread> producers = produceConcurrently(ring);
+        awaitTrue(() -> ring.getBlockedCount() > 0);
+        target.open();
+        join(producers);
+        ring.stop();
+
+        assertPerThreadOrder(target.messages());
+    }
+
+    @Test
+    void spillKeepsOrderAndReplaysOnceTheRingHasDrained() throws Exception {
+        Path spillFile = tempDir.resolve("spill.bin");
+        GatedAppender target = target(false);
+        RingBufferAppender ring = ring(OverflowPolicy.SPILL, 16, 1, target, spillFile);
+        List<String> expected = fill(ring, target);
+
+        // The ring is full: these go to the spill file without blocking the caller
+        for (int i = 0; i < 100; i++) {
+            ring.doAppend(event(Level.INFO, "spilled-" + i));
+            expected.add("spilled-" + i);
+        }
+        assertThat(ring.getSpilledCount()).isEqualTo(100);
+        assertThat(ring.getBlockedCount()).isZero();
+        assertThat(ring.getSpillBacklogBytes()).isPositive();
+
+        target.open();
+        ring.stop();
+
+        assertThat(target.messages()).containsExactlyElementsOf(expected);
+        assertThat(Files.size(spillFile)).isZero();
+    }
+
+    @Test
+    void spillLosesNothingUnderConcurrentProducers() throws Exception {
+        GatedAppender target = target(false);
+        RingBufferAppender ring = ring(OverflowPolicy.SPILL, 16, 64, target, tempDir.resolve("spill.bin"));
+
+        List<Thread> producers = produceConcurrently(ring);
+        awaitTrue(() -> ring.getSpilledCount() > 0);
+        target.open();
+        join(producers);
+        ring.stop();
+
+        assertPerThreadOrder(target.messages());
+        assertThat(ring.getBlockedCount()).isZero();
+    }
+
+    @Test
+    void spilledEventsAreReplayedAfterRestart() throws Exception {
+        Path spillFile = tempDir.resolve("spill.bin");
+        GatedAppender stuck = target(false);
+        RingBufferAppender crashed = ring(OverflowPolicy.SPILL, 16, 1, stuck, spillFile);
+        fill(crashed, stuck);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            crashed.doAppend(event(Level.INFO, "spilled-" + i));
+            expected.add("spilled-" + i);
+        }
+        // What a crash would leave behind: the ring is lost, the spill file is not
+        Path leftOver = Files.copy(spillFile, tempDir.resolve("left-over.bin"));
+
+        GatedAppender target = target(true);
+        RingBufferAppender restarted = ring(OverflowPolicy.SPILL, 16, 64, target, leftOver);
+        restarted.doAppend(event(Level.INFO, "after-restart"));
+        expected.add("after-restart");
+        restarted.stop();
+
+        assertThat(target.messages()).containsExactlyElementsOf(expected);
+        assertThat(Files.size(leftOver)).isZero();
+    }
+
+    private RingBufferAppender ring(OverflowPolicy policy, int capacity, int batchSize,
+                                    GatedAppender target, Path spillFile) {
+        RingBufferAppender ring = new RingBufferAppender();
+        ring.setContext(context);
+        ring.setName("ring-" + rings.size());
+        ring.setCapacity(capacity);
+        ring.setBatchSize(batchSize);
+        ring.setOverflowPolicy(policy);
+        ring.setMaxFlushTime((int) TimeUnit.SECONDS.toMillis(30));
+        if (spillFile != null) {
+            ring.setSpillFile(spillFile.toString());
+        }
+        ring.addAppender(target);
+        ring.start();
+        assertThat(ring.isStarted()).isTrue();
+        rings.add(ring);
+        return ring;
+    }
+
+    private GatedAppender target(boolean open) {
+        GatedAppender target = new GatedAppender(open);
+        target.setContext(context);
+        target.start();
+        targets.add(target);
+        return target;
+    }
+
+    /**
+     * Fills the ring while the consumer (batchSize 1) is stuck writing the first event.
+     */
+    private List<String> fill(RingBufferAppender ring, GatedAppender target) throws InterruptedException {
+        List<String> messages = new ArrayList<>();
+        ring.doAppend(event(Level.INFO, "first"));
+        messages.add("first");
+        assertThat(target.entered.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < ring.getCapacity(); i++) {
+            ring.doAppend(event(Level.INFO, "fill-" + i));
+            messages.add("fill-" + i);
+        }
+        assertThat(ring.getQueueDepth()).isEqualTo(ring.getCapacity());
+        return messages;
+    }
+
+    private List<Thread> produceConcurrently(RingBufferAppender ring) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                    ring.doAppend(event(Level.INFO, thread + "-" + i));
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        start.countDown();
+        return producers;
+    }
+
+    private static void join(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+            assertThat(thread.isAlive()).isFalse();
+        }
+    }
+
+    private static void assertPerThreadOrder(List<String> messages) {
+        assertThat(messages).hasSize(THREADS * EVENTS_PER_THREAD);
+        int[] next = new int[THREADS];
+        for (String message : messages) {
+            String[] parts = message.split("-");
+            int thread = Integer.parseInt(parts[0]);
+            assertThat(Integer.parseInt(parts[1])).as("event %s", message).isEqualTo(next[thread]++);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private ILoggingEvent event(Level level, String message) {
+        return new LoggingEvent(RingBufferAppenderTest.class.getName(), logger, level, message, null, null);
+    }
+
+    /**
+     * Records formatted messages; holds the consumer thread until opened.
+     */
+    private static final class GatedAppender extends AppenderBase<ILoggingEvent> {
+
+        private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch gate;
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        GatedAppender(boolean open) {
+            this.gate = new CountDownLatch(open ? 0 : 1);
+        }
+
+        void open() {
+            gate.countDown();
+        }
+
+        List<String> messages() {
+            return new ArrayList<>(messages);
+        }
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(event.getFormattedMessage());
+        }
+    }
+}
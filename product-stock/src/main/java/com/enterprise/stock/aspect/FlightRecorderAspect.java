@@ -0,0 +1,86 @@
+package com.enterprise.stock.aspect;
+
+import com.enterprise.stock.dto.BatchReservationDto;
+import com.enterprise.stock.dto.BulkStockUpdateDto;
+import com.enterprise.stock.dto.DamagedGoodsReturnDto;
+import com.enterprise.stock.dto.StockReservationDto;
+import com.enterprise.stock.dto.StockSearchRequestDto;
+import com.enterprise.stock.jfr.StockOperationEvent;
+import com.enterprise.stock.persistence.PersistenceStatistics;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Flight Recorder Aspect
+ * Emits a {@link StockOperationEvent} for every public StockService call, so a
+ * continuous JFR recording shows which operations (and how many SKUs and rows)
+ * were running during a latency spike. Costs nothing while the event is disabled.
+ */
+@Aspect
+@Component
+@Order(3)
+public class FlightRecorderAspect {
+
+    @Pointcut("execution(public * com.enterprise.stock.service.StockService.*(..))")
+    public void stockServicePointcut() {}
+
+    @Around("stockServicePointcut()")
+    public Object recordOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        StockOperationEvent event = new StockOperationEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        PersistenceStatistics statistics = PersistenceStatistics.current();
+        int entitiesLoaded = statistics != null ? statistics.getEntitiesLoaded() : 0;
+        long rowsWritten = statistics != null ? statistics.getRowsWritten() : 0;
+        int statements = statistics != null ? statistics.getStatements() : 0;
+        event.begin();
+        boolean succeeded = false;
+        try {
+            Object result = joinPoint.proceed();
+            succeeded = true;
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+                event.operation = signature.getName();
+                event.skuCount = skuCount(signature.getParameterNames(), joinPoint.getArgs());
+                if (statistics != null) {
+                    event.entitiesLoaded = statistics.getEntitiesLoaded() - entitiesLoaded;
+                    event.rowsWritten = statistics.getRowsWritten() - rowsWritten;
+                    event.statements = statistics.getStatements() - statements;
+                }
+                event.succeeded = succeeded;
+                event.commit();
+            }
+        }
+    }
+
+    private static int skuCount(String[] names, Object[] args) {
+        int count = 0;
+        for (int i = 0; i < args.length; i++) {
+            String name = names != null ? names[i] : "";
+            count += switch (args[i]) {
+                case null -> 0;
+                case BulkStockUpdateDto bulk -> bulk.getItems() != null ? bulk.getItems().size() : 0;
+                case BatchReservationDto batch -> batch.getLines() != null ? batch.getLines().size() : 0;
+                case StockReservationDto reservation -> reservation.getSku() != null ? 1 : 0;
+                case DamagedGoodsReturnDto damagedReturn -> damagedReturn.getSku() != null ? 1 : 0;
+                case StockSearchRequestDto search -> search.getSku() != null ? 1 : 0;
+                case String sku when "sku".equals(name) -> 1;
+                case Collection<?> skus when "skus".equals(name) -> skus.size();
+                default -> 0;
+            };
+        }
+        return count;
+    }
+}
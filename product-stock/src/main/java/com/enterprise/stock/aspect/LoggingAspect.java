@@ -1,7 +1,12 @@
 package com.enterprise.stock.aspect;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.enterprise.logging.JsonLogEncoder;
+import com.enterprise.logging.PayloadLoggingPolicy;
+import com.enterprise.logging.PayloadLoggingPolicy.Reason;
+import com.enterprise.stock.persistence.PersistenceStatistics;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -13,18 +18,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Centralized Logging Aspect for Full Fidelity Request/Response Logging
  * Product Stock Service - Server B
+ * Events are streamed through {@link JsonLogEncoder}, only when the logger is enabled
+ * and {@link PayloadLoggingPolicy} selects the exchange (sampled, failed or slow).
+ * The traceId is the W3C trace continued from shop-management's traceparent header.
  * 
  * Log Path: /var/log/stock-app/
  */
@@ -37,14 +46,16 @@ public class LoggingAspect {
     private static final Logger requestLogger = LoggerFactory.getLogger("REQUEST_LOGGER");
     private static final Logger responseLogger = LoggerFactory.getLogger("RESPONSE_LOGGER");
     
-    private final ObjectMapper objectMapper;
+    private static final int MAX_PAYLOAD_CHARS = 10000;
     
-    private static final Set<String> SENSITIVE_HEADERS = Set.of(
-            "authorization", "x-api-key", "api-key", "cookie", "set-cookie"
-    );
-
-    public LoggingAspect(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+    private final JsonLogEncoder logEncoder;
+    private final PayloadLoggingPolicy loggingPolicy;
+    private final Tracer tracer;
+    
+    public LoggingAspect(JsonLogEncoder logEncoder, PayloadLoggingPolicy loggingPolicy, Tracer tracer) {
+        this.logEncoder = logEncoder;
+        this.loggingPolicy = loggingPolicy;
+        this.tracer = tracer;
     }
 
     @Pointcut("within(@org.springframework.web.bind.annotation.RestController *)")
@@ -67,17 +78,25 @@ public class LoggingAspect {
 
     @Around("(restControllerPointcut() && httpMethodPointcut()) || graphqlPointcut()")
     public Object logAroundController(ProceedingJoinPoint joinPoint) throws Throwable {
-        String traceId = generateTraceId();
-        MDC.put("traceId", traceId);
+        // The tracer already keeps traceId in the MDC while a span is in scope
+        String spanTraceId = currentTraceId();
+        String traceId = spanTraceId != null ? spanTraceId : generateTraceId();
+        if (spanTraceId == null) {
+            MDC.put("traceId", traceId);
+        }
         
         Instant startTime = Instant.now();
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
         HttpServletRequest request = getCurrentRequest();
         
-        LogContext logContext = new LogContext();
-        logContext.setTraceId(traceId);
-        logContext.setTimestamp(startTime.toString());
-        
-        logRequest(joinPoint, request, logContext);
+        String endpoint = endpointKey(signature);
+        // Arguments are encoded before the handler runs, which may change them; unsampled
+        // requests need them too in case they turn out to fail or be slow
+        String requestPayload = requestLogger.isInfoEnabled() ? encodeRequestPayload(joinPoint, signature) : null;
+        boolean sampled = loggingPolicy.sample(endpoint);
+        if (sampled) {
+            logRequest(requestPayload, signature, request, traceId, startTime, Reason.SAMPLED);
+        }
         
         Object result = null;
         Throwable caughtException = null;
@@ -91,101 +110,126 @@ public class LoggingAspect {
         } finally {
             Instant endTime = Instant.now();
             long executionTimeMs = ChronoUnit.MILLIS.between(startTime, endTime);
-            logResponse(result, caughtException, executionTimeMs, logContext);
-            MDC.clear();
+            int statusCode = statusCode(result, caughtException);
+            // Requests that were not sampled are still logged if they fail or are slow
+            Reason reason = loggingPolicy.tailReason(endpoint, statusCode >= 500, executionTimeMs);
+            if (reason != null && !sampled) {
+                logRequest(requestPayload, signature, request, traceId, startTime, reason);
+            }
+            if (reason != null || sampled) {
+                logResponse(result, caughtException, executionTimeMs, statusCode, signature, traceId,
+                        reason != null ? reason : Reason.SAMPLED);
+            }
+            if (spanTraceId == null) {
+                MDC.remove("traceId");
+            }
         }
     }
 
-    private void logRequest(ProceedingJoinPoint joinPoint, HttpServletRequest request, LogContext logContext) {
+    private void logRequest(String requestPayload, MethodSignature signature, HttpServletRequest request,
+                            String traceId, Instant startTime, Reason reason) {
+        if (!requestLogger.isInfoEnabled()) {
+            return;
+        }
         try {
-            if (request != null) {
-                logContext.setMethod(request.getMethod());
-                logContext.setUrl(buildFullUrl(request));
-                logContext.setRemoteAddr(request.getRemoteAddr());
-                logContext.setHeaders(extractHeaders(request));
-                logContext.setQueryParams(extractQueryParams(request));
-            }
-            
-            MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-            logContext.setControllerClass(signature.getDeclaringType().getSimpleName());
-            logContext.setMethodName(signature.getName());
-            
-            Object[] args = joinPoint.getArgs();
-            String[] paramNames = signature.getParameterNames();
-            Map<String, Object> requestBody = new LinkedHashMap<>();
+            String requestLogJson = logEncoder.encode(event -> {
+                JsonGenerator json = event.generator();
+                event.field("type", "REQUEST")
+                        .field("traceId", traceId)
+                        .field("timestamp", startTime.toString())
+                        .field("logReason", reason.label());
+
+                json.writeObjectFieldStart("http");
+                event.field("method", request != null ? request.getMethod() : "GRAPHQL")
+                        .field("url", request != null ? buildFullUrl(request) : "N/A")
+                        .field("remoteAddr", request != null ? request.getRemoteAddr() : "N/A");
+                json.writeEndObject();
+
+                event.headers("headers", request);
+
+                event.field("controller", signature.getDeclaringType().getSimpleName() + "." + signature.getName());
+
+                json.writeFieldName("requestPayload");
+                json.writeRawValue(requestPayload != null ? requestPayload : "{}");
+            });
             
-            for (int i = 0; i < args.length; i++) {
-                Object arg = args[i];
-                if (arg != null && !isExcludedType(arg)) {
-                    String paramName = (paramNames != null && i < paramNames.length) 
-                            ? paramNames[i] : "arg" + i;
-                    requestBody.put(paramName, sanitizeForLogging(arg));
-                }
+            if (loggingPolicy.withinBudget(requestLogJson.length(), reason)) {
+                requestLogger.info(requestLogJson);
             }
             
-            logContext.setRequestPayload(requestBody);
-            
-            String requestLogJson = objectMapper.writeValueAsString(Map.of(
-                    "type", "REQUEST",
-                    "traceId", logContext.getTraceId(),
-                    "timestamp", logContext.getTimestamp(),
-                    "http", Map.of(
-                            "method", logContext.getMethod() != null ? logContext.getMethod() : "GRAPHQL",
-                            "url", logContext.getUrl() != null ? logContext.getUrl() : "N/A",
-                            "remoteAddr", logContext.getRemoteAddr() != null ? logContext.getRemoteAddr() : "N/A"
-                    ),
-                    "headers", logContext.getHeaders() != null ? logContext.getHeaders() : Collections.emptyMap(),
-                    "controller", logContext.getControllerClass() + "." + logContext.getMethodName(),
-                    "requestPayload", logContext.getRequestPayload()
-            ));
-            
-            requestLogger.info(requestLogJson);
-            
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             logger.error("Failed to serialize request log: {}", e.getMessage());
         }
     }
 
-    private void logResponse(Object result, Throwable exception, long executionTimeMs, LogContext logContext) {
+    private void logResponse(Object result, Throwable exception, long executionTimeMs, int statusCode,
+                             MethodSignature signature, String traceId, Reason reason) {
+        if (exception != null ? !responseLogger.isErrorEnabled()
+                : (result == null || !responseLogger.isInfoEnabled())) {
+            return;
+        }
         try {
-            HttpServletResponse response = getCurrentResponse();
-            int statusCode = 200;
-            
-            if (response != null) {
-                statusCode = response.getStatus();
-            }
+            String responseLogJson = logEncoder.encode(event -> {
+                event.field("type", "RESPONSE")
+                        .field("traceId", traceId)
+                        .field("timestamp", Instant.now().toString())
+                        .field("executionTimeMs", executionTimeMs)
+                        .field("statusCode", statusCode)
+                        .field("controller", signature.getDeclaringType().getSimpleName() + "." + signature.getName())
+                        .field("logReason", reason.label());
+
+                PersistenceStatistics persistence = PersistenceStatistics.current();
+                if (persistence != null) {
+                    JsonGenerator json = event.generator();
+                    json.writeObjectFieldStart("persistence");
+                    event.field("statements", persistence.getStatements())
+                            .field("batches", persistence.getBatches())
+                            .field("batchedStatements", persistence.getBatchedStatements())
+                            .field("rowsWritten", persistence.getRowsWritten())
+                            .field("entitiesLoaded", persistence.getEntitiesLoaded())
+                            .field("flushes", persistence.getFlushes())
+                            .field("connectionAcquireMs", persistence.getConnectionAcquireMillis());
+                    json.writeEndObject();
+                }
+
+                if (exception != null) {
+                    JsonGenerator json = event.generator();
+                    json.writeObjectFieldStart("exception");
+                    event.field("type", exception.getClass().getSimpleName())
+                            .field("message", exception.getMessage() != null ? exception.getMessage() : "No message");
+                    json.writeEndObject();
+                } else {
+                    event.payload("responseBody", result, MAX_PAYLOAD_CHARS);
+                }
+            });
             
-            if (exception != null) {
-                statusCode = 500;
+            if (!loggingPolicy.withinBudget(responseLogJson.length(), reason)) {
+                return;
             }
-            
-            Map<String, Object> responseLog = new LinkedHashMap<>();
-            responseLog.put("type", "RESPONSE");
-            responseLog.put("traceId", logContext.getTraceId());
-            responseLog.put("timestamp", Instant.now().toString());
-            responseLog.put("executionTimeMs", executionTimeMs);
-            responseLog.put("statusCode", statusCode);
-            responseLog.put("controller", logContext.getControllerClass() + "." + logContext.getMethodName());
-            
             if (exception != null) {
-                responseLog.put("exception", Map.of(
-                        "type", exception.getClass().getSimpleName(),
-                        "message", exception.getMessage() != null ? exception.getMessage() : "No message"
-                ));
-                responseLogger.error(objectMapper.writeValueAsString(responseLog));
-            } else if (result != null) {
-                responseLog.put("responseBody", sanitizeForLogging(result));
-                responseLogger.info(objectMapper.writeValueAsString(responseLog));
+                responseLogger.error(responseLogJson);
+            } else {
+                responseLogger.info(responseLogJson);
             }
             
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             logger.error("Failed to serialize response log: {}", e.getMessage());
         }
     }
 
+    private int statusCode(Object result, Throwable exception) {
+        if (exception != null) {
+            return 500;
+        }
+        if (result instanceof ResponseEntity<?> entity) {
+            return entity.getStatusCode().value();
+        }
+        HttpServletResponse response = getCurrentResponse();
+        return response != null ? response.getStatus() : 200;
+    }
+
     private String buildFullUrl(HttpServletRequest request) {
-        StringBuilder url = new StringBuilder();
-        url.append(request.getRequestURL().toString());
+        StringBuffer url = request.getRequestURL();
         String queryString = request.getQueryString();
         if (queryString != null && !queryString.isEmpty()) {
             url.append("?").append(queryString);
@@ -193,39 +237,27 @@ public class LoggingAspect {
         return url.toString();
     }
 
-    private Map<String, String> extractHeaders(HttpServletRequest request) {
-        Map<String, String> headers = new LinkedHashMap<>();
-        Enumeration<String> headerNames = request.getHeaderNames();
-        while (headerNames != null && headerNames.hasMoreElements()) {
-            String headerName = headerNames.nextElement();
-            String headerValue = request.getHeader(headerName);
-            if (SENSITIVE_HEADERS.contains(headerName.toLowerCase())) {
-                headerValue = "***MASKED***";
-            }
-            headers.put(headerName, headerValue);
-        }
-        return headers;
-    }
-
-    private Map<String, String> extractQueryParams(HttpServletRequest request) {
-        return request.getParameterMap().entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> String.join(",", e.getValue()),
-                        (v1, v2) -> v1,
-                        LinkedHashMap::new
-                ));
+    private static String endpointKey(MethodSignature signature) {
+        return signature.getDeclaringType().getSimpleName() + "#" + signature.getName();
     }
 
-    private Object sanitizeForLogging(Object obj) {
+    private String encodeRequestPayload(ProceedingJoinPoint joinPoint, MethodSignature signature) {
         try {
-            String json = objectMapper.writeValueAsString(obj);
-            if (json.length() > 10000) {
-                return json.substring(0, 10000) + "... [TRUNCATED]";
-            }
-            return objectMapper.readValue(json, Object.class);
-        } catch (JsonProcessingException e) {
-            return obj.toString();
+            return logEncoder.encode(event -> {
+                Object[] args = joinPoint.getArgs();
+                String[] paramNames = signature.getParameterNames();
+                for (int i = 0; i < args.length; i++) {
+                    Object arg = args[i];
+                    if (arg != null && !isExcludedType(arg)) {
+                        String paramName = (paramNames != null && i < paramNames.length)
+                                ? paramNames[i] : "arg" + i;
+                        event.payload(paramName, arg, MAX_PAYLOAD_CHARS);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Failed to serialize request payload: {}", e.getMessage());
+            return null;
         }
     }
 
@@ -237,6 +269,14 @@ public class LoggingAspect {
                obj instanceof java.io.OutputStream;
     }
 
+    private String currentTraceId() {
+        Span span = tracer.currentSpan();
+        if (span == null || span.context().traceId().isEmpty()) {
+            return null;
+        }
+        return span.context().traceId();
+    }
+
     private String generateTraceId() {
         return "STOCK-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
@@ -260,38 +300,4 @@ public class LoggingAspect {
             return null;
         }
     }
-
-    private static class LogContext {
-        private String traceId;
-        private String timestamp;
-        private String method;
-        private String url;
-        private String remoteAddr;
-        private Map<String, String> headers;
-        private Map<String, String> queryParams;
-        private String controllerClass;
-        private String methodName;
-        private Map<String, Object> requestPayload;
-
-        public String getTraceId() { return traceId; }
-        public void setTraceId(String traceId) { this.traceId = traceId; }
-        public String getTimestamp() { return timestamp; }
-        public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
-        public String getMethod() { return method; }
-        public void setMethod(String method) { this.method = method; }
-        public String getUrl() { return url; }
-        public void setUrl(String url) { this.url = url; }
-        public String getRemoteAddr() { return remoteAddr; }
-        public void setRemoteAddr(String remoteAddr) { this.remoteAddr = remoteAddr; }
-        public Map<String, String> getHeaders() { return headers; }
-        public void setHeaders(Map<String, String> headers) { this.headers = headers; }
-        public Map<String, String> getQueryParams() { return queryParams; }
-        public void setQueryParams(Map<String, String> queryParams) { this.queryParams = queryParams; }
-        public String getControllerClass() { return controllerClass; }
-        public void setControllerClass(String controllerClass) { this.controllerClass = controllerClass; }
-        public String getMethodName() { return methodName; }
-        public void setMethodName(String methodName) { this.methodName = methodName; }
-        public Map<String, Object> getRequestPayload() { return requestPayload; }
-        public void setRequestPayload(Map<String, Object> requestPayload) { this.requestPayload = requestPayload; }
-    }
 }
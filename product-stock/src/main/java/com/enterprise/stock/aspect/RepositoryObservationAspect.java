@@ -0,0 +1,60 @@
+package com.enterprise.stock.aspect;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Repository Observation Aspect
+ * Runs every Spring Data repository call as a child span of the current request
+ * (e.g. "StockRepository.findBySkuInForUpdate"), so a trace shows how much of a
+ * product-stock request was spent in the database and on which queries.
+ *
+ * Metrics: stock.repository (timer, tags repository, method, error)
+ */
+@Aspect
+@Component
+public class RepositoryObservationAspect {
+
+    private final ObservationRegistry observationRegistry;
+
+    public RepositoryObservationAspect(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Pointcut("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public void repositoryPointcut() {}
+
+    @Around("repositoryPointcut()")
+    public Object observeRepositoryCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repository = repositoryName(joinPoint.getThis());
+        String method = joinPoint.getSignature().getName();
+        Observation observation = Observation.createNotStarted("stock.repository", observationRegistry)
+                .contextualName(repository + "." + method)
+                .lowCardinalityKeyValue("repository", repository)
+                .lowCardinalityKeyValue("method", method)
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            observation.error(ex);
+            throw ex;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    /**
+     * The application's repository interface rather than the Spring Data type declaring
+     * the method (save, findById and friends are declared on CrudRepository).
+     */
+    private static String repositoryName(Object proxy) {
+        Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(proxy);
+        return interfaces.length > 0 ? interfaces[0].getSimpleName() : proxy.getClass().getSimpleName();
+    }
+}
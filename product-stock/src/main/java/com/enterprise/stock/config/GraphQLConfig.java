@@ -0,0 +1,56 @@
+package com.enterprise.stock.config;
+
+import com.enterprise.stock.graphql.PersistedQueryDocumentCache;
+import com.enterprise.stock.graphql.QueryCostInstrumentation;
+import com.enterprise.stock.graphql.QueryDocumentCache;
+import graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * GraphQL engine configuration for Product Stock Service
+ * Caches parsed and validated documents by query text, and enables automatic
+ * persisted queries (Apollo protocol) over a separate hash-keyed cache.
+ * Operations are admitted by estimated cost and depth before they execute.
+ */
+@Configuration
+public class GraphQLConfig {
+
+    @Value("${stock.graphql.persisted-queries.max-entries:500}")
+    private long persistedQueryMaxEntries;
+
+    @Value("${stock.graphql.document-cache.max-entries:1000}")
+    private long documentCacheMaxEntries;
+
+    @Value("${stock.graphql.limits.max-depth:10}")
+    private int maxDepth;
+
+    @Value("${stock.graphql.limits.max-cost:1000}")
+    private int maxCost;
+
+    @Value("${stock.graphql.limits.max-in-flight-cost:10000}")
+    private int maxInFlightCost;
+
+    @Value("${stock.graphql.limits.default-list-size:20}")
+    private int defaultListSize;
+
+    @Value("${stock.metrics.max-graphql-operations:100}")
+    private int maxOperations;
+
+    @Bean
+    public GraphQlSourceBuilderCustomizer documentCacheCustomizer(MeterRegistry meterRegistry) {
+        PersistedQueryDocumentCache persisted = new PersistedQueryDocumentCache(persistedQueryMaxEntries, meterRegistry);
+        QueryDocumentCache documents = new QueryDocumentCache(
+                new ApolloPersistedQuerySupport(persisted), documentCacheMaxEntries, meterRegistry);
+        return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(documents));
+    }
+
+    @Bean
+    public QueryCostInstrumentation queryCostInstrumentation(MeterRegistry meterRegistry) {
+        return new QueryCostInstrumentation(maxDepth, maxCost, maxInFlightCost, defaultListSize,
+                maxOperations, meterRegistry);
+    }
+}
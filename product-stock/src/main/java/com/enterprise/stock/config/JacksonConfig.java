@@ -0,0 +1,34 @@
+package com.enterprise.stock.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Jackson Configuration for Product Stock Service
+ * Keeps the wire mapper (REST, GraphQL) compact and gives the request/response
+ * logs their own pretty-printing mapper. Both are built from spring.jackson.*.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    @Primary
+    public ObjectMapper objectMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.createXmlMapper(false).build();
+    }
+
+    @Bean
+    public ObjectMapper diagnosticsObjectMapper(ObjectMapper objectMapper) {
+        return objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT);
+    }
+}
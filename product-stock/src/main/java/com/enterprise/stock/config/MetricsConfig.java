@@ -0,0 +1,41 @@
+package com.enterprise.stock.config;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics Configuration
+ * Cardinality guards applied to every meter: SKUs are never a tag,
+ * stock.usecase stops creating series once the warehouse tag has more than
+ * max-warehouses values, and stock.graphql.query.cost likewise past
+ * max-graphql-operations operation names.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Value("${stock.metrics.max-warehouses:50}")
+    private int maxWarehouses;
+
+    @Value("${stock.metrics.max-graphql-operations:100}")
+    private int maxGraphQlOperations;
+
+    @Bean
+    public MeterFilter skuTagFilter() {
+        return MeterFilter.ignoreTags("sku");
+    }
+
+    @Bean
+    public MeterFilter warehouseTagLimit() {
+        // The aspect already folds unknown warehouses into "other"; this is the backstop
+        return MeterFilter.maximumAllowableTags("stock.usecase", "warehouse", maxWarehouses + 2, MeterFilter.deny());
+    }
+
+    @Bean
+    public MeterFilter graphQlOperationTagLimit() {
+        // QueryCostInstrumentation already folds unknown operations into "other"; this is the backstop
+        return MeterFilter.maximumAllowableTags("stock.graphql.query.cost", "operation",
+                maxGraphQlOperations + 2, MeterFilter.deny());
+    }
+}
@@ -0,0 +1,40 @@
+package com.enterprise.stock.config;
+
+import com.enterprise.stock.persistence.PersistenceStatisticsIntegrator;
+import com.enterprise.stock.persistence.StatisticsDataSource;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Persistence Configuration for Product Stock Service
+ * Hooks per-request persistence statistics into the Hikari DataSource and Hibernate.
+ */
+@Configuration
+public class PersistenceConfig {
+
+    @Bean
+    public static BeanPostProcessor statisticsDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof StatisticsDataSource)
+                        ? new StatisticsDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer persistenceStatisticsCustomizer() {
+        PersistenceStatisticsIntegrator integrator = new PersistenceStatisticsIntegrator();
+        return properties -> properties.put(JpaSettings.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> List.of(integrator));
+    }
+}
@@ -0,0 +1,37 @@
+package com.enterprise.stock.context;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionTimedOutException;
+
+import java.util.OptionalLong;
+
+/**
+ * JPA transaction manager that caps every transaction's timeout at the caller's
+ * remaining budget. Hibernate turns the transaction timeout into a JDBC statement
+ * timeout, so queries still running when the caller gives up are cancelled by the
+ * database; a transaction that would start after the deadline is not started at all.
+ *
+ * Timeouts are whole seconds (rounded up), so a query may outlive the deadline by
+ * up to a second.
+ */
+public class DeadlineAwareJpaTransactionManager extends JpaTransactionManager {
+
+    @Override
+    protected int determineTimeout(TransactionDefinition definition) {
+        int configured = super.determineTimeout(definition);
+        OptionalLong remaining = RequestDeadline.remainingMillis();
+        if (remaining.isEmpty()) {
+            return configured;
+        }
+
+        long remainingMs = remaining.getAsLong();
+        if (remainingMs <= 0) {
+            throw new TransactionTimedOutException("Request deadline expired " + (-remainingMs) + " ms ago");
+        }
+        int deadlineSeconds = (int) Math.ceil(remainingMs / 1000.0);
+        return configured == TransactionDefinition.TIMEOUT_DEFAULT
+                ? deadlineSeconds
+                : Math.min(configured, deadlineSeconds);
+    }
+}
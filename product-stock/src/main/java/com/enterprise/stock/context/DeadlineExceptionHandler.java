@@ -0,0 +1,37 @@
+package com.enterprise.stock.context;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps work abandoned because of an expired caller deadline (transaction not started,
+ * statement cancelled) to 504, which callers treat as a timeout rather than a failure.
+ */
+@RestControllerAdvice
+public class DeadlineExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineExceptionHandler.class);
+
+    @ExceptionHandler({TransactionTimedOutException.class, QueryTimeoutException.class})
+    public ResponseEntity<Map<String, Object>> handleDeadlineExpired(RuntimeException ex) {
+        logger.warn("Request abandoned at caller deadline: {}", ex.getMessage());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now().toString());
+        response.put("status", HttpStatus.GATEWAY_TIMEOUT.value());
+        response.put("error", "Deadline Exceeded");
+        response.put("message", ex.getMessage());
+        response.put("service", "product-stock");
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response);
+    }
+}
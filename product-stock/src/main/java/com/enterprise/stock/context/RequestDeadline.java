@@ -0,0 +1,41 @@
+package com.enterprise.stock.context;
+
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline propagated by the caller for the request being served on the current thread
+ *
+ * shop-management sends its remaining budget in {@link #HEADER}; work for a
+ * request whose deadline has passed is pointless because nobody waits for the answer.
+ */
+public final class RequestDeadline {
+
+    /** Remaining budget in milliseconds, relative to arrival so clock skew does not matter */
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static void set(long deadlineNanos) {
+        DEADLINE_NANOS.set(deadlineNanos);
+    }
+
+    public static void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    public static OptionalLong remainingMillis() {
+        Long deadline = DEADLINE_NANOS.get();
+        return deadline == null
+                ? OptionalLong.empty()
+                : OptionalLong.of(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    public static boolean isExpired() {
+        Long deadline = DEADLINE_NANOS.get();
+        return deadline != null && deadline - System.nanoTime() <= 0;
+    }
+}
@@ -1,16 +1,22 @@
 package com.enterprise.stock.controller;
 
 import com.enterprise.stock.dto.*;
+import com.enterprise.stock.service.IdempotencyKeyReusedException;
 import com.enterprise.stock.service.StockService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * REST Controller for Stock Operations
  * Product Stock Service - Server B (Port 8081)
@@ -39,9 +45,21 @@ public class StockRestController {
     // Use Case 2: REST POST - Reserve stock for an order
     @PostMapping("/reservations")
     @Operation(summary = "Reserve stock for order")
-    public ResponseEntity<StockReservationDto> reserveStock(@Valid @RequestBody StockReservationDto request) {
+    public ResponseEntity<StockReservationDto> reserveStock(
+            @Valid @RequestBody StockReservationDto request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         logger.info("Reserving stock for Order: {}", request.getOrderId());
-        StockReservationDto response = stockService.reserveStock(request);
+        StockReservationDto response;
+        try {
+            response = stockService.reserveStock(request, idempotencyKey);
+        } catch (DataIntegrityViolationException ex) {
+            // A concurrent first attempt with the same key inserted its reservation first
+            // (unique idempotency_key); this attempt was rolled back, answer with the winner's
+            if (idempotencyKey == null) {
+                throw ex;
+            }
+            response = stockService.findReservation(request, idempotencyKey).orElseThrow(() -> ex);
+        }
         
         if (Boolean.TRUE.equals(response.getSuccess())) {
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
@@ -49,6 +67,23 @@ public class StockRestController {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
     }
 
+    // Multi-line reservation: all lines of an order in one round trip
+    @PostMapping("/reservations/batch")
+    @Operation(summary = "Reserve stock for all lines of an order")
+    public ResponseEntity<BatchReservationDto> reserveStockBatch(@Valid @RequestBody BatchReservationDto request) {
+        logger.info("Reserving stock batch for Order: {}", request.getOrderId());
+        BatchReservationDto response = stockService.reserveStockBatch(request);
+        
+        if (Boolean.TRUE.equals(response.getSuccess())) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+        // Some lines reserved and some not: the per-line results say which
+        if (response.getSuccessCount() != null && response.getSuccessCount() > 0) {
+            return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(response);
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
     // Use Case 3: REST PUT - Update stock threshold
     @PutMapping("/thresholds/{sku}")
     @Operation(summary = "Update stock threshold")
@@ -123,4 +158,17 @@ public class StockRestController {
         StockSearchResponseDto response = stockService.searchStock(request);
         return ResponseEntity.ok(response);
     }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<Map<String, Object>> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+        logger.warn("Rejected reused idempotency key: {}", ex.getMessage());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now().toString());
+        response.put("status", HttpStatus.UNPROCESSABLE_ENTITY.value());
+        response.put("error", "Idempotency Key Reused");
+        response.put("message", ex.getMessage());
+        response.put("service", "product-stock");
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(response);
+    }
 }
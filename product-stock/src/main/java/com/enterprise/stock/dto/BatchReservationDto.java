@@ -0,0 +1,54 @@
+package com.enterprise.stock.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * DTO for multi-line stock reservation request/response
+ * Reserves every line of an order in a single round trip and transaction
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchReservationDto {
+    private String batchId;
+    @NotBlank(message = "Order ID is required")
+    private String orderId;
+    private String customerId;
+    @Pattern(regexp = "(?i)ALL_OR_NOTHING|BEST_EFFORT", message = "Mode must be ALL_OR_NOTHING or BEST_EFFORT")
+    private String mode; // ALL_OR_NOTHING (default), BEST_EFFORT
+    @NotEmpty(message = "At least one reservation line is required")
+    @Valid
+    private List<ReservationLine> lines;
+    private Integer totalLines;
+    private Integer successCount;
+    private Integer failureCount;
+    private String status; // CONFIRMED, PARTIAL, FAILED
+    private List<StockReservationDto> reservations;
+    private Boolean success;
+    private String message;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReservationLine {
+        @NotBlank(message = "SKU is required")
+        private String sku;
+        @NotNull(message = "Quantity is required")
+        @Min(value = 1, message = "Quantity must be at least 1")
+        private Integer quantity;
+        private String warehouseCode;
+        private String notes;
+    }
+}
@@ -0,0 +1,28 @@
+package com.enterprise.stock.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a product's stock summary across warehouses (GraphQL Product.stock)
+ * Location fields come from the product's primary stock row.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductStockDto {
+    private String sku;
+    private Integer stockCount;
+    private Integer reservedCount;
+    private Integer availableCount;
+    private String stockStatus;
+    private String warehouseCode;
+    private String aisle;
+    private String shelf;
+    private String bin;
+    private LocalDateTime lastStockUpdate;
+}
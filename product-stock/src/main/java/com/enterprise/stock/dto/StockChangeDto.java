@@ -0,0 +1,24 @@
+package com.enterprise.stock.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a committed stock level change (GraphQL subscriptions)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StockChangeDto {
+    private String sku;
+    private String warehouseCode;
+    private Integer quantity;
+    private Integer reservedQuantity;
+    private Integer availableQuantity;
+    private String stockStatus;
+    private LocalDateTime changedAt;
+}
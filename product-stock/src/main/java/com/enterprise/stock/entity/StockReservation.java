@@ -24,6 +24,10 @@ public class StockReservation {
     @Column(name = "reservation_id", unique = true, nullable = false, length = 50)
     private String reservationId;
 
+    // Client-supplied Idempotency-Key; a retried request with the same key replays this reservation
+    @Column(name = "idempotency_key", unique = true, length = 64)
+    private String idempotencyKey;
+
     @Column(nullable = false, length = 50)
     private String sku;
 
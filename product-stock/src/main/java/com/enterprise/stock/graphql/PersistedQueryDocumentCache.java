@@ -0,0 +1,56 @@
+package com.enterprise.stock.graphql;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.persisted.PersistedQueryCache;
+import graphql.execution.preparsed.persisted.PersistedQueryCacheMiss;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded cache of parsed and validated GraphQL documents for automatic persisted queries
+ *
+ * Keyed by the query's SHA-256 hash (extensions.persistedQuery.sha256Hash). A request
+ * carrying only the hash is served from here without parsing or validation; on a miss
+ * it fails with PersistedQueryNotFound and the client resends the full text, which is
+ * parsed, validated and cached. Documents with validation errors are not cached.
+ *
+ * Metrics: cache.* tagged cache=stock.graphql.persisted.queries
+ */
+public class PersistedQueryDocumentCache implements PersistedQueryCache {
+
+    private final Cache<Object, PreparsedDocumentEntry> documents;
+
+    public PersistedQueryDocumentCache(long maxEntries, MeterRegistry meterRegistry) {
+        this.documents = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, documents, "stock.graphql.persisted.queries");
+    }
+
+    @Override
+    public PreparsedDocumentEntry getPersistedQueryDocument(Object persistedQueryId, ExecutionInput executionInput,
+                                                            PersistedQueryCacheMiss onCacheMiss)
+            throws PersistedQueryNotFound {
+        PreparsedDocumentEntry entry = documents.getIfPresent(persistedQueryId);
+        if (entry != null) {
+            return entry;
+        }
+
+        String query = executionInput.getQuery();
+        if (query == null || query.isBlank() || PersistedQuerySupport.PERSISTED_QUERY_MARKER.equals(query)) {
+            throw new PersistedQueryNotFound(persistedQueryId);
+        }
+
+        entry = onCacheMiss.apply(query);
+        if (!entry.hasErrors()) {
+            documents.put(persistedQueryId, entry);
+        }
+        return entry;
+    }
+}
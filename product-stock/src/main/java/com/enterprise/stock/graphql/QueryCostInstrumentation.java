@@ -0,0 +1,189 @@
+package com.enterprise.stock.graphql;
+
+import graphql.ExecutionResult;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.language.OperationDefinition;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLTypeUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+/**
+ * Query cost and depth limits with cost-based admission for the GraphQL engine
+ *
+ * Before an operation executes, its cost is estimated as the number of objects it
+ * can return: every object-typed field counts once per parent object, and a list
+ * field multiplies by its expected size - the first/last/size/pageSize/limit
+ * argument, the length of a list argument (e.g. products(skus)), or
+ * default-list-size. Introspection fields are free.
+ *
+ * Operations deeper than max-depth or costlier than max-cost are rejected. Admitted
+ * queries and mutations hold their cost against max-in-flight-cost until they
+ * complete; one that does not fit is rejected as busy instead of queueing.
+ * Subscriptions are checked but not admitted against the in-flight budget.
+ *
+ * The operation name comes from the client, so only the first max-operations
+ * distinct names become tag values; anonymous operations are tagged "anonymous"
+ * and everything past the limit (or not a valid GraphQL name) "other".
+ *
+ * Metrics: stock.graphql.query.cost (tagged by operation),
+ * stock.graphql.query.rejected (tagged by reason: depth, cost, busy)
+ */
+public class QueryCostInstrumentation extends SimplePerformantInstrumentation {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCostInstrumentation.class);
+    private static final Set<String> SIZE_ARGUMENTS = Set.of("first", "last", "size", "pageSize", "limit");
+    private static final String ANONYMOUS = "anonymous";
+    private static final String OTHER = "other";
+    private static final Pattern OPERATION_NAME = Pattern.compile("[_A-Za-z][_0-9A-Za-z]{0,63}");
+
+    private final int maxDepth;
+    private final int maxCost;
+    private final int maxInFlightCost;
+    private final int defaultListSize;
+    private final int maxOperations;
+    private final Semaphore inFlightCost;
+    private final Set<String> operations = ConcurrentHashMap.newKeySet();
+    private final MeterRegistry meterRegistry;
+
+    public QueryCostInstrumentation(int maxDepth, int maxCost, int maxInFlightCost, int defaultListSize,
+                                    int maxOperations, MeterRegistry meterRegistry) {
+        this.maxDepth = maxDepth;
+        this.maxCost = maxCost;
+        this.maxInFlightCost = maxInFlightCost;
+        this.defaultListSize = defaultListSize;
+        this.maxOperations = maxOperations;
+        this.inFlightCost = new Semaphore(maxInFlightCost);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+            InstrumentationExecuteOperationParameters parameters, InstrumentationState state) {
+        ExecutionContext context = parameters.getExecutionContext();
+        String operation = context.getOperationDefinition().getName() != null
+                ? context.getOperationDefinition().getName() : ANONYMOUS;
+
+        QueryCost cost = estimate(context);
+        DistributionSummary.builder("stock.graphql.query.cost")
+                .description("Estimated GraphQL operation cost (objects returned)")
+                .tag("operation", guard(operation))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(cost.cost());
+
+        if (cost.depth() > maxDepth) {
+            throw reject("depth", operation, "Query depth " + cost.depth() + " exceeds the maximum of " + maxDepth);
+        }
+        if (cost.cost() > maxCost) {
+            throw reject("cost", operation, "Query cost " + cost.cost() + " exceeds the maximum of " + maxCost);
+        }
+        if (context.getOperationDefinition().getOperation() == OperationDefinition.Operation.SUBSCRIPTION) {
+            return SimpleInstrumentationContext.noOp();
+        }
+
+        int permits = (int) Math.max(1, Math.min(cost.cost(), maxInFlightCost));
+        if (!inFlightCost.tryAcquire(permits)) {
+            throw reject("busy", operation, "Server is busy, retry the query later");
+        }
+        return SimpleInstrumentationContext.whenCompleted((result, ex) -> inFlightCost.release(permits));
+    }
+
+    /**
+     * Keeps the operation tag low-cardinality.
+     */
+    private String guard(String operation) {
+        if (operation.equals(ANONYMOUS) || operations.contains(operation)) {
+            return operation;
+        }
+        if (!OPERATION_NAME.matcher(operation).matches() || operations.size() >= maxOperations) {
+            return OTHER;
+        }
+        operations.add(operation);
+        return operation;
+    }
+
+    private QueryCost estimate(ExecutionContext context) {
+        long[] totals = new long[2];
+        QueryTraverser.newQueryTraverser()
+                .schema(context.getGraphQLSchema())
+                .document(context.getDocument())
+                .operationName(context.getOperationDefinition().getName())
+                .coercedVariables(context.getCoercedVariables())
+                .build()
+                .visitPreOrder(new QueryVisitorStub() {
+                    @Override
+                    public void visitField(QueryVisitorFieldEnvironment env) {
+                        long multiplier = 1;
+                        int depth = 0;
+                        for (QueryVisitorFieldEnvironment field = env; field != null; field = field.getParentEnvironment()) {
+                            if (field.isTypeNameIntrospectionField() || field.getField().getName().startsWith("__")) {
+                                return;
+                            }
+                            multiplier = saturatedMultiply(multiplier, listSize(field));
+                            depth++;
+                        }
+                        totals[1] = Math.max(totals[1], depth);
+                        if (!GraphQLTypeUtil.isLeaf(GraphQLTypeUtil.unwrapAll(env.getFieldDefinition().getType()))) {
+                            totals[0] = Math.min(Long.MAX_VALUE / 2, totals[0] + multiplier);
+                        }
+                    }
+                });
+        return new QueryCost(totals[0], (int) totals[1]);
+    }
+
+    private long listSize(QueryVisitorFieldEnvironment env) {
+        if (!(GraphQLTypeUtil.unwrapNonNull(env.getFieldDefinition().getType()) instanceof GraphQLList)) {
+            return 1;
+        }
+        Map<String, Object> arguments = env.getArguments();
+        for (Map.Entry<String, Object> argument : arguments.entrySet()) {
+            if (SIZE_ARGUMENTS.contains(argument.getKey()) && argument.getValue() instanceof Number size) {
+                return Math.max(0, size.longValue());
+            }
+        }
+        for (Object value : arguments.values()) {
+            if (value instanceof List<?> list) {
+                return list.size();
+            }
+        }
+        return defaultListSize;
+    }
+
+    private AbortExecutionException reject(String reason, String operation, String message) {
+        Counter.builder("stock.graphql.query.rejected")
+                .description("GraphQL operations rejected before execution")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        logger.warn("Rejected GraphQL operation {}: {}", operation, message);
+        return new AbortExecutionException(message);
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        long result = a * b;
+        return (a != 0 && (result / a != b || result < 0)) ? Long.MAX_VALUE / 2 : result;
+    }
+
+    private record QueryCost(long cost, int depth) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.enterprise.stock.graphql;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of parsed and validated GraphQL documents, keyed on query text
+ *
+ * Requests that repeat a query (with any variables) skip parsing and validation.
+ * Requests carrying extensions.persistedQuery are handed to the persisted query
+ * support, which has its own hash-keyed cache. Documents with validation errors
+ * are not cached.
+ *
+ * Metrics: cache.* tagged cache=stock.graphql.documents
+ */
+public class QueryDocumentCache implements PreparsedDocumentProvider {
+
+    private static final String PERSISTED_QUERY_EXTENSION = "persistedQuery";
+
+    private final PreparsedDocumentProvider persistedQueries;
+    private final Cache<String, PreparsedDocumentEntry> documents;
+
+    public QueryDocumentCache(PreparsedDocumentProvider persistedQueries, long maxEntries,
+                              MeterRegistry meterRegistry) {
+        this.persistedQueries = persistedQueries;
+        this.documents = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, documents, "stock.graphql.documents");
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(
+            ExecutionInput executionInput, Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate) {
+        if (executionInput.getExtensions().containsKey(PERSISTED_QUERY_EXTENSION)) {
+            return persistedQueries.getDocumentAsync(executionInput, parseAndValidate);
+        }
+        return CompletableFuture.completedFuture(getDocument(executionInput, parseAndValidate));
+    }
+
+    @Override
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+                                              Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate) {
+        String query = executionInput.getQuery();
+        PreparsedDocumentEntry entry = documents.getIfPresent(query);
+        if (entry != null) {
+            return entry;
+        }
+        entry = parseAndValidate.apply(executionInput);
+        if (!entry.hasErrors()) {
+            documents.put(query, entry);
+        }
+        return entry;
+    }
+}
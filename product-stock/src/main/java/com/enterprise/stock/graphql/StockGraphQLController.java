@@ -1,26 +1,46 @@
 package com.enterprise.stock.graphql;
 
 import com.enterprise.stock.dto.*;
+import com.enterprise.stock.entity.Product;
+import com.enterprise.stock.entity.Warehouse;
 import com.enterprise.stock.service.StockService;
+import com.enterprise.stock.stream.StockChangeStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * GraphQL Controller for Product Stock Service
  * Use Cases 6 & 7: Product details query and damaged goods mutation
+ *
+ * product/products resolve Product -> stock -> warehouse field by field: nested
+ * fields are only loaded when selected, and sibling lookups (aliases, lists) are
+ * batched through DataLoaders into one IN query per level.
  */
 @Controller
 public class StockGraphQLController {
 
     private static final Logger logger = LoggerFactory.getLogger(StockGraphQLController.class);
     private final StockService stockService;
+    private final StockChangeStream stockChangeStream;
 
-    public StockGraphQLController(StockService stockService) {
+    public StockGraphQLController(StockService stockService, StockChangeStream stockChangeStream) {
         this.stockService = stockService;
+        this.stockChangeStream = stockChangeStream;
     }
 
     // ==========================================================================
@@ -32,6 +52,41 @@ public class StockGraphQLController {
         return stockService.getProductDetails(sku);
     }
 
+    @QueryMapping
+    public Product product(@Argument String sku) {
+        logger.info("GraphQL Query: product for SKU: {}", sku);
+        return stockService.findProduct(sku).orElse(null);
+    }
+
+    @QueryMapping
+    public List<Product> products(@Argument List<String> skus) {
+        logger.info("GraphQL Query: products for {} SKU(s)", skus.size());
+        return stockService.findProducts(skus);
+    }
+
+    @SchemaMapping(typeName = "Product")
+    public LocalDateTime lastPriceUpdate(Product product) {
+        return product.getUpdatedAt();
+    }
+
+    @BatchMapping(typeName = "Product")
+    public List<ProductStockDto> stock(List<Product> products) {
+        Set<String> skus = new LinkedHashSet<>();
+        products.forEach(product -> skus.add(product.getSku()));
+        Map<String, ProductStockDto> summaries = stockService.getStockSummaries(skus);
+        return products.stream().map(product -> summaries.get(product.getSku())).toList();
+    }
+
+    @BatchMapping(typeName = "ProductStock")
+    public List<Warehouse> warehouse(List<ProductStockDto> stocks) {
+        Set<String> codes = new LinkedHashSet<>();
+        stocks.stream().map(ProductStockDto::getWarehouseCode).filter(Objects::nonNull).forEach(codes::add);
+        Map<String, Warehouse> warehouses = codes.isEmpty() ? Map.of() : stockService.getWarehouses(codes);
+        return stocks.stream()
+                .map(stock -> stock.getWarehouseCode() != null ? warehouses.get(stock.getWarehouseCode()) : null)
+                .toList();
+    }
+
     @QueryMapping
     public StockAvailabilityDto stockAvailability(@Argument String sku) {
         logger.info("GraphQL Query: stockAvailability for SKU: {}", sku);
@@ -49,16 +104,16 @@ public class StockGraphQLController {
     // ==========================================================================
     @MutationMapping
     public DamagedGoodsReturnDto registerDamagedReturn(@Argument DamagedReturnInput input) {
-        logger.info("GraphQL Mutation: registerDamagedReturn for SKU: {}", input.getSku());
+        logger.info("GraphQL Mutation: registerDamagedReturn for SKU: {}", input.sku());
         
         DamagedGoodsReturnDto request = DamagedGoodsReturnDto.builder()
-                .sku(input.getSku())
-                .quantity(input.getQuantity())
-                .damageType(input.getDamageType())
-                .damageDescription(input.getDamageDescription())
-                .warehouseCode(input.getWarehouseCode())
-                .reportedBy(input.getReportedBy())
-                .notes(input.getNotes())
+                .sku(input.sku())
+                .quantity(input.quantity())
+                .damageType(input.damageType())
+                .damageDescription(input.damageDescription())
+                .warehouseCode(input.warehouseCode())
+                .reportedBy(input.reportedBy())
+                .notes(input.notes())
                 .build();
         
         return stockService.registerDamagedReturn(request);
@@ -66,37 +121,73 @@ public class StockGraphQLController {
 
     @MutationMapping
     public StockReservationDto reserveStock(@Argument StockReservationInput input) {
-        logger.info("GraphQL Mutation: reserveStock for SKU: {}", input.getSku());
+        logger.info("GraphQL Mutation: reserveStock for SKU: {}", input.sku());
         
         StockReservationDto request = StockReservationDto.builder()
-                .sku(input.getSku())
-                .orderId(input.getOrderId())
-                .quantity(input.getQuantity())
-                .warehouseCode(input.getWarehouseCode())
-                .customerId(input.getCustomerId())
-                .notes(input.getNotes())
+                .sku(input.sku())
+                .orderId(input.orderId())
+                .quantity(input.quantity())
+                .warehouseCode(input.warehouseCode())
+                .customerId(input.customerId())
+                .notes(input.notes())
                 .build();
         
         return stockService.reserveStock(request);
     }
 
+    @MutationMapping
+    public BatchReservationDto reserveStockBatch(@Argument BatchReservationInput input) {
+        logger.info("GraphQL Mutation: reserveStockBatch for Order: {}", input.orderId());
+        
+        BatchReservationDto request = BatchReservationDto.builder()
+                .orderId(input.orderId())
+                .customerId(input.customerId())
+                .mode(input.mode())
+                .lines(input.lines().stream()
+                        .map(line -> BatchReservationDto.ReservationLine.builder()
+                                .sku(line.sku())
+                                .quantity(line.quantity())
+                                .warehouseCode(line.warehouseCode())
+                                .notes(line.notes())
+                                .build())
+                        .toList())
+                .build();
+        
+        return stockService.reserveStockBatch(request);
+    }
+
     @MutationMapping
     public StockThresholdDto updateStockThreshold(@Argument String sku, @Argument ThresholdInput input) {
         logger.info("GraphQL Mutation: updateStockThreshold for SKU: {}", sku);
         
         StockThresholdDto request = StockThresholdDto.builder()
                 .sku(sku)
-                .minThreshold(input.getMinThreshold())
-                .maxThreshold(input.getMaxThreshold())
-                .reorderPoint(input.getReorderPoint())
-                .reorderQuantity(input.getReorderQuantity())
-                .warehouseCode(input.getWarehouseCode())
-                .autoReorder(input.getAutoReorder())
+                .minThreshold(input.minThreshold())
+                .maxThreshold(input.maxThreshold())
+                .reorderPoint(input.reorderPoint())
+                .reorderQuantity(input.reorderQuantity())
+                .warehouseCode(input.warehouseCode())
+                .autoReorder(input.autoReorder())
                 .build();
         
         return stockService.updateThreshold(sku, request);
     }
 
+    // ==========================================================================
+    // Subscriptions: live stock changes over /graphql-ws
+    // ==========================================================================
+    @SubscriptionMapping
+    public Flux<StockChangeDto> stockChanged(@Argument String sku) {
+        logger.info("GraphQL Subscription: stockChanged for SKU: {}", sku);
+        return stockChangeStream.changesForSku(sku);
+    }
+
+    @SubscriptionMapping
+    public Flux<StockChangeDto> warehouseStockChanged(@Argument String warehouseCode) {
+        logger.info("GraphQL Subscription: warehouseStockChanged for: {}", warehouseCode);
+        return stockChangeStream.changesForWarehouse(warehouseCode);
+    }
+
     // Input DTOs for GraphQL
     public record DamagedReturnInput(
             String sku,
@@ -117,6 +208,20 @@ public class StockGraphQLController {
             String notes
     ) {}
 
+    public record BatchReservationInput(
+            String orderId,
+            String customerId,
+            String mode,
+            List<ReservationLineInput> lines
+    ) {}
+
+    public record ReservationLineInput(
+            String sku,
+            Integer quantity,
+            String warehouseCode,
+            String notes
+    ) {}
+
     public record ThresholdInput(
             Integer minThreshold,
             Integer maxThreshold,
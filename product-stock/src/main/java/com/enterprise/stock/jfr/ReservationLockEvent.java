@@ -0,0 +1,29 @@
+package com.enterprise.stock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for the row locks a batch reservation takes; its duration is the time
+ * spent waiting for concurrent reservations of the same SKUs to commit.
+ */
+@Name("com.enterprise.stock.ReservationLock")
+@Label("Reservation Lock")
+@Category({"Enterprise", "Product Stock"})
+@Description("Stock rows locked (SELECT ... FOR UPDATE) for a batch reservation")
+@StackTrace(false)
+public class ReservationLockEvent extends Event {
+
+    @Label("Order Id")
+    public String orderId;
+
+    @Label("SKU Count")
+    public int skuCount;
+
+    @Label("Rows Locked")
+    public int rowsLocked;
+}
@@ -0,0 +1,29 @@
+package com.enterprise.stock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a reservation retried by the caller with the same Idempotency-Key
+ * and answered from the reservation already made.
+ */
+@Name("com.enterprise.stock.ReservationReplay")
+@Label("Reservation Replay")
+@Category({"Enterprise", "Product Stock"})
+@Description("Client retry of a reservation, answered without reserving again")
+@StackTrace(false)
+public class ReservationReplayEvent extends Event {
+
+    @Label("Reservation Id")
+    public String reservationId;
+
+    @Label("SKU")
+    public String sku;
+
+    @Label("Order Id")
+    public String orderId;
+}
@@ -0,0 +1,40 @@
+package com.enterprise.stock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one StockService operation, emitted by FlightRecorderAspect.
+ * Row counts come from the request's PersistenceStatistics and are 0 outside a request.
+ */
+@Name("com.enterprise.stock.StockOperation")
+@Label("Stock Operation")
+@Category({"Enterprise", "Product Stock"})
+@Description("A StockService operation, including its transaction")
+@StackTrace(false)
+public class StockOperationEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("SKU Count")
+    @Description("SKUs named by the request (lines of a batch or bulk update)")
+    public int skuCount;
+
+    @Label("Entities Loaded")
+    public int entitiesLoaded;
+
+    @Label("Rows Written")
+    public long rowsWritten;
+
+    @Label("Statements")
+    @Description("JDBC round trips")
+    public int statements;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
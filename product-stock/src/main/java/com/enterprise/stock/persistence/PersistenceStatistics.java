@@ -0,0 +1,132 @@
+package com.enterprise.stock.persistence;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistence work done for the request being served on the current thread
+ *
+ * Opened by {@link PersistenceStatisticsFilter} and filled in by
+ * {@link StatisticsDataSource} (JDBC round trips, batches, pool acquire time)
+ * and {@link PersistenceStatisticsIntegrator} (entity loads, flushes).
+ * Work outside a request (schedulers, startup) is not counted.
+ */
+public final class PersistenceStatistics {
+
+    private static final ThreadLocal<PersistenceStatistics> CURRENT = new ThreadLocal<>();
+
+    private String useCase;
+    private int statements;
+    private int batches;
+    private int batchedStatements;
+    private int maxBatchSize;
+    private long rowsWritten;
+    private int entitiesLoaded;
+    private int flushes;
+    private int connectionAcquisitions;
+    private long connectionAcquireNanos;
+
+    private PersistenceStatistics() {
+    }
+
+    static PersistenceStatistics open() {
+        PersistenceStatistics statistics = new PersistenceStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    static void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Statistics of the current request, or null outside a request.
+     */
+    public static PersistenceStatistics current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Names the request after the first use case it runs; later ones are nested calls.
+     */
+    public void useCase(String useCase) {
+        if (this.useCase == null) {
+            this.useCase = useCase;
+        }
+    }
+
+    void statementExecuted(long updateCount) {
+        statements++;
+        rowsWritten += Math.max(updateCount, 0);
+    }
+
+    void batchExecuted(int size, long updateCount) {
+        statements++;
+        batches++;
+        batchedStatements += size;
+        maxBatchSize = Math.max(maxBatchSize, size);
+        rowsWritten += updateCount;
+    }
+
+    void entityLoaded() {
+        entitiesLoaded++;
+    }
+
+    void flushed() {
+        flushes++;
+    }
+
+    void connectionAcquired(long nanos) {
+        connectionAcquisitions++;
+        connectionAcquireNanos += nanos;
+    }
+
+    public String getUseCase() {
+        return useCase;
+    }
+
+    /** JDBC round trips: single executions plus one per batch */
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public int getBatchedStatements() {
+        return batchedStatements;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /** Rows reported changed by inserts, updates and deletes */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public int getEntitiesLoaded() {
+        return entitiesLoaded;
+    }
+
+    public int getFlushes() {
+        return flushes;
+    }
+
+    public int getConnectionAcquisitions() {
+        return connectionAcquisitions;
+    }
+
+    public long getConnectionAcquireNanos() {
+        return connectionAcquireNanos;
+    }
+
+    public long getConnectionAcquireMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(connectionAcquireNanos);
+    }
+
+    public boolean isEmpty() {
+        return statements == 0 && entitiesLoaded == 0 && connectionAcquisitions == 0;
+    }
+}
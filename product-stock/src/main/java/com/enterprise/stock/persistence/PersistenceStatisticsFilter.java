@@ -0,0 +1,110 @@
+package com.enterprise.stock.persistence;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects {@link PersistenceStatistics} for every REST, GraphQL and SOAP request
+ * and records them per endpoint (the first StockService use case the request runs).
+ *
+ * Metrics: stock.persistence.statements (JDBC round trips per request, the
+ * "queries per request" histogram to alert on), stock.persistence.entities.loaded,
+ * stock.persistence.flushes, stock.persistence.batch.size (largest JDBC batch)
+ * and stock.persistence.connection.acquire (time spent waiting for Hikari).
+ * The response log of the request carries the same numbers, and the request's
+ * server span gets db.statements and db.entities_loaded, so a slow trace shows
+ * whether the time went into query count. Ordered inside the observation filter
+ * so the span is still open when the numbers are recorded.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class PersistenceStatisticsFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistenceStatisticsFilter.class);
+    private static final String OTHER = "other";
+
+    private final Meter.MeterProvider<DistributionSummary> statements;
+    private final Meter.MeterProvider<DistributionSummary> entitiesLoaded;
+    private final Meter.MeterProvider<DistributionSummary> flushes;
+    private final Meter.MeterProvider<DistributionSummary> batchSize;
+    private final Meter.MeterProvider<Timer> connectionAcquire;
+
+    public PersistenceStatisticsFilter(MeterRegistry meterRegistry) {
+        this.statements = DistributionSummary.builder("stock.persistence.statements")
+                .description("JDBC round trips per request")
+                .baseUnit("statements")
+                .withRegistry(meterRegistry);
+        this.entitiesLoaded = DistributionSummary.builder("stock.persistence.entities.loaded")
+                .description("Entities loaded by Hibernate per request")
+                .baseUnit("entities")
+                .withRegistry(meterRegistry);
+        this.flushes = DistributionSummary.builder("stock.persistence.flushes")
+                .description("Hibernate flushes per request (auto-flushes only when they wrote)")
+                .withRegistry(meterRegistry);
+        this.batchSize = DistributionSummary.builder("stock.persistence.batch.size")
+                .description("Largest JDBC batch per request, for requests that batched")
+                .baseUnit("statements")
+                .withRegistry(meterRegistry);
+        this.connectionAcquire = Timer.builder("stock.persistence.connection.acquire")
+                .description("Time per request spent acquiring connections from the pool")
+                .withRegistry(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        PersistenceStatistics statistics = PersistenceStatistics.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            PersistenceStatistics.close();
+            record(statistics, request);
+        }
+    }
+
+    private void record(PersistenceStatistics statistics, HttpServletRequest request) {
+        // Health checks, static resources and rejected requests never touch the database
+        if (statistics.getUseCase() == null && statistics.isEmpty()) {
+            return;
+        }
+        String endpoint = statistics.getUseCase() != null ? statistics.getUseCase() : OTHER;
+        statements.withTag("endpoint", endpoint).record(statistics.getStatements());
+        entitiesLoaded.withTag("endpoint", endpoint).record(statistics.getEntitiesLoaded());
+        flushes.withTag("endpoint", endpoint).record(statistics.getFlushes());
+        if (statistics.getBatches() > 0) {
+            batchSize.withTag("endpoint", endpoint).record(statistics.getMaxBatchSize());
+        }
+        connectionAcquire.withTag("endpoint", endpoint)
+                .record(statistics.getConnectionAcquireNanos(), TimeUnit.NANOSECONDS);
+        ServerHttpObservationFilter.findObservationContext(request).ifPresent(context -> context
+                .addHighCardinalityKeyValue(KeyValue.of("db.statements", String.valueOf(statistics.getStatements())))
+                .addHighCardinalityKeyValue(KeyValue.of("db.entities_loaded",
+                        String.valueOf(statistics.getEntitiesLoaded()))));
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("{} {} ({}): {} statements, {} batches ({} batched), {} entities loaded, {} flushes, "
+                            + "{} connections acquired in {}ms",
+                    request.getMethod(), request.getRequestURI(), endpoint, statistics.getStatements(),
+                    statistics.getBatches(), statistics.getBatchedStatements(), statistics.getEntitiesLoaded(),
+                    statistics.getFlushes(), statistics.getConnectionAcquisitions(),
+                    statistics.getConnectionAcquireMillis());
+        }
+    }
+}
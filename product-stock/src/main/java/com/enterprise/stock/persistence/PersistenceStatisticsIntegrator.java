@@ -0,0 +1,67 @@
+package com.enterprise.stock.persistence;
+
+import org.hibernate.HibernateException;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Hibernate integrator that counts entity loads and flushes into {@link PersistenceStatistics}
+ *
+ * The listeners are appended after Hibernate's own, so they see whether an
+ * auto-flush before a query actually wrote anything. Registered through
+ * hibernate.integrator_provider (see PersistenceConfig).
+ */
+public class PersistenceStatisticsIntegrator
+        implements Integrator, PostLoadEventListener, FlushEventListener, AutoFlushEventListener {
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                          SessionFactoryImplementor sessionFactory) {
+        EventListenerRegistry listeners = sessionFactory.getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_LOAD, this);
+        listeners.appendListeners(EventType.FLUSH, this);
+        listeners.appendListeners(EventType.AUTO_FLUSH, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        PersistenceStatistics statistics = PersistenceStatistics.current();
+        if (statistics != null) {
+            statistics.entityLoaded();
+        }
+    }
+
+    @Override
+    public void onFlush(FlushEvent event) throws HibernateException {
+        PersistenceStatistics statistics = PersistenceStatistics.current();
+        // Hibernate skips the flush entirely when the session manages nothing
+        if (statistics != null
+                && (event.getNumberOfEntitiesProcessed() > 0 || event.getNumberOfCollectionsProcessed() > 0)) {
+            statistics.flushed();
+        }
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) throws HibernateException {
+        PersistenceStatistics statistics = PersistenceStatistics.current();
+        if (statistics != null && event.isFlushRequired()) {
+            statistics.flushed();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.enterprise.stock.persistence;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource wrapper that counts JDBC work into {@link PersistenceStatistics}
+ *
+ * Times connection acquisition from the Hikari pool (including any wait for a
+ * free connection) and counts statement executions, batch sizes and rows written.
+ * Connections handed out outside a request are returned unwrapped, so background
+ * work pays nothing.
+ */
+public class StatisticsDataSource extends DelegatingDataSource {
+
+    public StatisticsDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        PersistenceStatistics statistics = PersistenceStatistics.current();
+        if (statistics == null) {
+            return obtainTargetDataSource().getConnection();
+        }
+        long start = System.nanoTime();
+        Connection connection = obtainTargetDataSource().getConnection();
+        statistics.connectionAcquired(System.nanoTime() - start);
+        return wrap(connection, statistics);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        PersistenceStatistics statistics = PersistenceStatistics.current();
+        if (statistics == null) {
+            return obtainTargetDataSource().getConnection(username, password);
+        }
+        long start = System.nanoTime();
+        Connection connection = obtainTargetDataSource().getConnection(username, password);
+        statistics.connectionAcquired(System.nanoTime() - start);
+        return wrap(connection, statistics);
+    }
+
+    private static Connection wrap(Connection connection, PersistenceStatistics statistics) {
+        return (Connection) Proxy.newProxyInstance(StatisticsDataSource.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return switch (method.getName()) {
+                        case "createStatement" -> wrap(result, Statement.class, statistics);
+                        case "prepareStatement" -> wrap(result, PreparedStatement.class, statistics);
+                        case "prepareCall" -> wrap(result, CallableStatement.class, statistics);
+                        default -> result;
+                    };
+                });
+    }
+
+    private static Object wrap(Object statement, Class<? extends Statement> type, PersistenceStatistics statistics) {
+        InvocationHandler counter = (proxy, method, args) -> {
+            Object result = invoke(statement, method, args);
+            switch (method.getName()) {
+                case "execute", "executeQuery" -> statistics.statementExecuted(0);
+                case "executeUpdate" -> statistics.statementExecuted((int) result);
+                case "executeLargeUpdate" -> statistics.statementExecuted((long) result);
+                case "executeBatch" -> {
+                    int[] counts = (int[]) result;
+                    long rows = 0;
+                    for (int count : counts) {
+                        rows += rowCount(count);
+                    }
+                    statistics.batchExecuted(counts.length, rows);
+                }
+                case "executeLargeBatch" -> {
+                    long[] counts = (long[]) result;
+                    long rows = 0;
+                    for (long count : counts) {
+                        rows += rowCount(count);
+                    }
+                    statistics.batchExecuted(counts.length, rows);
+                }
+                default -> {
+                }
+            }
+            return result;
+        };
+        return Proxy.newProxyInstance(StatisticsDataSource.class.getClassLoader(), new Class<?>[] {type}, counter);
+    }
+
+    /**
+     * Drivers may answer SUCCESS_NO_INFO for batched statements; count those as one row.
+     */
+    private static long rowCount(long updateCount) {
+        return updateCount == Statement.SUCCESS_NO_INFO ? 1 : Math.max(updateCount, 0);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,6 +19,8 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     boolean existsBySku(String sku);
     
+    List<Product> findBySkuIn(Collection<String> skus);
+    
     @Query("SELECT p FROM Product p WHERE p.isActive = true AND " +
            "(:sku IS NULL OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :sku, '%'))) AND " +
            "(:productName IS NULL OR LOWER(p.productName) LIKE LOWER(CONCAT('%', :productName, '%'))) AND " +
@@ -1,13 +1,16 @@
 package com.enterprise.stock.repository;
 
 import com.enterprise.stock.entity.Stock;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -20,6 +23,13 @@ public interface StockRepository extends JpaRepository<Stock, Long> {
     
     List<Stock> findByWarehouseCode(String warehouseCode);
     
+    List<Stock> findBySkuInOrderBySkuAscWarehouseCodeAsc(Collection<String> skus);
+    
+    // Rows are locked in (sku, warehouse) order so concurrent batches never deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Stock s WHERE s.sku IN :skus ORDER BY s.sku ASC, s.warehouseCode ASC")
+    List<Stock> findBySkuInForUpdate(@Param("skus") Collection<String> skus);
+    
     @Query("SELECT s FROM Stock s WHERE " +
            "(:sku IS NULL OR LOWER(s.sku) LIKE LOWER(CONCAT('%', :sku, '%'))) AND " +
            "(:warehouseCode IS NULL OR s.warehouseCode = :warehouseCode) AND " +
@@ -12,6 +12,8 @@ public interface StockReservationRepository extends JpaRepository<StockReservati
     
     Optional<StockReservation> findByReservationId(String reservationId);
     
+    Optional<StockReservation> findByIdempotencyKey(String idempotencyKey);
+    
     List<StockReservation> findByOrderId(String orderId);
     
     List<StockReservation> findBySkuAndStatus(String sku, String status);
@@ -4,6 +4,8 @@ import com.enterprise.stock.entity.Warehouse;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +14,6 @@ public interface WarehouseRepository extends JpaRepository<Warehouse, Long> {
     Optional<Warehouse> findByWarehouseCode(String warehouseCode);
     
     boolean existsByWarehouseCode(String warehouseCode);
+    
+    List<Warehouse> findByWarehouseCodeIn(Collection<String> warehouseCodes);
 }
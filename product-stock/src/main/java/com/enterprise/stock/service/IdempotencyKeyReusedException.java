@@ -0,0 +1,12 @@
+package com.enterprise.stock.service;
+
+/**
+ * Thrown when an idempotency key that already produced a reservation is sent with a
+ * different request (SKU, order or quantity). Mapped to HTTP 422 by StockRestController.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
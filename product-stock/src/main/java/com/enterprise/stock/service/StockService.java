@@ -2,9 +2,13 @@ package com.enterprise.stock.service;
 
 import com.enterprise.stock.dto.*;
 import com.enterprise.stock.entity.*;
+import com.enterprise.stock.jfr.ReservationLockEvent;
+import com.enterprise.stock.jfr.ReservationReplayEvent;
 import com.enterprise.stock.repository.*;
+import com.enterprise.stock.stream.StockChangedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -15,7 +19,16 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -33,17 +46,20 @@ public class StockService {
     private final WarehouseRepository warehouseRepository;
     private final StockReservationRepository reservationRepository;
     private final DamagedReturnRepository damagedReturnRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public StockService(ProductRepository productRepository,
                         StockRepository stockRepository,
                         WarehouseRepository warehouseRepository,
                         StockReservationRepository reservationRepository,
-                        DamagedReturnRepository damagedReturnRepository) {
+                        DamagedReturnRepository damagedReturnRepository,
+                        ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.stockRepository = stockRepository;
         this.warehouseRepository = warehouseRepository;
         this.reservationRepository = reservationRepository;
         this.damagedReturnRepository = damagedReturnRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     // ==========================================================================
@@ -89,8 +105,64 @@ public class StockService {
     // Use Case 2: Reserve stock for an order
     // ==========================================================================
     public StockReservationDto reserveStock(StockReservationDto request) {
+        return reserveStock(request, null);
+    }
+
+    /**
+     * The reservation already made under an idempotency key, if any. A key reused for
+     * a different SKU, order or quantity is rejected rather than answered with the
+     * other request's reservation.
+     */
+    @Transactional(readOnly = true)
+    public Optional<StockReservationDto> findReservation(StockReservationDto request, String idempotencyKey) {
+        StockReservation existing = reservationRepository.findByIdempotencyKey(idempotencyKey).orElse(null);
+        if (existing == null) {
+            return Optional.empty();
+        }
+        if (!Objects.equals(existing.getSku(), request.getSku())
+                || !Objects.equals(existing.getOrderId(), request.getOrderId())
+                || !Objects.equals(existing.getQuantity(), request.getQuantity())) {
+            throw new IdempotencyKeyReusedException("Idempotency key " + idempotencyKey
+                    + " was already used for reservation " + existing.getReservationId()
+                    + " with a different request");
+        }
+        logger.info("Replaying reservation {} for idempotency key {}", existing.getReservationId(), idempotencyKey);
+        ReservationReplayEvent replay = new ReservationReplayEvent();
+        if (replay.shouldCommit()) {
+            replay.reservationId = existing.getReservationId();
+            replay.sku = existing.getSku();
+            replay.orderId = existing.getOrderId();
+            replay.commit();
+        }
+        return Optional.of(StockReservationDto.builder()
+                .reservationId(existing.getReservationId())
+                .sku(existing.getSku())
+                .orderId(existing.getOrderId())
+                .quantity(existing.getQuantity())
+                .warehouseCode(existing.getWarehouseCode())
+                .customerId(existing.getCustomerId())
+                .status(existing.getStatus())
+                .reservedAt(existing.getReservedAt())
+                .expiresAt(existing.getExpiresAt())
+                .success(true)
+                .message("Stock reserved successfully")
+                .build());
+    }
+
+    /**
+     * Reserves stock; a request repeated with the same idempotency key (a client retry)
+     * returns the reservation it already made instead of reserving twice.
+     */
+    public StockReservationDto reserveStock(StockReservationDto request, String idempotencyKey) {
         logger.info("Reserving stock for SKU: {}, Order: {}", request.getSku(), request.getOrderId());
         
+        if (idempotencyKey != null) {
+            Optional<StockReservationDto> replay = findReservation(request, idempotencyKey);
+            if (replay.isPresent()) {
+                return replay.get();
+            }
+        }
+        
         // Check availability
         StockAvailabilityDto availability = checkAvailability(request.getSku());
         if (!Boolean.TRUE.equals(availability.getIsAvailable()) || 
@@ -125,11 +197,13 @@ public class StockService {
         // Update stock reservation
         stock.setReservedQuantity((stock.getReservedQuantity() != null ? stock.getReservedQuantity() : 0) + request.getQuantity());
         stockRepository.save(stock);
+        stockChanged(stock);
 
         // Create reservation record
         String reservationId = "RES-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
         StockReservation reservation = StockReservation.builder()
                 .reservationId(reservationId)
+                .idempotencyKey(idempotencyKey)
                 .sku(request.getSku())
                 .orderId(request.getOrderId())
                 .quantity(request.getQuantity())
@@ -157,6 +231,176 @@ public class StockService {
                 .build();
     }
 
+    /**
+     * Reserves every line of an order in one transaction.
+     * All stock rows for the requested SKUs are locked up front in a fixed
+     * (sku, warehouse) order, allocations are planned in memory and only then
+     * applied, so ALL_OR_NOTHING can reject the order without touching any row.
+     */
+    public BatchReservationDto reserveStockBatch(BatchReservationDto request) {
+        List<BatchReservationDto.ReservationLine> lines = request.getLines() != null
+                ? request.getLines() : List.of();
+        boolean allOrNothing = !"BEST_EFFORT".equalsIgnoreCase(request.getMode());
+        String mode = allOrNothing ? "ALL_OR_NOTHING" : "BEST_EFFORT";
+        logger.info("Reserving stock batch for Order: {}, Lines: {}, Mode: {}",
+                request.getOrderId(), lines.size(), mode);
+
+        String batchId = "RESB-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        // REST validates the mode up front (400); this covers GraphQL, which has no bean validation
+        if (request.getMode() != null && !request.getMode().equalsIgnoreCase(mode)) {
+            return rejectedBatch(batchId, request, mode, lines.size(), "Unknown mode: " + request.getMode());
+        }
+        if (lines.isEmpty()) {
+            return rejectedBatch(batchId, request, mode, 0, "No reservation lines supplied");
+        }
+
+        Set<String> skus = lines.stream()
+                .map(BatchReservationDto.ReservationLine::getSku)
+                .collect(Collectors.toCollection(TreeSet::new));
+        Map<String, Product> products = productRepository.findBySkuIn(skus).stream()
+                .collect(Collectors.toMap(Product::getSku, p -> p));
+        ReservationLockEvent lockEvent = new ReservationLockEvent();
+        lockEvent.begin();
+        List<Stock> lockedStocks = stockRepository.findBySkuInForUpdate(skus);
+        lockEvent.end();
+        if (lockEvent.shouldCommit()) {
+            lockEvent.orderId = request.getOrderId();
+            lockEvent.skuCount = skus.size();
+            lockEvent.rowsLocked = lockedStocks.size();
+            lockEvent.commit();
+        }
+        Map<String, List<Stock>> stocksBySku = lockedStocks.stream()
+                .collect(Collectors.groupingBy(Stock::getSku, LinkedHashMap::new, Collectors.toList()));
+
+        // Plan allocations without mutating the locked entities (identity keys: Stock is a mutable @Data entity)
+        Map<Stock, Integer> allocated = new IdentityHashMap<>();
+        List<Stock> lineStocks = new ArrayList<>(lines.size());
+        List<String> lineFailures = new ArrayList<>(lines.size());
+        for (BatchReservationDto.ReservationLine line : lines) {
+            Product product = products.get(line.getSku());
+            Stock stock = null;
+            String failure = null;
+            if (product == null || !Boolean.TRUE.equals(product.getIsActive())) {
+                failure = "Product not found or inactive";
+            } else {
+                stock = stocksBySku.getOrDefault(line.getSku(), List.of()).stream()
+                        .filter(s -> line.getWarehouseCode() == null
+                                || s.getWarehouseCode().equals(line.getWarehouseCode()))
+                        .filter(s -> availableAfter(s, allocated) >= line.getQuantity())
+                        .findFirst()
+                        .orElse(null);
+                if (stock == null) {
+                    failure = "Insufficient stock available. Requested: " + line.getQuantity();
+                }
+            }
+            if (stock != null) {
+                allocated.merge(stock, line.getQuantity(), Integer::sum);
+            }
+            lineStocks.add(stock);
+            lineFailures.add(failure);
+        }
+
+        long failureCount = lineFailures.stream().filter(Objects::nonNull).count();
+        boolean rejected = allOrNothing && failureCount > 0;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<StockReservation> toSave = new ArrayList<>();
+        List<StockReservationDto> results = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            BatchReservationDto.ReservationLine line = lines.get(i);
+            Stock stock = lineStocks.get(i);
+            String failure = lineFailures.get(i);
+
+            if (failure != null || rejected) {
+                results.add(StockReservationDto.builder()
+                        .sku(line.getSku())
+                        .orderId(request.getOrderId())
+                        .quantity(line.getQuantity())
+                        .warehouseCode(line.getWarehouseCode())
+                        .status(failure != null ? "FAILED" : "NOT_RESERVED")
+                        .success(false)
+                        .message(failure != null ? failure
+                                : "Not reserved: order rejected in ALL_OR_NOTHING mode")
+                        .build());
+                continue;
+            }
+
+            String reservationId = "RES-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            StockReservation reservation = StockReservation.builder()
+                    .reservationId(reservationId)
+                    .sku(line.getSku())
+                    .orderId(request.getOrderId())
+                    .quantity(line.getQuantity())
+                    .warehouseCode(stock.getWarehouseCode())
+                    .customerId(request.getCustomerId())
+                    .status("CONFIRMED")
+                    .notes(line.getNotes())
+                    .expiresAt(now.plusHours(24))
+                    .confirmedAt(now)
+                    .build();
+            toSave.add(reservation);
+
+            results.add(StockReservationDto.builder()
+                    .reservationId(reservationId)
+                    .sku(line.getSku())
+                    .orderId(request.getOrderId())
+                    .quantity(line.getQuantity())
+                    .warehouseCode(stock.getWarehouseCode())
+                    .customerId(request.getCustomerId())
+                    .status("CONFIRMED")
+                    .reservedAt(now)
+                    .expiresAt(reservation.getExpiresAt())
+                    .success(true)
+                    .message("Stock reserved successfully")
+                    .build());
+        }
+
+        if (!toSave.isEmpty()) {
+            allocated.forEach((stock, quantity) -> stock.setReservedQuantity(
+                    (stock.getReservedQuantity() != null ? stock.getReservedQuantity() : 0) + quantity));
+            stockRepository.saveAll(allocated.keySet());
+            allocated.keySet().forEach(this::stockChanged);
+            reservationRepository.saveAll(toSave);
+        }
+
+        int successCount = toSave.size();
+        String status = successCount == lines.size() ? "CONFIRMED" : successCount > 0 ? "PARTIAL" : "FAILED";
+        return BatchReservationDto.builder()
+                .batchId(batchId)
+                .orderId(request.getOrderId())
+                .customerId(request.getCustomerId())
+                .mode(mode)
+                .totalLines(lines.size())
+                .successCount(successCount)
+                .failureCount(lines.size() - successCount)
+                .status(status)
+                .reservations(results)
+                .success(successCount == lines.size())
+                .message(String.format("Batch reservation %s. Reserved: %d, Failed: %d",
+                        status.toLowerCase(), successCount, lines.size() - successCount))
+                .build();
+    }
+
+    private static BatchReservationDto rejectedBatch(String batchId, BatchReservationDto request, String mode,
+                                                     int totalLines, String message) {
+        return BatchReservationDto.builder()
+                .batchId(batchId)
+                .orderId(request.getOrderId())
+                .mode(mode)
+                .totalLines(totalLines)
+                .successCount(0)
+                .failureCount(totalLines)
+                .status("FAILED")
+                .success(false)
+                .message(message)
+                .build();
+    }
+
+    private int availableAfter(Stock stock, Map<Stock, Integer> allocated) {
+        int reserved = stock.getReservedQuantity() != null ? stock.getReservedQuantity() : 0;
+        return stock.getQuantity() - reserved - allocated.getOrDefault(stock, 0);
+    }
+
     // ==========================================================================
     // Use Case 3: Update stock threshold
     // ==========================================================================
@@ -181,6 +425,7 @@ public class StockService {
                 stock.setReorderQuantity(request.getReorderQuantity());
                 stock.setAutoReorder(request.getAutoReorder());
                 stockRepository.save(stock);
+                stockChanged(stock);
             }
         }
 
@@ -259,6 +504,7 @@ public class StockService {
 
                 stock.setQuantity(newQuantity);
                 stockRepository.save(stock);
+                stockChanged(stock);
 
                 results.add(BulkStockUpdateDto.UpdateResult.builder()
                         .sku(item.getSku())
@@ -395,6 +641,65 @@ public class StockService {
                 .build();
     }
 
+    // ==========================================================================
+    // GraphQL field resolvers: Product -> stock -> warehouse, each loaded in one query
+    // ==========================================================================
+    @Transactional(readOnly = true)
+    public Optional<Product> findProduct(String sku) {
+        return productRepository.findBySku(sku);
+    }
+
+    /**
+     * One entry per requested SKU, in request order, from a single IN query;
+     * null where the SKU is unknown or the product is inactive.
+     */
+    @Transactional(readOnly = true)
+    public List<Product> findProducts(List<String> skus) {
+        Map<String, Product> products = productRepository.findBySkuIn(new LinkedHashSet<>(skus)).stream()
+                .filter(product -> Boolean.TRUE.equals(product.getIsActive()))
+                .collect(Collectors.toMap(Product::getSku, product -> product));
+        return skus.stream().map(products::get).toList();
+    }
+
+    /**
+     * Stock summaries for a batch of SKUs from a single IN query; SKUs without
+     * stock rows get a zero summary with status UNKNOWN.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, ProductStockDto> getStockSummaries(Collection<String> skus) {
+        Map<String, List<Stock>> rowsBySku = stockRepository.findBySkuInOrderBySkuAscWarehouseCodeAsc(skus).stream()
+                .collect(Collectors.groupingBy(Stock::getSku, LinkedHashMap::new, Collectors.toList()));
+
+        Map<String, ProductStockDto> summaries = new LinkedHashMap<>();
+        for (String sku : skus) {
+            List<Stock> rows = rowsBySku.getOrDefault(sku, List.of());
+            Stock primary = rows.isEmpty() ? null : rows.get(0);
+            int stockCount = rows.stream().mapToInt(s -> s.getQuantity() != null ? s.getQuantity() : 0).sum();
+            int reservedCount = rows.stream()
+                    .mapToInt(s -> s.getReservedQuantity() != null ? s.getReservedQuantity() : 0).sum();
+
+            summaries.put(sku, ProductStockDto.builder()
+                    .sku(sku)
+                    .stockCount(stockCount)
+                    .reservedCount(reservedCount)
+                    .availableCount(stockCount - reservedCount)
+                    .stockStatus(primary != null ? primary.getStockStatus() : "UNKNOWN")
+                    .warehouseCode(primary != null ? primary.getWarehouseCode() : null)
+                    .aisle(primary != null ? primary.getAisle() : null)
+                    .shelf(primary != null ? primary.getShelf() : null)
+                    .bin(primary != null ? primary.getBin() : null)
+                    .lastStockUpdate(primary != null ? primary.getUpdatedAt() : null)
+                    .build());
+        }
+        return summaries;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Warehouse> getWarehouses(Collection<String> warehouseCodes) {
+        return warehouseRepository.findByWarehouseCodeIn(warehouseCodes).stream()
+                .collect(Collectors.toMap(Warehouse::getWarehouseCode, w -> w));
+    }
+
     // ==========================================================================
     // Use Case 7: Register damaged goods return (GraphQL)
     // ==========================================================================
@@ -424,6 +729,7 @@ public class StockService {
             if (stock != null) {
                 stock.setQuantity(Math.max(0, stock.getQuantity() - request.getQuantity()));
                 stockRepository.save(stock);
+                stockChanged(stock);
             }
         }
 
@@ -576,4 +882,11 @@ public class StockService {
                         .build())
                 .build();
     }
+
+    /**
+     * Announces a saved stock row; subscribers see it once the transaction commits.
+     */
+    private void stockChanged(Stock stock) {
+        eventPublisher.publishEvent(StockChangedEvent.of(stock));
+    }
 }
@@ -0,0 +1,196 @@
+package com.enterprise.stock.stream;
+
+import com.enterprise.stock.dto.StockChangeDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * In-process stream of committed stock changes, feeding GraphQL subscriptions
+ *
+ * Writers only record the change: the latest change per SKU and warehouse is kept
+ * in a map and the row is queued for dispatch, so a StockService transaction never
+ * waits on subscribers, and a burst on one row collapses into its latest value.
+ * A single dispatcher thread fans changes out to the subscribers of the change's
+ * SKU and of its warehouse, looked up by key rather than tested one by one.
+ *
+ * Each subscriber conflates the same way: while it is not ready for more, only
+ * the latest change per stock row is kept for it, so a slow subscriber costs at
+ * most one pending change per row and never holds up the dispatcher.
+ *
+ * Metrics: stock.changes.published, stock.changes.conflated, stock.changes.subscribers
+ */
+@Component
+public class StockChangeStream {
+
+    private final Map<String, StockChangeDto> latest = new ConcurrentHashMap<>();
+    private final Queue<String> dirty = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger dispatchWip = new AtomicInteger();
+    private final Map<String, Set<ConflatingSubscriber>> bySku = new ConcurrentHashMap<>();
+    private final Map<String, Set<ConflatingSubscriber>> byWarehouse = new ConcurrentHashMap<>();
+    private final Scheduler dispatcher = Schedulers.newSingle("stock-changes", true);
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter published;
+    private final Counter conflated;
+
+    public StockChangeStream(MeterRegistry meterRegistry) {
+        this.published = Counter.builder("stock.changes.published")
+                .description("Committed stock changes handed to subscriptions")
+                .register(meterRegistry);
+        this.conflated = Counter.builder("stock.changes.conflated")
+                .description("Stock changes superseded by a newer change before dispatch")
+                .register(meterRegistry);
+        meterRegistry.gauge("stock.changes.subscribers", subscribers);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        publish(toChange(event));
+    }
+
+    public void publish(StockChangeDto change) {
+        published.increment();
+        String key = key(change);
+        if (latest.put(key, change) != null) {
+            conflated.increment();
+            return;
+        }
+        dirty.offer(key);
+        if (dispatchWip.getAndIncrement() == 0) {
+            dispatcher.schedule(this::dispatch);
+        }
+    }
+
+    public Flux<StockChangeDto> changesForSku(String sku) {
+        return subscribe(bySku, sku);
+    }
+
+    public Flux<StockChangeDto> changesForWarehouse(String warehouseCode) {
+        return subscribe(byWarehouse, warehouseCode);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Stream.concat(bySku.values().stream(), byWarehouse.values().stream())
+                .flatMap(Set::stream)
+                .forEach(subscriber -> subscriber.sink.complete());
+        dispatcher.dispose();
+    }
+
+    private void dispatch() {
+        do {
+            String key;
+            while ((key = dirty.poll()) != null) {
+                // A change recorded after this remove re-queues the row
+                StockChangeDto change = latest.remove(key);
+                if (change != null) {
+                    deliver(bySku, change.getSku(), change);
+                    deliver(byWarehouse, change.getWarehouseCode(), change);
+                }
+            }
+        } while (dispatchWip.decrementAndGet() != 0);
+    }
+
+    private static void deliver(Map<String, Set<ConflatingSubscriber>> index, String key, StockChangeDto change) {
+        Set<ConflatingSubscriber> targets = key != null ? index.get(key) : null;
+        if (targets != null) {
+            targets.forEach(subscriber -> subscriber.offer(change));
+        }
+    }
+
+    private Flux<StockChangeDto> subscribe(Map<String, Set<ConflatingSubscriber>> index, String key) {
+        return Flux.<StockChangeDto>create(sink -> {
+                    ConflatingSubscriber subscriber = new ConflatingSubscriber(sink);
+                    // compute, not computeIfAbsent + add: the last unsubscriber may be removing the set
+                    index.compute(key, (k, registered) -> {
+                        Set<ConflatingSubscriber> updated = registered != null ? registered : ConcurrentHashMap.newKeySet();
+                        updated.add(subscriber);
+                        return updated;
+                    });
+                    sink.onDispose(() -> index.computeIfPresent(key, (k, registered) -> {
+                        registered.remove(subscriber);
+                        return registered.isEmpty() ? null : registered;
+                    }));
+                })
+                .doOnSubscribe(s -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+    }
+
+    private static String key(StockChangeDto change) {
+        return change.getSku() + "/" + change.getWarehouseCode();
+    }
+
+    private static StockChangeDto toChange(StockChangedEvent event) {
+        return StockChangeDto.builder()
+                .sku(event.sku())
+                .warehouseCode(event.warehouseCode())
+                .quantity(event.quantity())
+                .reservedQuantity(event.reservedQuantity())
+                .availableQuantity(event.quantity() - event.reservedQuantity())
+                .stockStatus(event.stockStatus())
+                .changedAt(event.changedAt())
+                .build();
+    }
+
+    /**
+     * Takes every change for its key from the dispatcher without backpressure and
+     * hands the latest per stock row to the subscriber as it requests more.
+     */
+    private static class ConflatingSubscriber {
+
+        private final FluxSink<StockChangeDto> sink;
+        private final Map<String, StockChangeDto> pending = new LinkedHashMap<>();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        ConflatingSubscriber(FluxSink<StockChangeDto> sink) {
+            this.sink = sink;
+            sink.onRequest(n -> drain());
+        }
+
+        private void offer(StockChangeDto change) {
+            String key = key(change);
+            synchronized (pending) {
+                // Re-inserting moves a row to the back, so rows are delivered in order of last change
+                pending.remove(key);
+                pending.put(key, change);
+            }
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (sink.requestedFromDownstream() > 0 && !sink.isCancelled()) {
+                    StockChangeDto next;
+                    synchronized (pending) {
+                        Iterator<StockChangeDto> it = pending.values().iterator();
+                        if (!it.hasNext()) {
+                            break;
+                        }
+                        next = it.next();
+                        it.remove();
+                    }
+                    sink.next(next);
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.enterprise.stock.stream;
+
+import com.enterprise.stock.entity.Stock;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by StockService whenever it saves a stock row; delivered to
+ * {@link StockChangeStream} once the transaction has committed.
+ *
+ * A snapshot of the row as it was saved: the entity itself may change again
+ * (or be detached) before the transaction commits.
+ */
+public record StockChangedEvent(String sku, String warehouseCode, int quantity, int reservedQuantity,
+                                String stockStatus, LocalDateTime changedAt) {
+
+    public static StockChangedEvent of(Stock stock) {
+        return new StockChangedEvent(stock.getSku(), stock.getWarehouseCode(),
+                stock.getQuantity() != null ? stock.getQuantity() : 0,
+                stock.getReservedQuantity() != null ? stock.getReservedQuantity() : 0,
+                stock.getStockStatus(),
+                // updatedAt is only set when the row is flushed
+                LocalDateTime.now());
+    }
+}
@@ -0,0 +1,130 @@
+package com.enterprise.stock.graphql;
+
+import graphql.ExecutionInput;
+import graphql.ErrorType;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.DataFetcher;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLSchema;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryCostInstrumentationTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private GraphQL graphQL;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        graphQL = GraphQL.newGraphQL(QueryDocumentCacheTest.stockSchema())
+                .instrumentation(new QueryCostInstrumentation(10, 1000, 10000, 20, 2, meterRegistry))
+                .build();
+    }
+
+    @Test
+    void operationNamesPastTheLimitAreTaggedOther() {
+        for (String name : new String[] {"First", "Second", "Third", "Fourth", "First"}) {
+            graphQL.execute("query " + name + " { stockAvailability(sku: \"SKU-1\") { availableQuantity } }");
+        }
+        graphQL.execute("{ stockAvailability(sku: \"SKU-1\") { availableQuantity } }");
+
+        assertThat(meterRegistry.get("stock.graphql.query.cost").summaries())
+                .extracting(summary -> summary.getId().getTag("operation"))
+                .containsExactlyInAnyOrder("First", "Second", "other", "anonymous");
+        assertThat(summary("First").count()).isEqualTo(2);
+        assertThat(summary("other").count()).isEqualTo(2);
+    }
+
+    @Test
+    void listFieldsMultiplyByTheirArgumentOrTheDefaultSize() {
+        graphQL.execute("query Products { products(skus: [\"A\", \"B\", \"C\"]) { sku stock { warehouse { location } } } }");
+        graphQL.execute("mutation Batch { reserveStockBatch(input: {orderId: \"ORD-1\", lines: []}) { reservations { sku } } }");
+
+        // 3 products, 3 stocks, 3 warehouses
+        assertThat(summary("Products").totalAmount()).isEqualTo(9);
+        // the batch, then default-list-size reservations
+        assertThat(summary("Batch").totalAmount()).isEqualTo(21);
+    }
+
+    @Test
+    void tooDeepIsRejected() throws IOException {
+        GraphQL shallow = GraphQL.newGraphQL(QueryDocumentCacheTest.stockSchema())
+                .instrumentation(new QueryCostInstrumentation(3, 1000, 10000, 20, 2, meterRegistry))
+                .build();
+
+        ExecutionResult result = shallow.execute("{ product(sku: \"A\") { stock { warehouse { location } } } }");
+
+        assertThat(result.getErrors()).singleElement()
+                .satisfies(error -> assertThat(error.getMessage()).contains("Query depth 4 exceeds the maximum of 3"));
+        assertThat(rejected("depth")).isEqualTo(1);
+    }
+
+    @Test
+    void tooCostlyIsRejectedCountingListMultipliers() throws IOException {
+        GraphQL cheap = GraphQL.newGraphQL(QueryDocumentCacheTest.stockSchema())
+                .instrumentation(new QueryCostInstrumentation(10, 8, 10000, 20, 2, meterRegistry))
+                .build();
+
+        ExecutionResult allowed = cheap.execute("{ products(skus: [\"A\", \"B\"]) { stock { warehouse { location } } } }");
+        ExecutionResult rejected = cheap.execute("{ products(skus: [\"A\", \"B\", \"C\"]) { stock { warehouse { location } } } }");
+
+        assertThat(admitted(allowed)).isTrue();
+        assertThat(rejected.getErrors()).singleElement()
+                .satisfies(error -> assertThat(error.getMessage()).contains("Query cost 9 exceeds the maximum of 8"));
+        assertThat(rejected("cost")).isEqualTo(1);
+    }
+
+    @Test
+    void queryThatDoesNotFitTheInFlightBudgetIsBusyUntilPermitsAreReleased() throws IOException {
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        GraphQLSchema schema = QueryDocumentCacheTest.stockSchema();
+        GraphQLSchema blocking = schema.transform(builder -> builder.codeRegistry(schema.getCodeRegistry()
+                .transform(code -> code.dataFetcher(FieldCoordinates.coordinates("Query", "products"),
+                        (DataFetcher<?>) env -> pending))));
+        GraphQL limited = GraphQL.newGraphQL(blocking)
+                .instrumentation(new QueryCostInstrumentation(10, 1000, 10, 20, 2, meterRegistry))
+                .build();
+
+        // Cost 10 holds the whole in-flight budget until its fetcher completes
+        CompletableFuture<ExecutionResult> inFlight = limited.executeAsync(ExecutionInput.newExecutionInput(
+                "{ products(skus: [\"A\", \"B\", \"C\", \"D\", \"E\", \"F\", \"G\", \"H\", \"I\", \"J\"]) { sku } }"));
+        ExecutionResult busy = limited.execute("{ product(sku: \"A\") { sku } }");
+
+        assertThat(inFlight).isNotDone();
+        assertThat(busy.getErrors()).singleElement()
+                .satisfies(error -> assertThat(error.getMessage()).contains("Server is busy"));
+        assertThat(rejected("busy")).isEqualTo(1);
+
+        pending.complete(List.of());
+        assertThat(admitted(inFlight.join())).isTrue();
+        for (int i = 0; i < 20; i++) {
+            assertThat(admitted(limited.execute("{ product(sku: \"A\") { sku } }"))).isTrue();
+        }
+        assertThat(rejected("busy")).isEqualTo(1);
+    }
+
+    /**
+     * The unexecutable schema answers nulls, so admitted queries may still carry null-field errors.
+     */
+    private static boolean admitted(ExecutionResult result) {
+        return result.getErrors().stream().noneMatch(error -> error.getErrorType() == ErrorType.ExecutionAborted);
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("stock.graphql.query.rejected").tag("reason", reason).counter().count();
+    }
+
+    private DistributionSummary summary(String operation) {
+        return meterRegistry.get("stock.graphql.query.cost").tag("operation", operation).summary();
+    }
+}
@@ -0,0 +1,84 @@
+package com.enterprise.stock.graphql;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.execution.preparsed.NoOpPreparsedDocumentProvider;
+import graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport;
+import graphql.schema.GraphQLSchema;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a repeated GraphQL request with and without {@link QueryDocumentCache}
+ *
+ * Executes the flat productDetails query (less the non-null sku, which
+ * would fail) against an unexecutable copy of the stock schema, so the numbers
+ * are parse + validate + (trivial) execution. Run with:
+ * java -cp target/test-classes:target/classes:&lt;test classpath&gt; org.openjdk.jmh.Main QueryDocumentCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryDocumentCacheBenchmark {
+
+    static final String PRODUCT_DETAILS_QUERY = """
+            query GetProductDetails($sku: String!) {
+                productDetails(sku: $sku) {
+                    productName description category brand unitPrice currency
+                    unitOfMeasure weight dimensions stockCount reservedCount availableCount
+                    stockStatus warehouseCode warehouseName warehouseLocation warehouseRegion
+                    aisle shelf bin lastStockUpdate lastPriceUpdate isActive
+                }
+            }
+            """;
+
+    private GraphQL uncached;
+    private GraphQL cached;
+    private ExecutionInput input;
+
+    @Setup
+    public void setUp() throws Exception {
+        GraphQLSchema schema = QueryDocumentCacheTest.stockSchema();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        uncached = GraphQL.newGraphQL(schema)
+                .preparsedDocumentProvider(NoOpPreparsedDocumentProvider.INSTANCE)
+                .build();
+        cached = GraphQL.newGraphQL(schema)
+                .preparsedDocumentProvider(new QueryDocumentCache(
+                        new ApolloPersistedQuerySupport(new PersistedQueryDocumentCache(100, meterRegistry)),
+                        100, meterRegistry))
+                .build();
+        input = ExecutionInput.newExecutionInput(PRODUCT_DETAILS_QUERY)
+                .variables(Map.of("sku", "SKU-001"))
+                .build();
+        if (!cached.execute(input).getErrors().isEmpty()) {
+            throw new IllegalStateException("Benchmark query does not validate: " + cached.execute(input).getErrors());
+        }
+    }
+
+    @Benchmark
+    public ExecutionResult parseAndValidateEveryRequest() {
+        return uncached.execute(input);
+    }
+
+    @Benchmark
+    public ExecutionResult cachedDocument() {
+        return cached.execute(input);
+    }
+}
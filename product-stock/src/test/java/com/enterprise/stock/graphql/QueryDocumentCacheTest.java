@@ -0,0 +1,127 @@
+package com.enterprise.stock.graphql;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationValidationParameters;
+import graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport;
+import graphql.language.Document;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import graphql.validation.ValidationError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryDocumentCacheTest {
+
+    static final String QUERY =
+            "query Availability($sku: String!) { stockAvailability(sku: $sku) { availableQuantity isAvailable } }";
+
+    private final AtomicInteger parses = new AtomicInteger();
+    private final AtomicInteger validations = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private GraphQL graphQL;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        QueryDocumentCache documents = new QueryDocumentCache(
+                new ApolloPersistedQuerySupport(new PersistedQueryDocumentCache(100, meterRegistry)),
+                100, meterRegistry);
+        graphQL = GraphQL.newGraphQL(stockSchema())
+                .preparsedDocumentProvider(documents)
+                .instrumentation(new CountingInstrumentation())
+                .build();
+    }
+
+    @Test
+    void repeatedQuerySkipsParseAndValidate() {
+        ExecutionResult first = execute(ExecutionInput.newExecutionInput(QUERY).variables(Map.of("sku", "SKU-1")));
+        ExecutionResult second = execute(ExecutionInput.newExecutionInput(QUERY).variables(Map.of("sku", "SKU-2")));
+
+        assertThat(first.getErrors()).isEmpty();
+        assertThat(second.getErrors()).isEmpty();
+        assertThat(parses).hasValue(1);
+        assertThat(validations).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "stock.graphql.documents")
+                .tag("result", "hit").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidDocumentIsNotCached() {
+        String invalid = "{ stockAvailability(sku: \"SKU-1\") { noSuchField } }";
+
+        assertThat(execute(ExecutionInput.newExecutionInput(invalid)).getErrors()).isNotEmpty();
+        assertThat(execute(ExecutionInput.newExecutionInput(invalid)).getErrors()).isNotEmpty();
+        assertThat(validations).hasValue(2);
+    }
+
+    @Test
+    void persistedQueryIsServedByHashWithoutParsing() throws Exception {
+        Map<String, Object> persistedQuery = Map.of("persistedQuery",
+                Map.of("version", 1, "sha256Hash", sha256(QUERY)));
+
+        // Registration: full text plus hash
+        assertThat(execute(ExecutionInput.newExecutionInput(QUERY)
+                .variables(Map.of("sku", "SKU-1"))
+                .extensions(persistedQuery)).getErrors()).isEmpty();
+        // Hash only (graphql-java's APQ convention is a placeholder query text)
+        assertThat(execute(ExecutionInput.newExecutionInput(ApolloPersistedQuerySupport.PERSISTED_QUERY_MARKER)
+                .variables(Map.of("sku", "SKU-2"))
+                .extensions(persistedQuery)).getErrors()).isEmpty();
+
+        assertThat(parses).hasValue(1);
+        assertThat(validations).hasValue(1);
+    }
+
+    private ExecutionResult execute(ExecutionInput.Builder input) {
+        return graphQL.execute(input.build());
+    }
+
+    static GraphQLSchema stockSchema() throws IOException {
+        try (InputStream schema = new ClassPathResource("graphql/schema.graphqls").getInputStream()) {
+            return UnExecutableSchemaGenerator.makeUnExecutableSchema(new SchemaParser().parse(schema));
+        }
+    }
+
+    static String sha256(String text) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private class CountingInstrumentation extends SimplePerformantInstrumentation {
+
+        @Override
+        public InstrumentationContext<Document> beginParse(InstrumentationExecutionParameters parameters,
+                                                           InstrumentationState state) {
+            parses.incrementAndGet();
+            return SimpleInstrumentationContext.noOp();
+        }
+
+        @Override
+        public InstrumentationContext<List<ValidationError>> beginValidation(
+                InstrumentationValidationParameters parameters, InstrumentationState state) {
+            validations.incrementAndGet();
+            return SimpleInstrumentationContext.noOp();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.enterprise.stock.logging;
+
+import com.enterprise.logging.JsonLogEncoder;
+import com.enterprise.stock.dto.StockReservationDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding one request log event with {@link JsonLogEncoder} versus the
+ * map round trip LoggingAspect used before it (payload serialized, parsed back
+ * into a Map and serialized again inside a Map of the event's fields).
+ *
+ * The payload is a reservation request with a handful of headers. Add -prof gc
+ * for allocation per event (gc.alloc.rate.norm). Run with:
+ * java -cp target/test-classes:target/classes:&lt;test classpath&gt; org.openjdk.jmh.Main JsonLogEncoderBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonLogEncoderBenchmark {
+
+    private static final Set<String> SENSITIVE_HEADERS = Set.of(
+            "authorization", "x-api-key", "api-key", "cookie", "set-cookie");
+
+    private ObjectMapper objectMapper;
+    private JsonLogEncoder encoder;
+    private MockHttpServletRequest request;
+    private StockReservationDto payload;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        encoder = new JsonLogEncoder(objectMapper);
+        request = new MockHttpServletRequest("POST", "/api/v1/stock/reserve");
+        request.addHeader("Content-Type", "application/json");
+        request.addHeader("Accept", "application/json");
+        request.addHeader("Authorization", "Bearer token");
+        request.addHeader("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        payload = StockReservationDto.builder()
+                .sku("SKU-001")
+                .orderId("ORD-20240101-0001")
+                .quantity(3)
+                .warehouseCode("WH-EAST")
+                .customerId("CUST-42")
+                .expiresAt(LocalDateTime.of(2024, 1, 1, 12, 0))
+                .notes("Gift wrap")
+                .build();
+    }
+
+    @Benchmark
+    public String mapRoundTrip() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        Enumeration<String> headerNames = request.getHeaderNames();
+        while (headerNames.hasMoreElements()) {
+            String headerName = headerNames.nextElement();
+            headers.put(headerName, SENSITIVE_HEADERS.contains(headerName.toLowerCase())
+                    ? "***MASKED***" : request.getHeader(headerName));
+        }
+        Map<String, Object> requestPayload = new LinkedHashMap<>();
+        String json = objectMapper.writeValueAsString(payload);
+        requestPayload.put("request", json.length() > 10000
+                ? json.substring(0, 10000) + "... [TRUNCATED]" : objectMapper.readValue(json, Object.class));
+        return objectMapper.writeValueAsString(Map.of(
+                "type", "REQUEST",
+                "traceId", "4bf92f3577b34da6a3ce929d0e0e4736",
+                "timestamp", "2024-01-01T12:00:00Z",
+                "http", Map.of(
+                        "method", request.getMethod(),
+                        "url", request.getRequestURL().toString(),
+                        "remoteAddr", request.getRemoteAddr()),
+                "headers", headers,
+                "controller", "StockRestController.reserveStock",
+                "requestPayload", requestPayload));
+    }
+
+    @Benchmark
+    public String streamingEncoder() throws IOException {
+        return encoder.encode(event -> {
+            event.field("type", "REQUEST")
+                    .field("traceId", "4bf92f3577b34da6a3ce929d0e0e4736")
+                    .field("timestamp", "2024-01-01T12:00:00Z");
+            event.generator().writeObjectFieldStart("http");
+            event.field("method", request.getMethod())
+                    .field("url", request.getRequestURL().toString())
+                    .field("remoteAddr", request.getRemoteAddr());
+            event.generator().writeEndObject();
+            event.headers("headers", request)
+                    .field("controller", "StockRestController.reserveStock");
+            event.generator().writeObjectFieldStart("requestPayload");
+            event.payload("request", payload, 10000);
+            event.generator().writeEndObject();
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package com.enterprise.stock.persistence;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersistenceStatisticsFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void serverObservationCarriesTheRequestsPersistenceWork() throws Exception {
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        AtomicReference<Observation.Context> stopped = new AtomicReference<>();
+        observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                stopped.set(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+                PersistenceStatistics statistics = PersistenceStatistics.current();
+                statistics.useCase("checkAvailability");
+                statistics.statementExecuted(0);
+                statistics.statementExecuted(0);
+                statistics.entityLoaded();
+            }
+        };
+        new MockFilterChain(servlet, new ServerHttpObservationFilter(observationRegistry),
+                new PersistenceStatisticsFilter(meterRegistry))
+                .doFilter(new MockHttpServletRequest("GET", "/api/v1/stock/SKU-1"), new MockHttpServletResponse());
+
+        assertThat(stopped.get().getHighCardinalityKeyValues())
+                .contains(KeyValue.of("db.statements", "2"), KeyValue.of("db.entities_loaded", "1"));
+        assertThat(meterRegistry.get("stock.persistence.statements").tag("endpoint", "checkAvailability")
+                .summary().totalAmount()).isEqualTo(2);
+    }
+}
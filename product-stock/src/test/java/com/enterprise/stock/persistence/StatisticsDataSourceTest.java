@@ -0,0 +1,62 @@
+package com.enterprise.stock.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StatisticsDataSourceTest {
+
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private StatisticsDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement("UPDATE stock SET reserved_quantity = ?")).thenReturn(statement);
+        dataSource = new StatisticsDataSource(target);
+    }
+
+    @AfterEach
+    void tearDown() {
+        PersistenceStatistics.close();
+    }
+
+    @Test
+    void batchCountsAsOneRoundTripWithItsSizeAndRows() throws SQLException {
+        PersistenceStatistics statistics = PersistenceStatistics.open();
+        when(statement.executeBatch()).thenReturn(new int[] {1, 1, Statement.SUCCESS_NO_INFO}, new int[] {2, 0});
+        when(statement.executeUpdate()).thenReturn(4);
+
+        try (Connection counted = dataSource.getConnection()) {
+            PreparedStatement update = counted.prepareStatement("UPDATE stock SET reserved_quantity = ?");
+            update.executeBatch();
+            update.executeBatch();
+            update.executeUpdate();
+        }
+
+        assertThat(statistics.getStatements()).isEqualTo(3);
+        assertThat(statistics.getBatches()).isEqualTo(2);
+        assertThat(statistics.getBatchedStatements()).isEqualTo(5);
+        assertThat(statistics.getMaxBatchSize()).isEqualTo(3);
+        // SUCCESS_NO_INFO counts as one row
+        assertThat(statistics.getRowsWritten()).isEqualTo(9);
+        assertThat(statistics.getConnectionAcquisitions()).isEqualTo(1);
+    }
+
+    @Test
+    void connectionOutsideARequestIsNotWrapped() throws SQLException {
+        assertThat(dataSource.getConnection()).isSameAs(connection);
+    }
+}
@@ -0,0 +1,142 @@
+package com.enterprise.stock.service;
+
+import com.enterprise.stock.dto.BatchReservationDto;
+import com.enterprise.stock.dto.StockReservationDto;
+import com.enterprise.stock.entity.Product;
+import com.enterprise.stock.entity.Stock;
+import com.enterprise.stock.entity.StockReservation;
+import com.enterprise.stock.repository.DamagedReturnRepository;
+import com.enterprise.stock.repository.ProductRepository;
+import com.enterprise.stock.repository.StockRepository;
+import com.enterprise.stock.repository.StockReservationRepository;
+import com.enterprise.stock.repository.WarehouseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class StockServiceTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final StockRepository stockRepository = mock(StockRepository.class);
+    private final WarehouseRepository warehouseRepository = mock(WarehouseRepository.class);
+    private final StockReservationRepository reservationRepository = mock(StockReservationRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private StockService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new StockService(productRepository, stockRepository, warehouseRepository,
+                reservationRepository, mock(DamagedReturnRepository.class), eventPublisher);
+    }
+
+    @Test
+    void productsAnswerEachRequestedSkuInRequestOrder() {
+        when(productRepository.findBySkuIn(any())).thenReturn(List.of(
+                product("SKU-1", true), product("SKU-2", false), product("SKU-3", true)));
+
+        List<Product> products = service.findProducts(List.of("SKU-3", "SKU-9", "SKU-2", "SKU-1", "SKU-3"));
+
+        assertThat(products).hasSize(5);
+        assertThat(products.get(0).getSku()).isEqualTo("SKU-3");
+        assertThat(products.get(1)).as("unknown SKU").isNull();
+        assertThat(products.get(2)).as("inactive product").isNull();
+        assertThat(products.get(3).getSku()).isEqualTo("SKU-1");
+        assertThat(products.get(4).getSku()).isEqualTo("SKU-3");
+    }
+
+    @Test
+    void batchLocksEveryRowUpFrontInSkuOrder() {
+        givenStock(stock("SKU-A", 10), stock("SKU-B", 10), stock("SKU-C", 10));
+
+        service.reserveStockBatch(batch(null, line("SKU-C", 1), line("SKU-A", 1), line("SKU-B", 1), line("SKU-A", 1)));
+
+        // One locking query, with the SKUs sorted (its ORDER BY fixes the row order within a SKU)
+        ArgumentCaptor<Collection<String>> skus = ArgumentCaptor.captor();
+        verify(stockRepository, times(1)).findBySkuInForUpdate(skus.capture());
+        assertThat(skus.getValue()).containsExactly("SKU-A", "SKU-B", "SKU-C");
+    }
+
+    @Test
+    void allOrNothingRejectsTheWholeOrderWithoutWriting() {
+        Stock a = stock("SKU-A", 10);
+        givenStock(a, stock("SKU-B", 1));
+
+        BatchReservationDto result = service.reserveStockBatch(batch(null, line("SKU-A", 5), line("SKU-B", 2)));
+
+        assertThat(result.getStatus()).isEqualTo("FAILED");
+        assertThat(result.getSuccessCount()).isZero();
+        assertThat(result.getReservations()).extracting(StockReservationDto::getStatus)
+                .containsExactly("NOT_RESERVED", "FAILED");
+        assertThat(a.getReservedQuantity()).isZero();
+        verify(stockRepository, never()).saveAll(any());
+        verify(reservationRepository, never()).saveAll(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void bestEffortReservesWhatFitsAndReportsTheRest() {
+        Stock a = stock("SKU-A", 10);
+        Stock b = stock("SKU-B", 1);
+        givenStock(a, b);
+
+        // The second SKU-A line no longer fits once the first one is planned
+        BatchReservationDto result = service.reserveStockBatch(batch("BEST_EFFORT",
+                line("SKU-A", 6), line("SKU-A", 6), line("SKU-B", 1)));
+
+        assertThat(result.getStatus()).isEqualTo("PARTIAL");
+        assertThat(result.getSuccessCount()).isEqualTo(2);
+        assertThat(result.getFailureCount()).isEqualTo(1);
+        assertThat(result.getReservations()).extracting(StockReservationDto::getSuccess)
+                .containsExactly(true, false, true);
+        assertThat(a.getReservedQuantity()).isEqualTo(6);
+        assertThat(b.getReservedQuantity()).isEqualTo(1);
+        ArgumentCaptor<List<StockReservation>> saved = ArgumentCaptor.captor();
+        verify(reservationRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).hasSize(2);
+    }
+
+    @Test
+    void unknownModeIsRejectedBeforeLocking() {
+        BatchReservationDto result = service.reserveStockBatch(batch("FIRST_COME", line("SKU-A", 1)));
+
+        assertThat(result.getStatus()).isEqualTo("FAILED");
+        assertThat(result.getMessage()).isEqualTo("Unknown mode: FIRST_COME");
+        verifyNoInteractions(stockRepository);
+    }
+
+    private void givenStock(Stock... stocks) {
+        List<Stock> rows = List.of(stocks);
+        when(productRepository.findBySkuIn(any())).thenReturn(rows.stream()
+                .map(row -> product(row.getSku(), true)).distinct().toList());
+        when(stockRepository.findBySkuInForUpdate(any())).thenReturn(rows);
+    }
+
+    private static Stock stock(String sku, int quantity) {
+        return Stock.builder().sku(sku).warehouseCode("WH-1").quantity(quantity).reservedQuantity(0).build();
+    }
+
+    private static BatchReservationDto.ReservationLine line(String sku, int quantity) {
+        return BatchReservationDto.ReservationLine.builder().sku(sku).quantity(quantity).build();
+    }
+
+    private static BatchReservationDto batch(String mode, BatchReservationDto.ReservationLine... lines) {
+        return BatchReservationDto.builder().orderId("ORD-1").mode(mode).lines(List.of(lines)).build();
+    }
+
+    static Product product(String sku, boolean active) {
+        return Product.builder().sku(sku).productName(sku).isActive(active).build();
+    }
+}
@@ -0,0 +1,159 @@
+package com.enterprise.stock.stream;
+
+import com.enterprise.stock.dto.StockChangeDto;
+import com.enterprise.stock.entity.Stock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockChangeStreamTest {
+
+    private static final int SKUS = 8;
+    private static final int UPDATES = 2000;
+
+    private final StockChangeStream stream = new StockChangeStream(new SimpleMeterRegistry());
+    private final List<Disposable> subscriptions = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        subscriptions.forEach(Disposable::dispose);
+        stream.stop();
+    }
+
+    @Test
+    void everySubscriberEndsOnTheLatestValuePerSku() throws InterruptedException {
+        List<Recorder> recorders = new ArrayList<>();
+        for (int i = 0; i < SKUS; i++) {
+            recorders.add(record(stream.changesForSku(sku(i)), false));
+            recorders.add(record(stream.changesForSku(sku(i)), true));
+        }
+        Recorder warehouse = record(stream.changesForWarehouse("WH-1"), true);
+        Recorder otherWarehouse = record(stream.changesForWarehouse("WH-2"), false);
+
+        // One writer per SKU pair, so each SKU's last value is UPDATES
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        for (int w = 0; w < 4; w++) {
+            int writer = w;
+            writers.execute(() -> {
+                for (int quantity = 1; quantity <= UPDATES; quantity++) {
+                    for (int i = writer; i < SKUS; i += 4) {
+                        stream.publish(change(sku(i), quantity));
+                    }
+                }
+            });
+        }
+        writers.shutdown();
+        assertThat(writers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 0; i < SKUS; i++) {
+            String sku = sku(i);
+            for (Recorder recorder : recorders.subList(2 * i, 2 * i + 2)) {
+                awaitTrue(() -> Integer.valueOf(UPDATES).equals(recorder.last.get(sku)));
+                assertThat(recorder.last).containsOnlyKeys(sku);
+            }
+            awaitTrue(() -> Integer.valueOf(UPDATES).equals(warehouse.last.get(sku)));
+        }
+        assertThat(recorders).allSatisfy(recorder -> assertThat(recorder.outOfOrder).isEmpty());
+        assertThat(warehouse.outOfOrder).isEmpty();
+        assertThat(otherWarehouse.last).isEmpty();
+    }
+
+    @Test
+    void noChangeIsLeftBehindBetweenBursts() throws InterruptedException {
+        Recorder slow = record(stream.changesForSku("SKU-0"), true);
+
+        // Each round publishes once the previous value arrived: a lost wakeup stalls the round
+        for (int quantity = 1; quantity <= 500; quantity++) {
+            stream.publish(change("SKU-0", quantity));
+            int expected = quantity;
+            awaitTrue(() -> Integer.valueOf(expected).equals(slow.last.get("SKU-0")));
+        }
+    }
+
+    @Test
+    void eventIsASnapshotOfTheRowAsSaved() throws InterruptedException {
+        Recorder recorder = record(stream.changesForSku("SKU-0"), false);
+        Stock stock = Stock.builder().sku("SKU-0").warehouseCode("WH-1").quantity(10).reservedQuantity(2).build();
+
+        StockChangedEvent event = StockChangedEvent.of(stock);
+        stock.setQuantity(99);
+        stream.onStockChanged(event);
+
+        awaitTrue(() -> recorder.last.containsKey("SKU-0"));
+        assertThat(recorder.last).containsEntry("SKU-0", 10);
+    }
+
+    private Recorder record(Flux<StockChangeDto> changes, boolean slow) {
+        Recorder recorder = new Recorder();
+        Flux<StockChangeDto> consumed = slow
+                // One at a time with a pause, so changes pile up and conflate
+                ? changes.publishOn(Schedulers.boundedElastic(), 1).doOnNext(change -> pause())
+                : changes;
+        subscriptions.add(consumed.subscribe(recorder::accept));
+        return recorder;
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(0, 200_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5 s").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static String sku(int i) {
+        return "SKU-" + i;
+    }
+
+    private static StockChangeDto change(String sku, int quantity) {
+        return StockChangeDto.builder()
+                .sku(sku)
+                .warehouseCode("WH-1")
+                .quantity(quantity)
+                .reservedQuantity(0)
+                .availableQuantity(quantity)
+                .changedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Last quantity seen per SKU, and any value that arrived after a newer one.
+     */
+    private static class Recorder {
+
+        private final Map<String, Integer> last = new ConcurrentHashMap<>();
+        private final List<String> outOfOrder = new CopyOnWriteArrayList<>();
+
+        void accept(StockChangeDto change) {
+            Integer previous = last.put(change.getSku(), change.getQuantity());
+            if (previous != null && previous >= change.getQuantity()) {
+                outOfOrder.add(change.getSku() + ": " + previous + " then " + change.getQuantity());
+            }
+        }
+    }
+}
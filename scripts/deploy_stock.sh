@@ -93,12 +93,12 @@ clone_repository() {
 build_application() {
     log "Building ${APP_NAME}..."
     
-    cd ${APP_DIR}/${APP_NAME}
+    cd ${APP_DIR}
     
-    # Clean and build
-    mvn clean package -DskipTests -q
+    # Clean and build, together with the shared modules it depends on (common-logging)
+    mvn clean package -DskipTests -q -pl ${APP_NAME} -am
     
-    if [ ! -f "target/${APP_NAME}-1.0.0.jar" ]; then
+    if [ ! -f "${APP_NAME}/target/${APP_NAME}-1.0.0.jar" ]; then
         log "ERROR: Build failed - JAR file not found"
         exit 1
     fi
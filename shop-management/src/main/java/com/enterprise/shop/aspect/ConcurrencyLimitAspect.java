@@ -0,0 +1,85 @@
+package com.enterprise.shop.aspect;
+
+import com.enterprise.shop.exception.LoadSheddingException;
+import com.enterprise.shop.resilience.AdaptiveConcurrencyLimiter;
+import com.enterprise.shop.resilience.ClientErrorPredicate;
+import com.enterprise.shop.resilience.ConcurrencyLimiterRegistry;
+import com.enterprise.shop.resilience.UpstreamCall;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Concurrency Limit Aspect
+ * Guards every StockOrchestrationService operation with its adaptive limiter.
+ * Calls over the limit fail immediately with {@link LoadSheddingException} (HTTP 503)
+ * instead of piling onto a slow product-stock.
+ *
+ * A call counts as failed when product-stock failed during it ({@link UpstreamCall}),
+ * even if the service answered with an error DTO. 4xx answers mean product-stock is
+ * healthy and do not shrink the limit.
+ */
+@Aspect
+@Component
+@Order(3)
+public class ConcurrencyLimitAspect {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitAspect.class);
+    private static final ClientErrorPredicate CLIENT_ERROR = new ClientErrorPredicate();
+    private final ConcurrencyLimiterRegistry limiterRegistry;
+
+    public ConcurrencyLimitAspect(ConcurrencyLimiterRegistry limiterRegistry) {
+        this.limiterRegistry = limiterRegistry;
+    }
+
+    @Pointcut("execution(public * com.enterprise.shop.service.StockOrchestrationService.*(..))")
+    public void orchestrationPointcut() {}
+
+    @Around("orchestrationPointcut()")
+    public Object limitConcurrency(ProceedingJoinPoint joinPoint) throws Throwable {
+        // Sync and async variants of an operation share one limiter
+        String operation = joinPoint.getSignature().getName().replaceFirst("Async$", "");
+        AdaptiveConcurrencyLimiter limiter = limiterRegistry.limiter(operation);
+
+        if (!limiter.tryAcquire()) {
+            logger.warn("Shedding {} - concurrency limit {} reached", operation, limiter.getLimit());
+            throw new LoadSheddingException(operation, limiter.getLimit());
+        }
+
+        long start = System.nanoTime();
+        UpstreamCall call = UpstreamCall.open();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable ex) {
+            limiter.release(System.nanoTime() - start, isOverload(ex, call));
+            throw ex;
+        } finally {
+            call.close();
+        }
+
+        // Async operations hold their slot until the returned future completes
+        if (result instanceof CompletionStage<?> stage) {
+            return stage.whenComplete((value, ex) ->
+                    limiter.release(System.nanoTime() - start, isOverload(ex, call)));
+        }
+        limiter.release(System.nanoTime() - start, isOverload(null, call));
+        return result;
+    }
+
+    /**
+     * The upstream failure is preferred: the service may rethrow it wrapped.
+     */
+    private static boolean isOverload(Throwable thrown, UpstreamCall call) {
+        Throwable failure = call.failure() != null ? call.failure()
+                : thrown != null ? UpstreamCall.unwrap(thrown) : null;
+        return failure != null && !CLIENT_ERROR.test(failure);
+    }
+}
@@ -1,8 +1,14 @@
 package com.enterprise.shop.aspect;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.enterprise.logging.JsonLogEncoder;
+import com.enterprise.logging.PayloadLoggingPolicy;
+import com.enterprise.logging.PayloadLoggingPolicy.Reason;
+import com.fasterxml.jackson.core.JsonGenerator;
 import jakarta.servlet.http.HttpServletRequest;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import jakarta.servlet.http.HttpServletResponse;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -13,14 +19,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Centralized Logging Aspect for Full Fidelity Request/Response Logging
@@ -32,7 +40,11 @@ import java.util.stream.Collectors;
  * - Request Payload
  * - Response Body
  * - Execution Time
- * - Trace IDs
+ * - Trace IDs (the W3C trace of the current span, shared with product-stock)
+ * 
+ * Events are streamed through {@link JsonLogEncoder} and only encoded when the
+ * request/response logger is enabled and {@link PayloadLoggingPolicy} selects
+ * the exchange (sampled, failed or slow).
  * 
  * Log Path: /var/log/shop-app/
  */
@@ -45,15 +57,19 @@ public class LoggingAspect {
     private static final Logger requestLogger = LoggerFactory.getLogger("REQUEST_LOGGER");
     private static final Logger responseLogger = LoggerFactory.getLogger("RESPONSE_LOGGER");
     
-    private final ObjectMapper objectMapper;
+    private static final int MAX_PAYLOAD_CHARS = 10000;
     
-    // Headers to mask for security
-    private static final Set<String> SENSITIVE_HEADERS = Set.of(
-            "authorization", "x-api-key", "api-key", "cookie", "set-cookie"
-    );
-
-    public LoggingAspect(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+    private final JsonLogEncoder logEncoder;
+    private final PayloadLoggingPolicy loggingPolicy;
+    private final Tracer tracer;
+    private final ContextSnapshotFactory contextSnapshots;
+    
+    public LoggingAspect(JsonLogEncoder logEncoder, PayloadLoggingPolicy loggingPolicy, Tracer tracer,
+                         ContextSnapshotFactory contextSnapshots) {
+        this.logEncoder = logEncoder;
+        this.loggingPolicy = loggingPolicy;
+        this.tracer = tracer;
+        this.contextSnapshots = contextSnapshots;
     }
 
     @Pointcut("within(@org.springframework.web.bind.annotation.RestController *)")
@@ -79,92 +95,124 @@ public class LoggingAspect {
      */
     @Around("(restControllerPointcut() || controllerPointcut()) && httpMethodPointcut()")
     public Object logAroundController(ProceedingJoinPoint joinPoint) throws Throwable {
-        String traceId = generateTraceId();
-        MDC.put("traceId", traceId);
+        // The tracer already keeps traceId in the MDC while a span is in scope
+        String spanTraceId = currentTraceId();
+        String traceId = spanTraceId != null ? spanTraceId : generateTraceId();
+        if (spanTraceId == null) {
+            MDC.put("traceId", traceId);
+        }
         
         Instant startTime = Instant.now();
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
         HttpServletRequest request = getCurrentRequest();
         
-        LogContext logContext = new LogContext();
-        logContext.setTraceId(traceId);
-        logContext.setTimestamp(startTime.toString());
-        
-        // Log Request
-        logRequest(joinPoint, request, logContext);
+        String endpoint = endpointKey(signature);
+        // Arguments are encoded before the handler runs, which may change them; unsampled
+        // requests need them too in case they turn out to fail or be slow
+        String requestPayload = requestLogger.isInfoEnabled() ? encodeRequestPayload(joinPoint, signature) : null;
+        // Log Request (head-sampled; others are logged with the response if it fails or is slow)
+        boolean sampled = loggingPolicy.sample(endpoint);
+        if (sampled) {
+            logRequest(requestPayload, signature, request, traceId, startTime, Reason.SAMPLED);
+        }
         
         Object result = null;
         Throwable caughtException = null;
-        
+        boolean deferred = false;
+
         try {
             result = joinPoint.proceed();
+
+            // Async handlers: log the response once the future completes, on whichever
+            // thread completes it, with this request's context in place
+            if (result instanceof CompletionStage<?> stage) {
+                deferred = true;
+                ContextSnapshot context = contextSnapshots.captureAll();
+                return stage.whenComplete((value, ex) -> {
+                    try (ContextSnapshot.Scope scope = context.setThreadLocals()) {
+                        logCompletion(endpoint, requestPayload, signature, request, traceId, startTime, sampled,
+                                value, ex);
+                    }
+                });
+            }
             return result;
         } catch (Throwable ex) {
             caughtException = ex;
             throw ex;
         } finally {
-            Instant endTime = Instant.now();
-            long executionTimeMs = ChronoUnit.MILLIS.between(startTime, endTime);
-            
-            // Log Response
-            logResponse(result, caughtException, executionTimeMs, logContext);
-            
-            MDC.clear();
+            if (!deferred) {
+                // Log Response
+                logCompletion(endpoint, requestPayload, signature, request, traceId, startTime, sampled,
+                        result, caughtException);
+            }
+
+            if (spanTraceId == null) {
+                MDC.remove("traceId");
+            }
         }
     }
 
     /**
-     * Logs incoming request details
+     * Applies the tail decision: failed and slow requests are logged even if not sampled
      */
-    private void logRequest(ProceedingJoinPoint joinPoint, HttpServletRequest request, LogContext logContext) {
-        try {
-            if (request != null) {
-                logContext.setMethod(request.getMethod());
-                logContext.setUrl(buildFullUrl(request));
-                logContext.setRemoteAddr(request.getRemoteAddr());
-                logContext.setHeaders(extractHeaders(request));
-                logContext.setQueryParams(extractQueryParams(request));
+    private void logCompletion(String endpoint, String requestPayload, MethodSignature signature,
+                               HttpServletRequest request, String traceId, Instant startTime, boolean sampled,
+                               Object result, Throwable exception) {
+        long executionTimeMs = ChronoUnit.MILLIS.between(startTime, Instant.now());
+        int statusCode = statusCode(result, exception);
+        Reason reason = loggingPolicy.tailReason(endpoint, statusCode >= 500, executionTimeMs);
+        if (reason == null) {
+            if (!sampled) {
+                return;
             }
-            
-            // Extract method info
-            MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-            logContext.setControllerClass(signature.getDeclaringType().getSimpleName());
-            logContext.setMethodName(signature.getName());
-            
-            // Extract request body from method arguments
-            Object[] args = joinPoint.getArgs();
-            String[] paramNames = signature.getParameterNames();
-            Map<String, Object> requestBody = new LinkedHashMap<>();
-            
-            for (int i = 0; i < args.length; i++) {
-                Object arg = args[i];
-                if (arg != null && !isExcludedType(arg)) {
-                    String paramName = (paramNames != null && i < paramNames.length) 
-                            ? paramNames[i] : "arg" + i;
-                    requestBody.put(paramName, sanitizeForLogging(arg));
+            reason = Reason.SAMPLED;
+        } else if (!sampled) {
+            logRequest(requestPayload, signature, request, traceId, startTime, reason);
+        }
+        logResponse(result, exception, executionTimeMs, statusCode, signature, traceId, reason);
+    }
+
+    /**
+     * Logs incoming request details, streamed straight from the servlet request
+     */
+    private void logRequest(String requestPayload, MethodSignature signature, HttpServletRequest request,
+                            String traceId, Instant startTime, Reason reason) {
+        if (!requestLogger.isInfoEnabled()) {
+            return;
+        }
+        try {
+            String requestLogJson = logEncoder.encode(event -> {
+                JsonGenerator json = event.generator();
+                event.field("type", "REQUEST")
+                        .field("traceId", traceId)
+                        .field("timestamp", startTime.toString())
+                        .field("logReason", reason.label());
+
+                json.writeObjectFieldStart("http");
+                event.field("method", request != null ? request.getMethod() : "UNKNOWN")
+                        .field("url", request != null ? buildFullUrl(request) : "UNKNOWN")
+                        .field("remoteAddr", request != null ? request.getRemoteAddr() : "UNKNOWN");
+                json.writeEndObject();
+
+                event.headers("headers", request);
+
+                json.writeObjectFieldStart("queryParams");
+                if (request != null) {
+                    writeQueryParams(json, request);
                 }
-            }
-            
-            logContext.setRequestPayload(requestBody);
-            
-            // Log as structured JSON
-            String requestLogJson = objectMapper.writeValueAsString(Map.of(
-                    "type", "REQUEST",
-                    "traceId", logContext.getTraceId(),
-                    "timestamp", logContext.getTimestamp(),
-                    "http", Map.of(
-                            "method", logContext.getMethod() != null ? logContext.getMethod() : "UNKNOWN",
-                            "url", logContext.getUrl() != null ? logContext.getUrl() : "UNKNOWN",
-                            "remoteAddr", logContext.getRemoteAddr() != null ? logContext.getRemoteAddr() : "UNKNOWN"
-                    ),
-                    "headers", logContext.getHeaders() != null ? logContext.getHeaders() : Collections.emptyMap(),
-                    "queryParams", logContext.getQueryParams() != null ? logContext.getQueryParams() : Collections.emptyMap(),
-                    "controller", logContext.getControllerClass() + "." + logContext.getMethodName(),
-                    "requestPayload", logContext.getRequestPayload()
-            ));
+                json.writeEndObject();
+
+                event.field("controller", signature.getDeclaringType().getSimpleName() + "." + signature.getName());
+
+                json.writeFieldName("requestPayload");
+                json.writeRawValue(requestPayload != null ? requestPayload : "{}");
+            });
             
-            requestLogger.info(requestLogJson);
+            if (loggingPolicy.withinBudget(requestLogJson.length(), reason)) {
+                requestLogger.info(requestLogJson);
+            }
             
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             logger.error("Failed to serialize request log: {}", e.getMessage());
         }
     }
@@ -172,55 +220,65 @@ public class LoggingAspect {
     /**
      * Logs response details
      */
-    private void logResponse(Object result, Throwable exception, long executionTimeMs, LogContext logContext) {
+    private void logResponse(Object result, Throwable exception, long executionTimeMs, int statusCode,
+                             MethodSignature signature, String traceId, Reason reason) {
+        if (exception != null ? !responseLogger.isErrorEnabled() : !responseLogger.isInfoEnabled()) {
+            return;
+        }
         try {
-            HttpServletResponse response = getCurrentResponse();
-            int statusCode = 200;
-            
-            if (response != null) {
-                statusCode = response.getStatus();
-            }
-            
-            if (exception != null) {
-                statusCode = 500;
-            }
-            
-            Map<String, Object> responseLog = new LinkedHashMap<>();
-            responseLog.put("type", "RESPONSE");
-            responseLog.put("traceId", logContext.getTraceId());
-            responseLog.put("timestamp", Instant.now().toString());
-            responseLog.put("executionTimeMs", executionTimeMs);
-            responseLog.put("statusCode", statusCode);
-            responseLog.put("controller", logContext.getControllerClass() + "." + logContext.getMethodName());
+            String responseLogJson = logEncoder.encode(event -> {
+                event.field("type", "RESPONSE")
+                        .field("traceId", traceId)
+                        .field("timestamp", Instant.now().toString())
+                        .field("executionTimeMs", executionTimeMs)
+                        .field("statusCode", statusCode)
+                        .field("controller", signature.getDeclaringType().getSimpleName() + "." + signature.getName())
+                        .field("logReason", reason.label());
+
+                if (exception != null) {
+                    JsonGenerator json = event.generator();
+                    json.writeObjectFieldStart("exception");
+                    event.field("type", exception.getClass().getSimpleName())
+                            .field("message", exception.getMessage() != null ? exception.getMessage() : "No message");
+                    json.writeEndObject();
+                } else if (result != null) {
+                    event.payload("responseBody", result, MAX_PAYLOAD_CHARS);
+                }
+            });
             
-            if (exception != null) {
-                responseLog.put("exception", Map.of(
-                        "type", exception.getClass().getSimpleName(),
-                        "message", exception.getMessage() != null ? exception.getMessage() : "No message"
-                ));
-            } else if (result != null) {
-                responseLog.put("responseBody", sanitizeForLogging(result));
+            if (!loggingPolicy.withinBudget(responseLogJson.length(), reason)) {
+                return;
             }
-            
-            String responseLogJson = objectMapper.writeValueAsString(responseLog);
-            
             if (exception != null) {
                 responseLogger.error(responseLogJson);
             } else {
                 responseLogger.info(responseLogJson);
             }
             
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             logger.error("Failed to serialize response log: {}", e.getMessage());
         }
     }
 
+    /**
+     * Status of the exchange: 500 for exceptions, else the ResponseEntity or servlet response status
+     */
+    private int statusCode(Object result, Throwable exception) {
+        if (exception != null) {
+            return 500;
+        }
+        if (result instanceof ResponseEntity<?> entity) {
+            return entity.getStatusCode().value();
+        }
+        HttpServletResponse response = getCurrentResponse();
+        return response != null ? response.getStatus() : 200;
+    }
+
     /**
      * Builds full URL including query string
      */
     private String buildFullUrl(HttpServletRequest request) {
-        StringBuilder url = new StringBuilder();
-        url.append(request.getRequestURL().toString());
+        StringBuffer url = request.getRequestURL();
         
         String queryString = request.getQueryString();
         if (queryString != null && !queryString.isEmpty()) {
@@ -231,55 +289,42 @@ public class LoggingAspect {
     }
 
     /**
-     * Extracts and masks sensitive headers
+     * Writes query parameters
      */
-    private Map<String, String> extractHeaders(HttpServletRequest request) {
-        Map<String, String> headers = new LinkedHashMap<>();
-        
-        Enumeration<String> headerNames = request.getHeaderNames();
-        while (headerNames != null && headerNames.hasMoreElements()) {
-            String headerName = headerNames.nextElement();
-            String headerValue = request.getHeader(headerName);
-            
-            // Mask sensitive headers
-            if (SENSITIVE_HEADERS.contains(headerName.toLowerCase())) {
-                headerValue = "***MASKED***";
-            }
-            
-            headers.put(headerName, headerValue);
+    private void writeQueryParams(JsonGenerator json, HttpServletRequest request) throws IOException {
+        for (Map.Entry<String, String[]> param : request.getParameterMap().entrySet()) {
+            String[] values = param.getValue();
+            json.writeStringField(param.getKey(), values.length == 1 ? values[0] : String.join(",", values));
         }
-        
-        return headers;
     }
 
     /**
-     * Extracts query parameters
+     * Policy key of a handler method, e.g. "WarehouseController#bulkStockUpdate"
      */
-    private Map<String, String> extractQueryParams(HttpServletRequest request) {
-        return request.getParameterMap().entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> String.join(",", e.getValue()),
-                        (v1, v2) -> v1,
-                        LinkedHashMap::new
-                ));
+    private static String endpointKey(MethodSignature signature) {
+        return signature.getDeclaringType().getSimpleName() + "#" + signature.getName();
     }
 
     /**
-     * Sanitizes objects for logging (handles large payloads)
+     * Encodes the handler arguments as the requestPayload object
      */
-    private Object sanitizeForLogging(Object obj) {
+    private String encodeRequestPayload(ProceedingJoinPoint joinPoint, MethodSignature signature) {
         try {
-            String json = objectMapper.writeValueAsString(obj);
-            
-            // Truncate large payloads
-            if (json.length() > 10000) {
-                return json.substring(0, 10000) + "... [TRUNCATED]";
-            }
-            
-            return objectMapper.readValue(json, Object.class);
-        } catch (JsonProcessingException e) {
-            return obj.toString();
+            return logEncoder.encode(event -> {
+                Object[] args = joinPoint.getArgs();
+                String[] paramNames = signature.getParameterNames();
+                for (int i = 0; i < args.length; i++) {
+                    Object arg = args[i];
+                    if (arg != null && !isExcludedType(arg)) {
+                        String paramName = (paramNames != null && i < paramNames.length)
+                                ? paramNames[i] : "arg" + i;
+                        event.payload(paramName, arg, MAX_PAYLOAD_CHARS);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Failed to serialize request payload: {}", e.getMessage());
+            return null;
         }
     }
 
@@ -294,6 +339,17 @@ public class LoggingAspect {
                obj instanceof java.io.OutputStream;
     }
 
+    /**
+     * Trace ID of the span in scope, or null outside a span
+     */
+    private String currentTraceId() {
+        Span span = tracer.currentSpan();
+        if (span == null || span.context().traceId().isEmpty()) {
+            return null;
+        }
+        return span.context().traceId();
+    }
+
     /**
      * Generates unique trace ID
      */
@@ -326,42 +382,4 @@ public class LoggingAspect {
             return null;
         }
     }
-
-    /**
-     * Internal class to hold logging context
-     */
-    private static class LogContext {
-        private String traceId;
-        private String timestamp;
-        private String method;
-        private String url;
-        private String remoteAddr;
-        private Map<String, String> headers;
-        private Map<String, String> queryParams;
-        private String controllerClass;
-        private String methodName;
-        private Map<String, Object> requestPayload;
-
-        // Getters and Setters
-        public String getTraceId() { return traceId; }
-        public void setTraceId(String traceId) { this.traceId = traceId; }
-        public String getTimestamp() { return timestamp; }
-        public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
-        public String getMethod() { return method; }
-        public void setMethod(String method) { this.method = method; }
-        public String getUrl() { return url; }
-        public void setUrl(String url) { this.url = url; }
-        public String getRemoteAddr() { return remoteAddr; }
-        public void setRemoteAddr(String remoteAddr) { this.remoteAddr = remoteAddr; }
-        public Map<String, String> getHeaders() { return headers; }
-        public void setHeaders(Map<String, String> headers) { this.headers = headers; }
-        public Map<String, String> getQueryParams() { return queryParams; }
-        public void setQueryParams(Map<String, String> queryParams) { this.queryParams = queryParams; }
-        public String getControllerClass() { return controllerClass; }
-        public void setControllerClass(String controllerClass) { this.controllerClass = controllerClass; }
-        public String getMethodName() { return methodName; }
-        public void setMethodName(String methodName) { this.methodName = methodName; }
-        public Map<String, Object> getRequestPayload() { return requestPayload; }
-        public void setRequestPayload(Map<String, Object> requestPayload) { this.requestPayload = requestPayload; }
-    }
 }
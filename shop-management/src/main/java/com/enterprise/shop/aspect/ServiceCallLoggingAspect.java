@@ -1,6 +1,8 @@
 package com.enterprise.shop.aspect;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.enterprise.logging.JsonLogEncoder;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
@@ -11,10 +13,10 @@ import org.slf4j.MDC;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.UUID;
 
 /**
  * Service Call Logging Aspect
@@ -26,10 +28,13 @@ import java.util.Map;
 public class ServiceCallLoggingAspect {
 
     private static final Logger logger = LoggerFactory.getLogger("SERVICE_CALL_LOGGER");
-    private final ObjectMapper objectMapper;
+    private static final int MAX_PAYLOAD_CHARS = 5000;
+    private final JsonLogEncoder logEncoder;
+    private final Tracer tracer;
 
-    public ServiceCallLoggingAspect(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+    public ServiceCallLoggingAspect(JsonLogEncoder logEncoder, Tracer tracer) {
+        this.logEncoder = logEncoder;
+        this.tracer = tracer;
     }
 
     @Pointcut("execution(* com.enterprise.shop.client..*(..))")
@@ -43,25 +48,32 @@ public class ServiceCallLoggingAspect {
      */
     @Around("clientMethodPointcut() || serviceClientPointcut()")
     public Object logServiceCall(ProceedingJoinPoint joinPoint) throws Throwable {
-        String traceId = MDC.get("traceId");
-        if (traceId == null) {
-            traceId = "SVC-" + System.currentTimeMillis();
+        if (!logger.isErrorEnabled()) {
+            return joinPoint.proceed();
         }
 
+        // Same trace as the controller call; LoggingAspect leaves its generated ID in the MDC outside a span
+        String traceId = currentTraceId();
+
         Instant startTime = Instant.now();
         String methodName = joinPoint.getSignature().toShortString();
         Object[] args = joinPoint.getArgs();
 
         // Log outgoing request
-        Map<String, Object> requestLog = new LinkedHashMap<>();
-        requestLog.put("type", "SERVICE_REQUEST");
-        requestLog.put("traceId", traceId);
-        requestLog.put("timestamp", startTime.toString());
-        requestLog.put("target", "product-stock");
-        requestLog.put("method", methodName);
-        requestLog.put("arguments", sanitizeArgs(args));
-
-        logger.info(objectMapper.writeValueAsString(requestLog));
+        if (logger.isInfoEnabled()) {
+            logger.info(logEncoder.encode(event -> {
+                event.field("type", "SERVICE_REQUEST")
+                        .field("traceId", traceId)
+                        .field("timestamp", startTime.toString())
+                        .field("target", "product-stock")
+                        .field("method", methodName);
+                if (args == null || args.length == 0) {
+                    event.field("arguments", "none");
+                } else {
+                    event.payload("arguments", args, MAX_PAYLOAD_CHARS);
+                }
+            }));
+        }
 
         Object result = null;
         Throwable exception = null;
@@ -77,56 +89,51 @@ public class ServiceCallLoggingAspect {
             long executionTimeMs = ChronoUnit.MILLIS.between(startTime, endTime);
 
             // Log response
-            Map<String, Object> responseLog = new LinkedHashMap<>();
-            responseLog.put("type", "SERVICE_RESPONSE");
-            responseLog.put("traceId", traceId);
-            responseLog.put("timestamp", endTime.toString());
-            responseLog.put("target", "product-stock");
-            responseLog.put("method", methodName);
-            responseLog.put("executionTimeMs", executionTimeMs);
-
-            if (exception != null) {
-                responseLog.put("status", "ERROR");
-                responseLog.put("exception", Map.of(
-                        "type", exception.getClass().getSimpleName(),
-                        "message", exception.getMessage() != null ? exception.getMessage() : "No message"
-                ));
-                logger.error(objectMapper.writeValueAsString(responseLog));
-            } else {
-                responseLog.put("status", "SUCCESS");
-                responseLog.put("response", sanitizeResult(result));
-                logger.info(objectMapper.writeValueAsString(responseLog));
+            Throwable failure = exception;
+            Object response = result;
+            if (failure != null) {
+                logger.error(logEncoder.encode(event -> {
+                    writeResponseHeader(event, traceId, endTime, methodName, executionTimeMs)
+                            .field("status", "ERROR");
+                    event.generator().writeObjectFieldStart("exception");
+                    event.field("type", failure.getClass().getSimpleName())
+                            .field("message", failure.getMessage() != null ? failure.getMessage() : "No message");
+                    event.generator().writeEndObject();
+                }));
+            } else if (logger.isInfoEnabled()) {
+                logger.info(logEncoder.encode(event -> {
+                    writeResponseHeader(event, traceId, endTime, methodName, executionTimeMs)
+                            .field("status", "SUCCESS");
+                    if (response == null) {
+                        event.field("response", "null");
+                    } else {
+                        event.payload("response", response, MAX_PAYLOAD_CHARS);
+                    }
+                }));
             }
         }
     }
 
-    private Object sanitizeArgs(Object[] args) {
-        if (args == null || args.length == 0) {
-            return "none";
-        }
-        try {
-            String json = objectMapper.writeValueAsString(args);
-            if (json.length() > 5000) {
-                return json.substring(0, 5000) + "... [TRUNCATED]";
-            }
-            return objectMapper.readValue(json, Object.class);
-        } catch (Exception e) {
-            return "Unable to serialize";
+    /**
+     * Trace ID of the span in scope, falling back to the MDC and then to a generated ID
+     */
+    private String currentTraceId() {
+        Span span = tracer.currentSpan();
+        if (span != null && !span.context().traceId().isEmpty()) {
+            return span.context().traceId();
         }
+        String mdcTraceId = MDC.get("traceId");
+        return mdcTraceId != null ? mdcTraceId : "SVC-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
 
-    private Object sanitizeResult(Object result) {
-        if (result == null) {
-            return "null";
-        }
-        try {
-            String json = objectMapper.writeValueAsString(result);
-            if (json.length() > 5000) {
-                return json.substring(0, 5000) + "... [TRUNCATED]";
-            }
-            return objectMapper.readValue(json, Object.class);
-        } catch (Exception e) {
-            return result.toString();
-        }
+    private static JsonLogEncoder.LogEvent writeResponseHeader(JsonLogEncoder.LogEvent event, String traceId,
+                                                               Instant endTime, String methodName,
+                                                               long executionTimeMs) throws IOException {
+        return event.field("type", "SERVICE_RESPONSE")
+                .field("traceId", traceId)
+                .field("timestamp", endTime.toString())
+                .field("target", "product-stock")
+                .field("method", methodName)
+                .field("executionTimeMs", executionTimeMs);
     }
 }
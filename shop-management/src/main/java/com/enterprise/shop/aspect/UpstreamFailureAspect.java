@@ -0,0 +1,56 @@
+package com.enterprise.shop.aspect;
+
+import com.enterprise.shop.resilience.UpstreamCall;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Upstream Failure Aspect
+ * Records exceptions thrown by the stock clients (REST, GraphQL, SOAP), and
+ * exceptional completions of the futures they return, in the {@link UpstreamCall}
+ * of the orchestration operation that made the call. Runs outside the circuit
+ * breakers, so open circuits are recorded too; the fallbacks that answer from
+ * the cache while a circuit is open record it themselves.
+ */
+@Aspect
+@Component
+@Order(2)
+public class UpstreamFailureAspect {
+
+    @Pointcut("execution(public * com.enterprise.shop.client..*(..))")
+    public void clientPointcut() {}
+
+    @Pointcut("execution(public * com.enterprise.shop.soap.client.StockSoapAsyncClient.*(..))")
+    public void soapClientPointcut() {}
+
+    @Around("clientPointcut() || soapClientPointcut()")
+    public Object recordFailure(ProceedingJoinPoint joinPoint) throws Throwable {
+        // Captured here: futures complete on SOAP executor threads
+        UpstreamCall call = UpstreamCall.current();
+        if (call == null) {
+            return joinPoint.proceed();
+        }
+
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable ex) {
+            call.fail(ex);
+            throw ex;
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            return stage.whenComplete((value, ex) -> {
+                if (ex != null) {
+                    call.fail(ex);
+                }
+            });
+        }
+        return result;
+    }
+}
@@ -0,0 +1,227 @@
+package com.enterprise.shop.aspect;
+
+import com.enterprise.shop.exception.DeadlineExceededException;
+import com.enterprise.shop.exception.LoadSheddingException;
+import com.enterprise.shop.exception.StockServiceException;
+import com.enterprise.shop.resilience.UpstreamCall;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Use Case Metrics Aspect
+ * Times the 10 use cases of StockOrchestrationService (sync and async variants
+ * alike, async ones until their future completes) as shop.usecase, tagged by
+ * usecase, protocol (rest/soap/graphql), outcome and warehouse.
+ *
+ * Outcome: success, rejected (answer with success=false), shed (load shedding or
+ * open circuit), timeout, client_error, server_error. Failures are classified by
+ * the exception product-stock's client raised ({@link UpstreamCall}), also when
+ * the service answered it with an error DTO.
+ * The warehouse tag comes from a warehouseCode argument or DTO property; values
+ * that do not look like a warehouse code, or arrive after max-warehouses distinct
+ * ones, are tagged "other". SKUs are never used as tags.
+ *
+ * Histogram buckets and SLOs are set under management.metrics.distribution.
+ */
+@Aspect
+@Component
+@Order(2)
+public class UseCaseMetricsAspect {
+
+    static final String TIMER = "shop.usecase";
+    private static final String NONE = "none";
+    private static final String OTHER = "other";
+    private static final Pattern WAREHOUSE_CODE = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+
+    private static final Map<String, String> USE_CASE_PROTOCOLS = Map.ofEntries(
+            Map.entry("checkAvailability", "rest"),
+            Map.entry("reserveStock", "rest"),
+            Map.entry("reserveStockBatch", "rest"),
+            Map.entry("updateThreshold", "rest"),
+            Map.entry("adjustPrice", "rest"),
+            Map.entry("discontinueProduct", "rest"),
+            Map.entry("searchStock", "rest"),
+            Map.entry("bulkStockUpdate", "soap"),
+            Map.entry("getWarehouseStatus", "soap"),
+            Map.entry("fetchProductDetails", "graphql"),
+            Map.entry("registerDamagedReturn", "graphql"));
+
+    private static final ClassValue<MethodHandle> WAREHOUSE_CODE_GETTER = getter("getWarehouseCode", String.class);
+    private static final ClassValue<MethodHandle> SUCCESS_GETTER = getter("getSuccess", Boolean.class);
+
+    private final Map<String, Meter.MeterProvider<Timer>> timers = new ConcurrentHashMap<>();
+    private final Set<String> warehouses = ConcurrentHashMap.newKeySet();
+    private final MeterRegistry meterRegistry;
+
+    @Value("${shop.metrics.max-warehouses:50}")
+    private int maxWarehouses;
+
+    public UseCaseMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Pointcut("execution(public * com.enterprise.shop.service.StockOrchestrationService.*(..))")
+    public void orchestrationPointcut() {}
+
+    @Around("orchestrationPointcut()")
+    public Object timeUseCase(ProceedingJoinPoint joinPoint) throws Throwable {
+        String useCase = joinPoint.getSignature().getName().replaceFirst("Async$", "");
+        Meter.MeterProvider<Timer> timer = timers.computeIfAbsent(useCase, this::timer);
+        if (timer == null) {
+            return joinPoint.proceed();
+        }
+
+        String warehouse = warehouseFromArgs((MethodSignature) joinPoint.getSignature(), joinPoint.getArgs());
+        long start = System.nanoTime();
+        UpstreamCall call = UpstreamCall.open();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable ex) {
+            record(timer, start, outcome(null, ex, call.failure()), warehouse);
+            throw ex;
+        } finally {
+            call.close();
+        }
+
+        if (result instanceof CompletionStage<?> stage) {
+            return stage.whenComplete((value, ex) -> record(timer, start, outcome(value, ex, call.failure()),
+                    warehouse != null ? warehouse : warehouseOf(value)));
+        }
+        record(timer, start, outcome(result, null, call.failure()),
+                warehouse != null ? warehouse : warehouseOf(result));
+        return result;
+    }
+
+    private Meter.MeterProvider<Timer> timer(String useCase) {
+        String protocol = USE_CASE_PROTOCOLS.get(useCase);
+        if (protocol == null) {
+            return null;
+        }
+        return Timer.builder(TIMER)
+                .description("Use case latency, including the call to product-stock")
+                .tags(Tags.of("usecase", useCase, "protocol", protocol))
+                .withRegistry(meterRegistry);
+    }
+
+    private void record(Meter.MeterProvider<Timer> timer, long start, String outcome, String warehouse) {
+        timer.withTags("outcome", outcome, "warehouse", guard(warehouse))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param thrown what the operation threw or completed its future with
+     * @param upstream first failure of a call to product-stock; preferred, since the
+     *                 service answers it with an error DTO or rethrows it wrapped
+     */
+    static String outcome(Object result, Throwable thrown, Throwable upstream) {
+        Throwable ex = upstream != null ? upstream : thrown != null ? UpstreamCall.unwrap(thrown) : null;
+        if (ex == null) {
+            return isRejected(result) ? "rejected" : "success";
+        }
+        if (ex instanceof LoadSheddingException || ex instanceof CallNotPermittedException) {
+            return "shed";
+        }
+        if (ex instanceof DeadlineExceededException || ex instanceof TimeoutException) {
+            return "timeout";
+        }
+        int status = ex instanceof StockServiceException e ? e.getStatusCode()
+                : ex instanceof WebClientResponseException e ? e.getStatusCode().value() : 500;
+        if (status == 504) {
+            return "timeout";
+        }
+        return status >= 400 && status < 500 ? "client_error" : "server_error";
+    }
+
+    private static boolean isRejected(Object result) {
+        MethodHandle getter = result != null ? SUCCESS_GETTER.get(result.getClass()) : null;
+        try {
+            return getter != null && Boolean.FALSE.equals(getter.invoke(result));
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    private static String warehouseFromArgs(MethodSignature signature, Object[] args) {
+        String[] names = signature.getParameterNames();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof String value && names != null && "warehouseCode".equals(names[i])) {
+                return value;
+            }
+            String warehouse = warehouseOf(args[i]);
+            if (warehouse != null) {
+                return warehouse;
+            }
+        }
+        return null;
+    }
+
+    private static String warehouseOf(Object value) {
+        MethodHandle getter = value != null ? WAREHOUSE_CODE_GETTER.get(value.getClass()) : null;
+        try {
+            return getter != null ? (String) getter.invoke(value) : null;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * Keeps the warehouse tag low-cardinality.
+     */
+    private String guard(String warehouse) {
+        if (warehouse == null || warehouse.isEmpty()) {
+            return NONE;
+        }
+        if (warehouses.contains(warehouse)) {
+            return warehouse;
+        }
+        if (!WAREHOUSE_CODE.matcher(warehouse).matches() || warehouses.size() >= maxWarehouses) {
+            return OTHER;
+        }
+        warehouses.add(warehouse);
+        return warehouse;
+    }
+
+    /**
+     * Public no-arg getter of the given type, looked up once per class (null if there is none).
+     */
+    private static ClassValue<MethodHandle> getter(String name, Class<?> type) {
+        return new ClassValue<>() {
+            @Override
+            protected MethodHandle computeValue(Class<?> clazz) {
+                if (clazz.getName().startsWith("java.")) {
+                    return null;
+                }
+                try {
+                    return MethodHandles.publicLookup().findVirtual(clazz, name, MethodType.methodType(type))
+                            .asType(MethodType.methodType(Object.class, Object.class));
+                } catch (ReflectiveOperationException e) {
+                    return null;
+                }
+            }
+        };
+    }
+}
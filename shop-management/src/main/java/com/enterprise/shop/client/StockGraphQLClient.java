@@ -2,44 +2,67 @@ package com.enterprise.shop.client;
 
 import com.enterprise.shop.dto.DamagedGoodsReturnDto;
 import com.enterprise.shop.dto.ProductDetailsDto;
+import com.enterprise.shop.exception.DeadlineExceededException;
+import com.enterprise.shop.exception.StockServiceException;
+import com.enterprise.shop.resilience.FallbackResponseCache;
+import com.enterprise.shop.resilience.RequestHedger;
+import com.enterprise.shop.resilience.RetryPolicy;
+import com.enterprise.shop.resilience.UpstreamCall;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 
 /**
  * GraphQL Client for Product Stock Service
  * Handles GraphQL queries and mutations for inter-service communication
+ *
+ * Calls go through the "stockGraphql" circuit breaker; while it is open,
+ * product details are served from {@link FallbackResponseCache}. Queries are
+ * sent as automatic persisted queries (hash first, full text only on a miss).
+ * Error statuses surface as {@link StockServiceException}, so 4xx answers do not
+ * count against the circuit breaker, as with the REST client.
  */
 @Component
 public class StockGraphQLClient {
 
     private static final Logger logger = LoggerFactory.getLogger(StockGraphQLClient.class);
+    private static final String CIRCUIT_BREAKER = "stockGraphql";
+    private static final String PERSISTED_QUERY_NOT_FOUND = "PersistedQueryNotFound";
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
+    private final ObjectReader productDetailsReader;
+    private final ObjectReader damagedReturnReader;
+    private final FallbackResponseCache responseCache;
+    private final RequestHedger hedger;
+    private final RetryPolicy retryPolicy;
+    private final boolean persistedQueries;
 
-    public StockGraphQLClient(@Qualifier("graphqlWebClient") WebClient webClient,
-                              ObjectMapper objectMapper) {
-        this.webClient = webClient;
-        this.objectMapper = objectMapper;
-    }
-
-    /**
-     * Use Case 6: GraphQL Query - Fetch product details + stock count + warehouse location
-     */
-    public ProductDetailsDto fetchProductDetails(String sku) {
-        logger.info("Fetching product details via GraphQL for SKU: {}", sku);
-
-        String query = """
+    // Nested so product-stock loads stock and warehouse through its batch loaders;
+    // the aliases line the fields up with ProductDetailsDto
+    private static final PersistedQuery PRODUCT_DETAILS_QUERY = PersistedQuery.of("""
             query GetProductDetails($sku: String!) {
-                productDetails(sku: $sku) {
+                product(sku: $sku) {
                     sku
                     productName
                     description
@@ -50,56 +73,29 @@ public class StockGraphQLClient {
                     unitOfMeasure
                     weight
                     dimensions
-                    stockCount
-                    reservedCount
-                    availableCount
-                    stockStatus
-                    warehouseCode
-                    warehouseName
-                    warehouseLocation
-                    warehouseRegion
-                    aisle
-                    shelf
-                    bin
-                    lastStockUpdate
                     lastPriceUpdate
                     isActive
+                    stock {
+                        stockCount
+                        reservedCount
+                        availableCount
+                        stockStatus
+                        warehouseCode
+                        aisle
+                        shelf
+                        bin
+                        lastStockUpdate
+                        warehouse {
+                            warehouseName
+                            warehouseLocation: location
+                            warehouseRegion: region
+                        }
+                    }
                 }
             }
-            """;
-
-        Map<String, Object> variables = new HashMap<>();
-        variables.put("sku", sku);
-
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("query", query);
-        requestBody.put("variables", variables);
-
-        try {
-            String response = webClient.post()
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode jsonNode = objectMapper.readTree(response);
-            JsonNode dataNode = jsonNode.path("data").path("productDetails");
-            
-            return objectMapper.treeToValue(dataNode, ProductDetailsDto.class);
-        } catch (Exception e) {
-            logger.error("GraphQL query failed for SKU: {}", sku, e);
-            throw new RuntimeException("Failed to fetch product details: " + e.getMessage(), e);
-        }
-    }
+            """);
 
-    /**
-     * Use Case 7: GraphQL Mutation - Register damaged goods return
-     */
-    public DamagedGoodsReturnDto registerDamagedReturn(DamagedGoodsReturnDto request) {
-        logger.info("Registering damaged goods return via GraphQL for SKU: {}", request.getSku());
-
-        String mutation = """
+    private static final PersistedQuery REGISTER_DAMAGED_RETURN_MUTATION = PersistedQuery.of("""
             mutation RegisterDamagedReturn($input: DamagedReturnInput!) {
                 registerDamagedReturn(input: $input) {
                     returnId
@@ -120,7 +116,59 @@ public class StockGraphQLClient {
                     message
                 }
             }
-            """;
+            """);
+
+    public StockGraphQLClient(@Qualifier("graphqlWebClient") WebClient webClient,
+                              ObjectMapper objectMapper,
+                              FallbackResponseCache responseCache,
+                              RequestHedger hedger,
+                              RetryPolicy retryPolicy,
+                              @Value("${stock-service.graphql.persisted-queries:true}") boolean persistedQueries) {
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+        // stock and warehouse are nested objects, merged in by toProductDetails
+        this.productDetailsReader = objectMapper.readerFor(ProductDetailsDto.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.damagedReturnReader = objectMapper.readerFor(DamagedGoodsReturnDto.class);
+        this.responseCache = responseCache;
+        this.hedger = hedger;
+        this.retryPolicy = retryPolicy;
+        this.persistedQueries = persistedQueries;
+    }
+
+    /**
+     * Use Case 6: GraphQL Query - Fetch product details + stock count + warehouse location
+     */
+    @CircuitBreaker(name = CIRCUIT_BREAKER, fallbackMethod = "fetchProductDetailsFromCache")
+    public ProductDetailsDto fetchProductDetails(String sku) {
+        logger.info("Fetching product details via GraphQL for SKU: {}", sku);
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("sku", sku);
+
+        try {
+            String response = retryPolicy.apply("fetchProductDetails", true,
+                    hedger.hedge("fetchProductDetails", () -> execute(PRODUCT_DETAILS_QUERY, variables)))
+                    .block();
+
+            JsonNode jsonNode = objectMapper.readTree(response);
+            JsonNode productNode = jsonNode.path("data").path("product");
+
+            return responseCache.put("productDetails", sku, toProductDetails(sku, productNode));
+        } catch (DeadlineExceededException | StockServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("GraphQL query failed for SKU: {}", sku, e);
+            throw new RuntimeException("Failed to fetch product details: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Use Case 7: GraphQL Mutation - Register damaged goods return
+     */
+    @CircuitBreaker(name = CIRCUIT_BREAKER)
+    public DamagedGoodsReturnDto registerDamagedReturn(DamagedGoodsReturnDto request) {
+        logger.info("Registering damaged goods return via GraphQL for SKU: {}", request.getSku());
 
         Map<String, Object> input = new HashMap<>();
         input.put("sku", request.getSku());
@@ -134,16 +182,9 @@ public class StockGraphQLClient {
         Map<String, Object> variables = new HashMap<>();
         variables.put("input", input);
 
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("query", mutation);
-        requestBody.put("variables", variables);
-
         try {
-            String response = webClient.post()
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
+            String response = retryPolicy.apply("registerDamagedReturn", false,
+                    execute(REGISTER_DAMAGED_RETURN_MUTATION, variables))
                     .block();
 
             JsonNode jsonNode = objectMapper.readTree(response);
@@ -156,10 +197,108 @@ public class StockGraphQLClient {
             }
             
             JsonNode dataNode = jsonNode.path("data").path("registerDamagedReturn");
-            return objectMapper.treeToValue(dataNode, DamagedGoodsReturnDto.class);
+            return damagedReturnReader.readValue(dataNode);
+        } catch (DeadlineExceededException | StockServiceException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("GraphQL mutation failed for damaged return: {}", request.getSku(), e);
             throw new RuntimeException("Failed to register damaged return: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Flattens product { stock { warehouse } } into the DTO: each level's fields
+     * are read into the same instance.
+     */
+    private ProductDetailsDto toProductDetails(String sku, JsonNode productNode) throws IOException {
+        if (productNode.isMissingNode() || productNode.isNull()) {
+            return ProductDetailsDto.builder()
+                    .sku(sku)
+                    .message("Product not found")
+                    .build();
+        }
+        ProductDetailsDto details = productDetailsReader.readValue(productNode);
+        JsonNode stockNode = productNode.path("stock");
+        if (stockNode.isObject()) {
+            productDetailsReader.withValueToUpdate(details).readValue(stockNode);
+            JsonNode warehouseNode = stockNode.path("warehouse");
+            if (warehouseNode.isObject()) {
+                productDetailsReader.withValueToUpdate(details).readValue(warehouseNode);
+            }
+        }
+        details.setMessage("Product details retrieved successfully");
+        return details;
+    }
+
+    /**
+     * Automatic persisted query: sends only the query hash, and the full text only
+     * if product-stock answers PersistedQueryNotFound (first use on that instance).
+     */
+    private Mono<String> execute(PersistedQuery query, Map<String, Object> variables) {
+        if (!persistedQueries) {
+            return send(query, variables, true, false);
+        }
+        return send(query, variables, false, true)
+                .flatMap(response -> isPersistedQueryNotFound(response)
+                        ? send(query, variables, true, true)
+                        : Mono.just(response));
+    }
+
+    private Mono<String> send(PersistedQuery query, Map<String, Object> variables,
+                              boolean includeText, boolean includeHash) {
+        Map<String, Object> requestBody = new HashMap<>();
+        // Spring GraphQL requires a query; graphql-java treats the marker as "look up by hash"
+        requestBody.put("query", includeText ? query.text() : PersistedQuerySupport.PERSISTED_QUERY_MARKER);
+        requestBody.put("variables", variables);
+        if (includeHash) {
+            requestBody.put("extensions", query.extensions());
+        }
+        return webClient.post()
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, response ->
+                        Mono.error(new StockServiceException(response.statusCode(),
+                                "Stock service error: " + response.statusCode())))
+                .bodyToMono(String.class);
+    }
+
+    private boolean isPersistedQueryNotFound(String response) {
+        if (response == null || !response.contains(PERSISTED_QUERY_NOT_FOUND)) {
+            return false;
+        }
+        try {
+            for (JsonNode error : objectMapper.readTree(response).path("errors")) {
+                if (PERSISTED_QUERY_NOT_FOUND.equals(error.path("message").asText())) {
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Could not inspect GraphQL response for persisted query miss: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    private record PersistedQuery(String text, Map<String, Object> extensions) {
+
+        static PersistedQuery of(String text) {
+            return new PersistedQuery(text, Map.of("persistedQuery",
+                    Map.of("version", 1, "sha256Hash", sha256Hex(text))));
+        }
+
+        private static String sha256Hex(String text) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+                return HexFormat.of().formatHex(digest);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private ProductDetailsDto fetchProductDetailsFromCache(String sku, CallNotPermittedException ex) {
+        UpstreamCall.recordFailure(ex);
+        logger.warn("Circuit {} open - serving cached product details for SKU: {}", CIRCUIT_BREAKER, sku);
+        return responseCache.get("productDetails", sku, ProductDetailsDto.class).orElseThrow(() -> ex);
+    }
 }
@@ -1,107 +1,163 @@
 package com.enterprise.shop.client;
 
 import com.enterprise.shop.dto.*;
+import com.enterprise.shop.exception.StockServiceException;
+import com.enterprise.shop.resilience.FallbackResponseCache;
+import com.enterprise.shop.resilience.RequestHedger;
+import com.enterprise.shop.resilience.RetryPolicy;
+import com.enterprise.shop.resilience.UpstreamCall;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
-import java.time.Duration;
+import java.util.UUID;
 
 /**
  * REST Client for Product Stock Service
  * Handles all REST-based inter-service communication
+ *
+ * All calls go through the "stockRest" circuit breaker. While it is open, reads
+ * are answered from {@link FallbackResponseCache} and writes fail immediately.
+ * Retries follow {@link RetryPolicy}; reservations are sent with an
+ * Idempotency-Key so they can be retried safely.
  */
 @Component
 public class StockRestClient {
 
     private static final Logger logger = LoggerFactory.getLogger(StockRestClient.class);
+    private static final String CIRCUIT_BREAKER = "stockRest";
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
     private final WebClient webClient;
+    private final FallbackResponseCache responseCache;
+    private final RequestHedger hedger;
+    private final RetryPolicy retryPolicy;
 
-    public StockRestClient(@Qualifier("stockServiceWebClient") WebClient webClient) {
+    public StockRestClient(@Qualifier("stockServiceWebClient") WebClient webClient,
+                           FallbackResponseCache responseCache,
+                           RequestHedger hedger,
+                           RetryPolicy retryPolicy) {
         this.webClient = webClient;
+        this.responseCache = responseCache;
+        this.hedger = hedger;
+        this.retryPolicy = retryPolicy;
     }
 
     /**
      * Use Case 1: REST GET - Check item availability
      */
+    @CircuitBreaker(name = CIRCUIT_BREAKER, fallbackMethod = "checkAvailabilityFromCache")
     public StockAvailabilityDto checkAvailability(String sku) {
         logger.info("Checking availability for SKU: {}", sku);
         
-        return webClient.get()
-                .uri("/api/stock/availability/{sku}", sku)
-                .retrieve()
-                .onStatus(HttpStatusCode::isError, response -> 
-                        Mono.error(new RuntimeException("Stock service error: " + response.statusCode())))
-                .bodyToMono(StockAvailabilityDto.class)
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1)))
+        StockAvailabilityDto availability = retryPolicy.apply("checkAvailability", true,
+                hedger.hedge("checkAvailability", () -> webClient.get()
+                        .uri("/api/stock/availability/{sku}", sku)
+                        .retrieve()
+                        .onStatus(HttpStatusCode::isError, response ->
+                                Mono.error(new StockServiceException(response.statusCode(),
+                                        "Stock service error: " + response.statusCode())))
+                        .bodyToMono(StockAvailabilityDto.class)))
                 .block();
+        return responseCache.put("availability", sku, availability);
     }
 
     /**
      * Use Case 2: REST POST - Reserve stock for an order
      */
+    @CircuitBreaker(name = CIRCUIT_BREAKER)
     public StockReservationDto reserveStock(StockReservationDto reservation) {
         logger.info("Reserving stock for SKU: {}, Quantity: {}", 
                 reservation.getSku(), reservation.getQuantity());
         
-        return webClient.post()
+        // One key per logical reservation: product-stock replays the original result for retries
+        String idempotencyKey = UUID.randomUUID().toString();
+        
+        return retryPolicy.apply("reserveStock", true, webClient.post()
                 .uri("/api/stock/reservations")
+                .header(IDEMPOTENCY_KEY_HEADER, idempotencyKey)
                 .bodyValue(reservation)
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, response ->
                         response.bodyToMono(String.class)
                                 .flatMap(body -> Mono.error(
-                                        new RuntimeException("Reservation failed: " + body))))
-                .bodyToMono(StockReservationDto.class)
-                .retryWhen(Retry.backoff(2, Duration.ofMillis(500)))
+                                        new StockServiceException(response.statusCode(),
+                                                "Reservation failed: " + body))))
+                .bodyToMono(StockReservationDto.class))
+                .block();
+    }
+
+    /**
+     * Multi-line reservation - reserves all lines of an order in one POST.
+     * 409 carries per-line results, so it is returned rather than raised.
+     */
+    @CircuitBreaker(name = CIRCUIT_BREAKER)
+    public BatchReservationDto reserveStockBatch(BatchReservationDto batch) {
+        logger.info("Reserving stock batch for Order: {}, Lines: {}",
+                batch.getOrderId(), batch.getLines() != null ? batch.getLines().size() : 0);
+        
+        return retryPolicy.apply("reserveStockBatch", false, webClient.post()
+                .uri("/api/stock/reservations/batch")
+                .bodyValue(batch)
+                .retrieve()
+                .onStatus(status -> status.isError() && status.value() != HttpStatus.CONFLICT.value(), response ->
+                        response.bodyToMono(String.class)
+                                .flatMap(body -> Mono.error(
+                                        new StockServiceException(response.statusCode(),
+                                                "Batch reservation failed: " + body))))
+                .bodyToMono(BatchReservationDto.class))
                 .block();
     }
 
     /**
      * Use Case 3: REST PUT - Update stock threshold
      */
+    @CircuitBreaker(name = CIRCUIT_BREAKER)
     public StockThresholdDto updateThreshold(String sku, StockThresholdDto threshold) {
         logger.info("Updating threshold for SKU: {}", sku);
         
-        return webClient.put()
+        return retryPolicy.apply("updateThreshold", true, webClient.put()
                 .uri("/api/stock/thresholds/{sku}", sku)
                 .bodyValue(threshold)
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, response ->
-                        Mono.error(new RuntimeException("Threshold update failed")))
-                .bodyToMono(StockThresholdDto.class)
+                        Mono.error(new StockServiceException(response.statusCode(), "Threshold update failed")))
+                .bodyToMono(StockThresholdDto.class))
                 .block();
     }
 
     /**
      * Use Case 8: REST PATCH - Update price adjustments
      */
+    @CircuitBreaker(name = CIRCUIT_BREAKER)
     public PriceAdjustmentDto adjustPrice(String sku, PriceAdjustmentDto adjustment) {
         logger.info("Adjusting price for SKU: {}", sku);
         
-        return webClient.patch()
+        return retryPolicy.apply("adjustPrice", false, webClient.patch()
                 .uri("/api/stock/products/{sku}/price", sku)
                 .bodyValue(adjustment)
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, response ->
-                        Mono.error(new RuntimeException("Price adjustment failed")))
-                .bodyToMono(PriceAdjustmentDto.class)
+                        Mono.error(new StockServiceException(response.statusCode(), "Price adjustment failed")))
+                .bodyToMono(PriceAdjustmentDto.class))
                 .block();
     }
 
     /**
      * Use Case 9: REST DELETE - Discontinue a product SKU
      */
+    @CircuitBreaker(name = CIRCUIT_BREAKER)
     public ProductDiscontinueDto discontinueProduct(String sku, ProductDiscontinueDto request) {
         logger.info("Discontinuing product SKU: {}", sku);
         
-        return webClient.delete()
+        return retryPolicy.apply("discontinueProduct", true, webClient.delete()
                 .uri(uriBuilder -> uriBuilder
                         .path("/api/stock/products/{sku}")
                         .queryParam("reason", request.getReason())
@@ -109,18 +165,19 @@ public class StockRestClient {
                         .build(sku))
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, response ->
-                        Mono.error(new RuntimeException("Product discontinuation failed")))
-                .bodyToMono(ProductDiscontinueDto.class)
+                        Mono.error(new StockServiceException(response.statusCode(), "Product discontinuation failed")))
+                .bodyToMono(ProductDiscontinueDto.class))
                 .block();
     }
 
     /**
      * Use Case 10: REST GET Complex - Search stock with pagination and filtering
      */
+    @CircuitBreaker(name = CIRCUIT_BREAKER, fallbackMethod = "searchStockFromCache")
     public StockSearchResponseDto searchStock(StockSearchRequestDto request) {
         logger.info("Searching stock with filters: {}", request);
         
-        return webClient.get()
+        StockSearchResponseDto result = retryPolicy.apply("searchStock", true, webClient.get()
                 .uri(uriBuilder -> {
                     uriBuilder.path("/api/stock/search");
                     
@@ -151,8 +208,25 @@ public class StockRestClient {
                 })
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, response ->
-                        Mono.error(new RuntimeException("Stock search failed")))
-                .bodyToMono(StockSearchResponseDto.class)
+                        Mono.error(new StockServiceException(response.statusCode(), "Stock search failed")))
+                .bodyToMono(StockSearchResponseDto.class))
                 .block();
+        return responseCache.put("search", request.toString(), result);
+    }
+
+    // ==========================================================================
+    // Circuit breaker fallbacks - only used while the breaker is open
+    // ==========================================================================
+
+    private StockAvailabilityDto checkAvailabilityFromCache(String sku, CallNotPermittedException ex) {
+        UpstreamCall.recordFailure(ex);
+        logger.warn("Circuit {} open - serving cached availability for SKU: {}", CIRCUIT_BREAKER, sku);
+        return responseCache.get("availability", sku, StockAvailabilityDto.class).orElseThrow(() -> ex);
+    }
+
+    private StockSearchResponseDto searchStockFromCache(StockSearchRequestDto request, CallNotPermittedException ex) {
+        UpstreamCall.recordFailure(ex);
+        logger.warn("Circuit {} open - serving cached stock search", CIRCUIT_BREAKER);
+        return responseCache.get("search", request.toString(), StockSearchResponseDto.class).orElseThrow(() -> ex);
     }
 }
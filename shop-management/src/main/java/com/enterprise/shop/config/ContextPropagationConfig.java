@@ -0,0 +1,31 @@
+package com.enterprise.shop.config;
+
+import io.micrometer.context.ContextRegistry;
+import io.micrometer.context.ContextSnapshotFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Context Propagation Configuration
+ * The request-scoped thread locals (MDC, request deadline) are registered with the
+ * global context-propagation registry through META-INF/services, the same way
+ * Micrometer registers its observation accessor, so they are in place before any
+ * bean is created. Reactor (spring.reactor.context-propagation=auto) restores
+ * everything in the registry inside operators, and the snapshot factory below does
+ * the same for executors and hedged calls.
+ */
+@Configuration
+public class ContextPropagationConfig {
+
+    /**
+     * Snapshots clear thread locals that were not captured, so a pooled thread never
+     * keeps a previous request's MDC or deadline while running a task.
+     */
+    @Bean
+    public ContextSnapshotFactory contextSnapshotFactory() {
+        return ContextSnapshotFactory.builder()
+                .contextRegistry(ContextRegistry.getInstance())
+                .clearMissing(true)
+                .build();
+    }
+}
@@ -0,0 +1,36 @@
+package com.enterprise.shop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Jackson Configuration for Shop Management Service
+ * Keeps the wire mapper (MVC responses, calls to product-stock, GraphQL parsing)
+ * compact and gives the request/response logs their own pretty-printing mapper.
+ * Both are built from spring.jackson.*, with Blackbird generating property
+ * accessors instead of reflection.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    @Primary
+    public ObjectMapper objectMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.createXmlMapper(false).build();
+    }
+
+    @Bean
+    public ObjectMapper diagnosticsObjectMapper(ObjectMapper objectMapper) {
+        return objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT);
+    }
+}
@@ -0,0 +1,44 @@
+package com.enterprise.shop.config;
+
+import com.enterprise.logging.JsonLogEncoder;
+import com.enterprise.logging.LogPipelineMetrics;
+import com.enterprise.logging.PayloadLoggingPolicy;
+import com.enterprise.logging.jfr.FlightRecordingEndpoint;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Logging Configuration
+ * Wires the shared common-logging components under the "shop" prefix: settings
+ * from shop.payload-logging.* and shop.jfr.*, metrics named shop.log.* and
+ * shop.payload.log.dropped.
+ */
+@Configuration
+public class LoggingConfig {
+
+    private static final String PREFIX = "shop";
+
+    @Bean
+    public JsonLogEncoder jsonLogEncoder(@Qualifier("diagnosticsObjectMapper") ObjectMapper objectMapper) {
+        return new JsonLogEncoder(objectMapper);
+    }
+
+    @Bean
+    public PayloadLoggingPolicy payloadLoggingPolicy(MeterRegistry meterRegistry, Environment environment) {
+        return new PayloadLoggingPolicy(meterRegistry, environment, PREFIX);
+    }
+
+    @Bean
+    public LogPipelineMetrics logPipelineMetrics(MeterRegistry meterRegistry) {
+        return new LogPipelineMetrics(meterRegistry, PREFIX);
+    }
+
+    @Bean
+    public FlightRecordingEndpoint flightRecordingEndpoint(Environment environment) {
+        return new FlightRecordingEndpoint(environment, PREFIX);
+    }
+}
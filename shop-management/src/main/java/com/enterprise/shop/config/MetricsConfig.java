@@ -0,0 +1,30 @@
+package com.enterprise.shop.config;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics Configuration
+ * Cardinality guards applied to every meter: SKUs are never a tag, and
+ * shop.usecase stops creating series once the warehouse tag has more than
+ * max-warehouses values.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Value("${shop.metrics.max-warehouses:50}")
+    private int maxWarehouses;
+
+    @Bean
+    public MeterFilter skuTagFilter() {
+        return MeterFilter.ignoreTags("sku");
+    }
+
+    @Bean
+    public MeterFilter warehouseTagLimit() {
+        // The aspect already folds unknown warehouses into "other"; this is the backstop
+        return MeterFilter.maximumAllowableTags("shop.usecase", "warehouse", maxWarehouses + 2, MeterFilter.deny());
+    }
+}
@@ -0,0 +1,30 @@
+package com.enterprise.shop.config;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Orchestration Configuration
+ * Executor used to fan out blocking protocol calls to product-stock concurrently
+ */
+@Configuration
+public class OrchestrationConfig {
+
+    /**
+     * Virtual threads: every branch blocks on WebClient/CXF I/O, so a thread per task
+     * costs nothing and needs no pool sizing. Tasks run with the submitting thread's
+     * context (MDC, request deadline, current observation), so their logs and client
+     * spans stay with the caller's request.
+     */
+    @Bean(name = "orchestrationExecutor", destroyMethod = "shutdown")
+    public ExecutorService orchestrationExecutor(ContextSnapshotFactory snapshots) {
+        return ContextExecutorService.wrap(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("orchestration-", 0).factory()),
+                snapshots::captureAll);
+    }
+}
@@ -1,17 +1,36 @@
 package com.enterprise.shop.config;
 
+import com.enterprise.shop.loadbalancer.StockLoadBalancer;
+import com.enterprise.shop.resilience.FallbackResponseCache;
+import com.enterprise.shop.resilience.RequestHedger;
+import com.enterprise.shop.soap.client.DeadlineOutInterceptor;
+import com.enterprise.shop.soap.client.FlightRecorderInInterceptor;
+import com.enterprise.shop.soap.client.FlightRecorderOutInterceptor;
+import com.enterprise.shop.soap.client.StockSoapAsyncClient;
 import com.enterprise.shop.soap.client.StockSoapClient;
-import jakarta.xml.ws.BindingProvider;
+import com.enterprise.shop.soap.client.TracingInInterceptor;
+import com.enterprise.shop.soap.client.TracingOutInterceptor;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.frontend.ClientProxy;
 import org.apache.cxf.jaxws.JaxWsProxyFactoryBean;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transports.http.configuration.ConnectionType;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * SOAP Client Configuration for calling product-stock SOAP endpoints
+ *
+ * A single CXF proxy is shared by all threads: its request context is made
+ * thread-local so per-call properties never leak between concurrent callers,
+ * and timeouts/keep-alive live on the HTTP conduit policy rather than on the
+ * (shared) request context.
  */
 @Configuration
 public class SoapClientConfig {
@@ -25,20 +44,49 @@ public class SoapClientConfig {
     @Value("${stock-service.connection.read-timeout:30000}")
     private int readTimeout;
 
+    @Value("${stock-service.soap.max-concurrent-calls:50}")
+    private int maxConcurrentCalls;
+
+    @Value("${stock-service.soap.acquire-timeout:2000}")
+    private long acquireTimeout;
+
     @Bean
-    public StockSoapClient stockSoapClient() {
+    public StockSoapClient stockSoapClient(ObservationRegistry observationRegistry) {
         JaxWsProxyFactoryBean factory = new JaxWsProxyFactoryBean();
         factory.setServiceClass(StockSoapClient.class);
         factory.setAddress(stockServiceBaseUrl + "/ws/stock");
-        
+
         StockSoapClient client = (StockSoapClient) factory.create();
-        
-        // Configure timeouts
-        BindingProvider bindingProvider = (BindingProvider) client;
-        Map<String, Object> requestContext = bindingProvider.getRequestContext();
-        requestContext.put("javax.xml.ws.client.connectionTimeout", connectionTimeout);
-        requestContext.put("javax.xml.ws.client.receiveTimeout", readTimeout);
-        
+
+        Client cxfClient = ClientProxy.getClient(client);
+        cxfClient.setThreadLocalRequestContext(true);
+        cxfClient.getOutInterceptors().add(new DeadlineOutInterceptor());
+        cxfClient.getOutInterceptors().add(new FlightRecorderOutInterceptor());
+        FlightRecorderInInterceptor flightRecorderIn = new FlightRecorderInInterceptor();
+        cxfClient.getInInterceptors().add(flightRecorderIn);
+        cxfClient.getInFaultInterceptors().add(flightRecorderIn);
+        cxfClient.getOutInterceptors().add(new TracingOutInterceptor(observationRegistry));
+        TracingInInterceptor tracingIn = new TracingInInterceptor();
+        cxfClient.getInInterceptors().add(tracingIn);
+        cxfClient.getInFaultInterceptors().add(tracingIn);
+
+        // Configure timeouts and persistent connections on the conduit
+        HTTPClientPolicy policy = new HTTPClientPolicy();
+        policy.setConnectionTimeout(connectionTimeout);
+        policy.setReceiveTimeout(readTimeout);
+        policy.setConnection(ConnectionType.KEEP_ALIVE);
+        ((HTTPConduit) cxfClient.getConduit()).setClient(policy);
+
         return client;
     }
+
+    @Bean
+    public StockSoapAsyncClient stockSoapAsyncClient(StockSoapClient stockSoapClient,
+                                                     @Qualifier("orchestrationExecutor") ExecutorService executor,
+                                                     FallbackResponseCache fallbackResponseCache,
+                                                     RequestHedger requestHedger,
+                                                     StockLoadBalancer stockLoadBalancer) {
+        return new StockSoapAsyncClient(stockSoapClient, executor, fallbackResponseCache, requestHedger,
+                stockLoadBalancer, maxConcurrentCalls, acquireTimeout);
+    }
 }
@@ -1,8 +1,12 @@
 package com.enterprise.shop.config;
 
+import com.enterprise.shop.context.DeadlineExchangeFilter;
+import com.enterprise.shop.jfr.FlightRecorderExchangeFilter;
+import com.enterprise.shop.loadbalancer.LoadBalancingExchangeFilter;
+import com.enterprise.shop.loadbalancer.StockLoadBalancer;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.observation.ObservationRegistry;
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,13 +16,20 @@ import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
 
 /**
  * WebClient Configuration for inter-service communication
- * Configures REST client for calling product-stock service
+ * Configures REST and GraphQL clients for calling product-stock service
+ * over one shared, metered connection pool. Requests are spread over the
+ * product-stock instances by {@link StockLoadBalancer}, carry the remaining
+ * request budget ({@link DeadlineExchangeFilter}), are recorded as JFR
+ * events ({@link FlightRecorderExchangeFilter}) and run as client spans
+ * whose W3C traceparent header continues the caller's trace.
  */
 @Configuration
 public class WebClientConfig {
@@ -32,47 +43,99 @@ public class WebClientConfig {
     @Value("${stock-service.connection.read-timeout:30000}")
     private int readTimeout;
 
-    @Bean
-    public ObjectMapper objectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
-        return mapper;
+    @Value("${stock-service.connection.pool.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${stock-service.connection.pool.pending-acquire-max-count:500}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${stock-service.connection.pool.pending-acquire-timeout:5000}")
+    private long pendingAcquireTimeout;
+
+    @Value("${stock-service.connection.pool.max-idle-time:30000}")
+    private long maxIdleTime;
+
+    @Value("${stock-service.connection.pool.max-life-time:300000}")
+    private long maxLifeTime;
+
+    @Value("${stock-service.connection.pool.evict-interval:30000}")
+    private long evictInterval;
+
+    @Value("${stock-service.connection.h2c:false}")
+    private boolean h2c;
+
+    /**
+     * Shared connection pool for every HTTP call to product-stock (REST and GraphQL).
+     * Size max-connections against product-stock's request capacity (Tomcat threads);
+     * callers beyond that wait in the pending queue instead of opening new sockets.
+     */
+    @Bean(name = "stockConnectionProvider", destroyMethod = "dispose")
+    public ConnectionProvider stockConnectionProvider() {
+        return ConnectionProvider.builder("stock-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeout))
+                .maxIdleTime(Duration.ofMillis(maxIdleTime))
+                .maxLifeTime(Duration.ofMillis(maxLifeTime))
+                .evictInBackground(Duration.ofMillis(evictInterval))
+                .metrics(true)
+                .build();
     }
 
-    @Bean("stockServiceWebClient")
-    public WebClient stockServiceWebClient(ObjectMapper objectMapper) {
-        HttpClient httpClient = HttpClient.create()
+    @Bean("stockHttpClient")
+    public HttpClient stockHttpClient(ConnectionProvider stockConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(stockConnectionProvider)
                 .responseTimeout(Duration.ofMillis(readTimeout))
-                .option(io.netty.channel.ChannelOption.CONNECT_TIMEOUT_MILLIS, connectionTimeout);
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectionTimeout)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .metrics(true, WebClientConfig::uriTag);
 
-        ExchangeStrategies strategies = ExchangeStrategies.builder()
-                .codecs(configurer -> {
-                    configurer.defaultCodecs().maxInMemorySize(16 * 1024 * 1024);
-                    configurer.defaultCodecs().jackson2JsonEncoder(
-                            new Jackson2JsonEncoder(objectMapper, MediaType.APPLICATION_JSON));
-                    configurer.defaultCodecs().jackson2JsonDecoder(
-                            new Jackson2JsonDecoder(objectMapper, MediaType.APPLICATION_JSON));
-                })
-                .build();
+        if (h2c) {
+            // h2c upgrade with HTTP/1.1 fallback; all requests multiplex over the pooled connections
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        return httpClient;
+    }
 
+    @Bean("stockServiceWebClient")
+    public WebClient stockServiceWebClient(HttpClient stockHttpClient, ObjectMapper objectMapper,
+                                           StockLoadBalancer stockLoadBalancer,
+                                           ObservationRegistry observationRegistry) {
         return WebClient.builder()
                 .baseUrl(stockServiceBaseUrl)
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .exchangeStrategies(strategies)
+                .clientConnector(new ReactorClientHttpConnector(stockHttpClient))
+                .defaultRequest(DeadlineExchangeFilter::captureDeadline)
+                .defaultRequest(LoadBalancingExchangeFilter::captureTriedInstances)
+                .filter(new DeadlineExchangeFilter())
+                .filter(new LoadBalancingExchangeFilter(stockLoadBalancer))
+                .filter(new FlightRecorderExchangeFilter("rest"))
+                .exchangeStrategies(exchangeStrategies(objectMapper))
+                .observationRegistry(observationRegistry)
                 .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
                 .defaultHeader("Accept", MediaType.APPLICATION_JSON_VALUE)
                 .build();
     }
 
     @Bean("graphqlWebClient")
-    public WebClient graphqlWebClient(ObjectMapper objectMapper) {
-        HttpClient httpClient = HttpClient.create()
-                .responseTimeout(Duration.ofMillis(readTimeout))
-                .option(io.netty.channel.ChannelOption.CONNECT_TIMEOUT_MILLIS, connectionTimeout);
+    public WebClient graphqlWebClient(HttpClient stockHttpClient, ObjectMapper objectMapper,
+                                      StockLoadBalancer stockLoadBalancer,
+                                      ObservationRegistry observationRegistry) {
+        return WebClient.builder()
+                .baseUrl(stockServiceBaseUrl + "/graphql")
+                .clientConnector(new ReactorClientHttpConnector(stockHttpClient))
+                .defaultRequest(DeadlineExchangeFilter::captureDeadline)
+                .defaultRequest(LoadBalancingExchangeFilter::captureTriedInstances)
+                .filter(new DeadlineExchangeFilter())
+                .filter(new LoadBalancingExchangeFilter(stockLoadBalancer))
+                .filter(new FlightRecorderExchangeFilter("graphql"))
+                .exchangeStrategies(exchangeStrategies(objectMapper))
+                .observationRegistry(observationRegistry)
+                .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .build();
+    }
 
-        ExchangeStrategies strategies = ExchangeStrategies.builder()
+    private ExchangeStrategies exchangeStrategies(ObjectMapper objectMapper) {
+        return ExchangeStrategies.builder()
                 .codecs(configurer -> {
                     configurer.defaultCodecs().maxInMemorySize(16 * 1024 * 1024);
                     configurer.defaultCodecs().jackson2JsonEncoder(
@@ -81,12 +144,21 @@ public class WebClientConfig {
                             new Jackson2JsonDecoder(objectMapper, MediaType.APPLICATION_JSON));
                 })
                 .build();
+    }
 
-        return WebClient.builder()
-                .baseUrl(stockServiceBaseUrl + "/graphql")
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .exchangeStrategies(strategies)
-                .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
-                .build();
+    /**
+     * Keeps the uri tag of client metrics low-cardinality: query strings are dropped and
+     * only the first three path segments are kept (/api/stock/availability/SKU-1 -> /api/stock/availability).
+     */
+    static String uriTag(String uri) {
+        int query = uri.indexOf('?');
+        String path = query >= 0 ? uri.substring(0, query) : uri;
+        int slashes = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/' && ++slashes == 4) {
+                return path.substring(0, i);
+            }
+        }
+        return path;
     }
 }
@@ -0,0 +1,59 @@
+package com.enterprise.shop.context;
+
+import com.enterprise.shop.exception.DeadlineExceededException;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.time.Duration;
+
+/**
+ * WebClient filter that sends the remaining request budget to product-stock
+ *
+ * The deadline is captured as a request attribute when the request is built
+ * (on the caller's thread, see {@link #captureDeadline}) and evaluated on every
+ * send, so retries carry a shrinking budget. The response timeout is clamped to
+ * the budget, and a request whose budget is gone is not sent at all.
+ */
+public class DeadlineExchangeFilter implements ExchangeFilterFunction {
+
+    public static final String DEADLINE_ATTRIBUTE = DeadlineExchangeFilter.class.getName() + ".deadline";
+
+    /**
+     * For WebClient.Builder#defaultRequest.
+     */
+    public static void captureDeadline(WebClient.RequestHeadersSpec<?> spec) {
+        Long deadline = RequestDeadline.get();
+        if (deadline != null) {
+            spec.attribute(DEADLINE_ATTRIBUTE, deadline);
+        }
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            Object deadline = request.attribute(DEADLINE_ATTRIBUTE).orElse(null);
+            if (!(deadline instanceof Long deadlineNanos)) {
+                return next.exchange(request);
+            }
+            long remainingMs = RequestDeadline.remainingMillis(deadlineNanos);
+            if (remainingMs <= 0) {
+                return Mono.error(new DeadlineExceededException(
+                        "Request deadline expired before calling " + request.url().getPath()));
+            }
+            ClientRequest bounded = ClientRequest.from(request)
+                    .header(RequestDeadline.HEADER, Long.toString(remainingMs))
+                    .httpRequest(httpRequest -> {
+                        if (httpRequest.getNativeRequest() instanceof HttpClientRequest nettyRequest) {
+                            nettyRequest.responseTimeout(Duration.ofMillis(remainingMs));
+                        }
+                    })
+                    .build();
+            return next.exchange(bounded);
+        });
+    }
+}
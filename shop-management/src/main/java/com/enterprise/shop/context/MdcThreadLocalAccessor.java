@@ -0,0 +1,40 @@
+package com.enterprise.shop.context;
+
+import io.micrometer.context.ThreadLocalAccessor;
+import org.slf4j.MDC;
+
+import java.util.Map;
+
+/**
+ * Carries the logging MDC (traceId and friends) across thread hops
+ *
+ * Registered with the context-propagation registry through
+ * META-INF/services/io.micrometer.context.ThreadLocalAccessor, so it travels
+ * with every context snapshot: the orchestration executor, hedged calls and
+ * Reactor operators running on Netty or timer threads.
+ */
+public class MdcThreadLocalAccessor implements ThreadLocalAccessor<Map<String, String>> {
+
+    public static final String KEY = "shop.mdc";
+
+    @Override
+    public Object key() {
+        return KEY;
+    }
+
+    @Override
+    public Map<String, String> getValue() {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return mdc == null || mdc.isEmpty() ? null : mdc;
+    }
+
+    @Override
+    public void setValue(Map<String, String> value) {
+        MDC.setContextMap(value);
+    }
+
+    @Override
+    public void setValue() {
+        MDC.clear();
+    }
+}
@@ -0,0 +1,50 @@
+package com.enterprise.shop.context;
+
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline of the inbound request being served on the current thread
+ *
+ * Set by {@link RequestDeadlineFilter}; carried along with the MDC wherever work
+ * hops threads ({@link RequestDeadlineThreadLocalAccessor}). Outbound calls to product-stock send the remaining budget in
+ * {@link #HEADER} so product-stock can stop working on requests nobody waits for.
+ */
+public final class RequestDeadline {
+
+    /** Remaining budget in milliseconds, relative so clock skew between hosts does not matter */
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static Long get() {
+        return DEADLINE_NANOS.get();
+    }
+
+    /**
+     * @param deadlineNanos System.nanoTime() based deadline, or null to clear
+     */
+    public static void set(Long deadlineNanos) {
+        if (deadlineNanos == null) {
+            DEADLINE_NANOS.remove();
+        } else {
+            DEADLINE_NANOS.set(deadlineNanos);
+        }
+    }
+
+    public static void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    public static OptionalLong remainingMillis() {
+        Long deadline = DEADLINE_NANOS.get();
+        return deadline == null ? OptionalLong.empty() : OptionalLong.of(remainingMillis(deadline));
+    }
+
+    public static long remainingMillis(long deadlineNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+}
@@ -0,0 +1,47 @@
+package com.enterprise.shop.context;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the request budget clock: every request gets request-budget ms,
+ * or less if the caller already sent a smaller {@link RequestDeadline#HEADER}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    @Value("${stock-service.deadline.request-budget:15000}")
+    private long requestBudgetMs;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long budgetMs = requestBudgetMs;
+        String inbound = request.getHeader(RequestDeadline.HEADER);
+        if (inbound != null) {
+            try {
+                budgetMs = Math.min(budgetMs, Long.parseLong(inbound.trim()));
+            } catch (NumberFormatException ignored) {
+                // Malformed header - keep the default budget
+            }
+        }
+
+        RequestDeadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+}
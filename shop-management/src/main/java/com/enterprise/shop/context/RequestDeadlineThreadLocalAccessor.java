@@ -0,0 +1,32 @@
+package com.enterprise.shop.context;
+
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * Carries the {@link RequestDeadline} across thread hops, alongside the MDC
+ * ({@link MdcThreadLocalAccessor}) and the current observation.
+ */
+public class RequestDeadlineThreadLocalAccessor implements ThreadLocalAccessor<Long> {
+
+    public static final String KEY = "shop.request-deadline";
+
+    @Override
+    public Object key() {
+        return KEY;
+    }
+
+    @Override
+    public Long getValue() {
+        return RequestDeadline.get();
+    }
+
+    @Override
+    public void setValue(Long value) {
+        RequestDeadline.set(value);
+    }
+
+    @Override
+    public void setValue() {
+        RequestDeadline.clear();
+    }
+}
@@ -2,6 +2,7 @@ package com.enterprise.shop.controller;
 
 import com.enterprise.shop.dto.DamagedGoodsReturnDto;
 import com.enterprise.shop.dto.ProductDetailsDto;
+import com.enterprise.shop.dto.ProductOverviewDto;
 import com.enterprise.shop.service.StockOrchestrationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -40,6 +41,22 @@ public class ProductController {
         return ResponseEntity.ok(response);
     }
 
+    // ==========================================================================
+    // Composite: product details + availability + warehouse status in parallel
+    // ==========================================================================
+    @GetMapping("/{sku}/overview")
+    @Operation(summary = "Get product overview", 
+               description = "Fetches product details (GraphQL), availability (REST) and warehouse status (SOAP) "
+                       + "concurrently; sections that time out are omitted and listed in missingSections")
+    public ResponseEntity<ProductOverviewDto> getProductOverview(
+            @PathVariable String sku,
+            @RequestParam(required = false) String warehouseCode) {
+        
+        logger.info("COMPOSITE - Fetching product overview for SKU: {}", sku);
+        ProductOverviewDto response = stockService.getProductOverview(sku, warehouseCode);
+        return ResponseEntity.ok(response);
+    }
+
     // ==========================================================================
     // Use Case 7: GraphQL Mutation - Register damaged goods return
     // ==========================================================================
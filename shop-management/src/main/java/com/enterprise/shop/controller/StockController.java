@@ -78,6 +78,37 @@ public class StockController {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
     }
 
+    // ==========================================================================
+    // REST POST - Reserve stock for all lines of an order
+    // ==========================================================================
+    @PostMapping("/reservations/batch")
+    @Operation(summary = "Reserve stock for an order", 
+               description = "Reserves all order lines in one call (mode ALL_OR_NOTHING or BEST_EFFORT)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "All lines reserved",
+                    content = @Content(schema = @Schema(implementation = BatchReservationDto.class))),
+            @ApiResponse(responseCode = "207", description = "Some lines reserved (BEST_EFFORT); see the per-line results",
+                    content = @Content(schema = @Schema(implementation = BatchReservationDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request"),
+            @ApiResponse(responseCode = "409", description = "No line could be reserved"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<BatchReservationDto> reserveStockBatch(
+            @Valid @RequestBody BatchReservationDto batch) {
+        
+        logger.info("REST POST - Reserving stock batch for Order: {}", batch.getOrderId());
+        BatchReservationDto response = stockService.reserveStockBatch(batch);
+        
+        if (Boolean.TRUE.equals(response.getSuccess())) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+        // Some lines reserved and some not: the per-line results say which
+        if (response.getSuccessCount() != null && response.getSuccessCount() > 0) {
+            return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(response);
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
     // ==========================================================================
     // Use Case 3: REST PUT - Update stock threshold
     // ==========================================================================
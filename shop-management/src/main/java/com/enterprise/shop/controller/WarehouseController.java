@@ -12,9 +12,12 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Controller for SOAP-proxied operations
  * Exposes REST endpoints that internally call SOAP services
+ * Handlers return CompletableFuture so the servlet thread is released while the SOAP call runs
  */
 @RestController
 @RequestMapping("/v1/warehouse")
@@ -36,13 +39,12 @@ public class WarehouseController {
                  produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE})
     @Operation(summary = "Bulk stock update", 
                description = "Performs bulk stock update via SOAP service (supports JSON/XML)")
-    public ResponseEntity<BulkStockUpdateDto> bulkStockUpdate(
+    public CompletableFuture<ResponseEntity<BulkStockUpdateDto>> bulkStockUpdate(
             @Valid @RequestBody BulkStockUpdateDto request) {
         
         logger.info("SOAP PROXY - Bulk stock update for {} items", 
                 request.getItems() != null ? request.getItems().size() : 0);
-        BulkStockUpdateDto response = stockService.bulkStockUpdate(request);
-        return ResponseEntity.ok(response);
+        return stockService.bulkStockUpdateAsync(request).thenApply(ResponseEntity::ok);
     }
 
     // ==========================================================================
@@ -52,11 +54,10 @@ public class WarehouseController {
                 produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE})
     @Operation(summary = "Get warehouse status", 
                description = "Retrieves warehouse status via SOAP service")
-    public ResponseEntity<WarehouseStatusDto> getWarehouseStatus(
+    public CompletableFuture<ResponseEntity<WarehouseStatusDto>> getWarehouseStatus(
             @PathVariable String warehouseCode) {
         
         logger.info("SOAP PROXY - Getting status for warehouse: {}", warehouseCode);
-        WarehouseStatusDto response = stockService.getWarehouseStatus(warehouseCode);
-        return ResponseEntity.ok(response);
+        return stockService.getWarehouseStatusAsync(warehouseCode).thenApply(ResponseEntity::ok);
     }
 }
@@ -0,0 +1,28 @@
+package com.enterprise.shop.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * DTO for the composite product overview
+ * Combines product details (GraphQL), availability (REST) and warehouse status (SOAP)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductOverviewDto {
+
+    private String sku;
+    private ProductDetailsDto product;
+    private StockAvailabilityDto availability;
+    private WarehouseStatusDto warehouse;
+
+    private Boolean complete;
+    private List<String> missingSections; // PRODUCT, AVAILABILITY, WAREHOUSE
+    private Long elapsedMs;
+    private String message;
+}
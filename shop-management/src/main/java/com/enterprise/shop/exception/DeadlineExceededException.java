@@ -0,0 +1,12 @@
+package com.enterprise.shop.exception;
+
+/**
+ * Thrown instead of calling product-stock when the inbound request's budget is
+ * already spent. Mapped to HTTP 504 by {@link GlobalExceptionHandler}.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
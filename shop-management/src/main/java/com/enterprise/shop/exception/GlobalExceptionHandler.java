@@ -2,6 +2,7 @@ package com.enterprise.shop.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -56,6 +57,35 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(ex.getStatusCode()).body(response);
     }
 
+    @ExceptionHandler(LoadSheddingException.class)
+    public ResponseEntity<Map<String, Object>> handleLoadShedding(LoadSheddingException ex) {
+        logger.warn("Load shed: {}", ex.getMessage());
+        
+        Map<String, Object> response = buildErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                "Service Overloaded",
+                ex.getMessage()
+        );
+        response.put("operation", ex.getOperation());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleDeadlineExceeded(DeadlineExceededException ex) {
+        logger.warn("Deadline exceeded: {}", ex.getMessage());
+        
+        Map<String, Object> response = buildErrorResponse(
+                HttpStatus.GATEWAY_TIMEOUT,
+                "Deadline Exceeded",
+                ex.getMessage()
+        );
+
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, Object>> handleRuntimeException(RuntimeException ex) {
         logger.error("Runtime error: {}", ex.getMessage(), ex);
@@ -0,0 +1,26 @@
+package com.enterprise.shop.exception;
+
+/**
+ * Thrown when a call to product-stock is rejected up front because the
+ * operation's adaptive concurrency limit is exhausted.
+ * Mapped to HTTP 503 with a Retry-After hint by {@link GlobalExceptionHandler}.
+ */
+public class LoadSheddingException extends RuntimeException {
+
+    private final String operation;
+    private final int limit;
+
+    public LoadSheddingException(String operation, int limit) {
+        super("product-stock is overloaded: concurrency limit " + limit + " reached for " + operation);
+        this.operation = operation;
+        this.limit = limit;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
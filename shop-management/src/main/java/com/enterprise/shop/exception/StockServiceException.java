@@ -0,0 +1,25 @@
+package com.enterprise.shop.exception;
+
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Raised by the product-stock clients when the service answers with an error status.
+ * Client errors (4xx) are business outcomes and do not count against the circuit breakers.
+ */
+public class StockServiceException extends RuntimeException {
+
+    private final int statusCode;
+
+    public StockServiceException(HttpStatusCode statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode.value();
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isClientError() {
+        return statusCode >= 400 && statusCode < 500;
+    }
+}
@@ -0,0 +1,87 @@
+package com.enterprise.shop.jfr;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebClient filter that records an {@link UpstreamCallEvent} per exchange
+ *
+ * Request and response bodies are counted as they are written and read; the
+ * event is committed once the response body is consumed (or released), or when
+ * the exchange fails or is cancelled (hedged and timed-out calls). Registered
+ * last, so it sees the instance chosen by the load balancer. Passes requests
+ * through untouched while the event is disabled.
+ */
+public class FlightRecorderExchangeFilter implements ExchangeFilterFunction {
+
+    private final String protocol;
+
+    public FlightRecorderExchangeFilter(String protocol) {
+        this.protocol = protocol;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            UpstreamCallEvent event = new UpstreamCallEvent();
+            if (!event.isEnabled()) {
+                return next.exchange(request);
+            }
+            AtomicLong requestBytes = new AtomicLong();
+            AtomicLong responseBytes = new AtomicLong();
+            AtomicBoolean done = new AtomicBoolean();
+            BodyInserter<?, ? super ClientHttpRequest> body = request.body();
+            ClientRequest counted = ClientRequest.from(request)
+                    .body((outputMessage, context) -> body.insert(new ClientHttpRequestDecorator(outputMessage) {
+                        @Override
+                        public Mono<Void> writeWith(Publisher<? extends DataBuffer> buffers) {
+                            return super.writeWith(Flux.from(buffers)
+                                    .doOnNext(buffer -> requestBytes.addAndGet(buffer.readableByteCount())));
+                        }
+                    }, context))
+                    .build();
+
+            event.begin();
+            return next.exchange(counted)
+                    .map(response -> response.mutate()
+                            .body(buffers -> buffers
+                                    .doOnNext(buffer -> responseBytes.addAndGet(buffer.readableByteCount()))
+                                    .doFinally(signal -> commit(event, done, request, response.statusCode().value(),
+                                            requestBytes.get(), responseBytes.get(), null)))
+                            .build())
+                    .doOnError(ex -> commit(event, done, request, 0, requestBytes.get(), 0,
+                            ex.getClass().getSimpleName()))
+                    .doOnCancel(() -> commit(event, done, request, 0, requestBytes.get(), 0, "cancelled"));
+        });
+    }
+
+    private void commit(UpstreamCallEvent event, AtomicBoolean done, ClientRequest request, int status,
+                        long requestBytes, long responseBytes, String failure) {
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.protocol = protocol;
+            event.method = request.method().name();
+            event.url = request.url().toString();
+            event.status = status;
+            event.requestBytes = requestBytes;
+            event.responseBytes = responseBytes;
+            event.failure = failure;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.enterprise.shop.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one HTTP exchange with product-stock (every attempt of a retried
+ * call is its own event). The duration runs from sending the request until the
+ * response body has been read.
+ */
+@Name("com.enterprise.shop.UpstreamCall")
+@Label("Upstream Call")
+@Category({"Enterprise", "Shop Management"})
+@Description("REST, GraphQL or SOAP exchange with product-stock")
+@StackTrace(false)
+public class UpstreamCallEvent extends Event {
+
+    @Label("Protocol")
+    public String protocol;
+
+    @Label("Operation")
+    @Description("SOAP operation; REST and GraphQL calls are identified by method and URL")
+    public String operation;
+
+    @Label("Method")
+    public String method;
+
+    @Label("URL")
+    public String url;
+
+    @Label("Status")
+    @Description("HTTP status, 0 if no response was received")
+    public int status;
+
+    @Label("Request Bytes")
+    @DataAmount
+    public long requestBytes;
+
+    @Label("Response Bytes")
+    @DataAmount
+    public long responseBytes;
+
+    @Label("Failure")
+    public String failure;
+}
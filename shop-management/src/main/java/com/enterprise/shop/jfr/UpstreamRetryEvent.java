@@ -0,0 +1,34 @@
+package com.enterprise.shop.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a retry scheduled by RetryPolicy, recorded when the backoff starts.
+ */
+@Name("com.enterprise.shop.UpstreamRetry")
+@Label("Upstream Retry")
+@Category({"Enterprise", "Shop Management"})
+@Description("Retry of a failed call to product-stock")
+@StackTrace(false)
+public class UpstreamRetryEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Retry")
+    @Description("1 for the first retry")
+    public long retry;
+
+    @Label("Backoff")
+    @Timespan(Timespan.MILLISECONDS)
+    public long backoff;
+
+    @Label("Failure")
+    public String failure;
+}
@@ -0,0 +1,76 @@
+package com.enterprise.shop.loadbalancer;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * WebClient filter that sends each request to the instance chosen by
+ * {@link StockLoadBalancer}. The request URL's scheme, host and port are
+ * replaced; path and query are kept. Transport errors and 5xx responses
+ * (other than a 504 deadline answer) count against the instance.
+ *
+ * The {@link TriedInstances} of a hedged attempt are captured as a request
+ * attribute when the request is built (see {@link #captureTriedInstances}),
+ * since the exchange itself runs on another thread.
+ */
+public class LoadBalancingExchangeFilter implements ExchangeFilterFunction {
+
+    public static final String TRIED_INSTANCES_ATTRIBUTE =
+            LoadBalancingExchangeFilter.class.getName() + ".triedInstances";
+
+    private final StockLoadBalancer loadBalancer;
+
+    public LoadBalancingExchangeFilter(StockLoadBalancer loadBalancer) {
+        this.loadBalancer = loadBalancer;
+    }
+
+    /**
+     * For WebClient.Builder#defaultRequest.
+     */
+    public static void captureTriedInstances(WebClient.RequestHeadersSpec<?> spec) {
+        TriedInstances tried = TriedInstances.get();
+        if (tried != null) {
+            spec.attribute(TRIED_INSTANCES_ATTRIBUTE, tried);
+        }
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            StockInstance instance = loadBalancer.choose(request.attribute(TRIED_INSTANCES_ATTRIBUTE)
+                    .map(TriedInstances.class::cast)
+                    .orElse(null));
+            ClientRequest routed = ClientRequest.from(request)
+                    .url(instance.resolve(request.url()))
+                    .build();
+
+            AtomicBoolean done = new AtomicBoolean();
+            long start = loadBalancer.begin(instance);
+            return next.exchange(routed)
+                    .doOnSuccess(response -> {
+                        if (done.compareAndSet(false, true)) {
+                            // 504 means the propagated deadline ran out, not that the instance is unwell
+                            boolean failed = response != null && response.statusCode().is5xxServerError()
+                                    && response.statusCode().value() != 504;
+                            loadBalancer.complete(instance, start, failed, true);
+                        }
+                    })
+                    .doOnError(ex -> {
+                        if (done.compareAndSet(false, true)) {
+                            loadBalancer.complete(instance, start, true, true);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (done.compareAndSet(false, true)) {
+                            loadBalancer.complete(instance, start, false, false);
+                        }
+                    });
+        });
+    }
+}
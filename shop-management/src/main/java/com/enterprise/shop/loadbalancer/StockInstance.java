@@ -0,0 +1,121 @@
+package com.enterprise.shop.loadbalancer;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One product-stock instance as seen by {@link StockLoadBalancer}:
+ * outstanding requests, EWMA latency and outlier-ejection state.
+ */
+public class StockInstance {
+
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final long MIN_LATENCY_NANOS = 1_000_000;
+
+    private final URI baseUri;
+    private final String id;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong ejections = new AtomicLong();
+    private double ewmaLatencyNanos = MIN_LATENCY_NANOS;
+    private int consecutiveFailures;
+    private int ejectionStreak;
+    private volatile long ejectedUntilNanos;
+    private volatile boolean ejected;
+
+    public StockInstance(URI baseUri) {
+        this.baseUri = baseUri;
+        this.id = idOf(baseUri);
+    }
+
+    /**
+     * host:port of a base URI, with the scheme's default port filled in.
+     */
+    static String idOf(URI baseUri) {
+        int port = baseUri.getPort() != -1 ? baseUri.getPort() : ("https".equals(baseUri.getScheme()) ? 443 : 80);
+        return baseUri.getHost() + ":" + port;
+    }
+
+    /**
+     * Re-targets a request URI (built against the configured base-url) at this instance,
+     * keeping path and query.
+     */
+    public URI resolve(URI requestUri) {
+        String path = requestUri.getRawPath() != null ? requestUri.getRawPath() : "";
+        String query = requestUri.getRawQuery() != null ? "?" + requestUri.getRawQuery() : "";
+        return URI.create(baseUri.getScheme() + "://" + baseUri.getRawAuthority() + path + query);
+    }
+
+    /**
+     * Lower is better: expected wait if one more request is queued behind the outstanding ones.
+     */
+    double score() {
+        synchronized (this) {
+            return (outstanding.get() + 1) * ewmaLatencyNanos;
+        }
+    }
+
+    void begin() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * @return true if this failure crossed the threshold and the instance should be ejected
+     */
+    synchronized boolean complete(long latencyNanos, boolean failed, boolean measured, int failureThreshold) {
+        outstanding.decrementAndGet();
+        if (failed) {
+            return ++consecutiveFailures >= failureThreshold && !ejected;
+        }
+        consecutiveFailures = 0;
+        ejectionStreak = 0;
+        if (measured) {
+            ewmaLatencyNanos += EWMA_WEIGHT * (Math.max(latencyNanos, MIN_LATENCY_NANOS) - ewmaLatencyNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Ejects for baseNanos, doubling on each ejection without a success in between, up to maxNanos.
+     */
+    synchronized void eject(long baseNanos, long maxNanos) {
+        long duration = Math.min(maxNanos, baseNanos << Math.min(ejectionStreak, 16));
+        ejectionStreak++;
+        ejectedUntilNanos = System.nanoTime() + duration;
+        ejected = true;
+        ejections.incrementAndGet();
+    }
+
+    synchronized void readmit() {
+        ejected = false;
+        consecutiveFailures = 0;
+    }
+
+    boolean isEjected() {
+        return ejected;
+    }
+
+    boolean ejectionElapsed() {
+        return System.nanoTime() - ejectedUntilNanos >= 0;
+    }
+
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public long getEjections() {
+        return ejections.get();
+    }
+
+    public boolean isHealthy() {
+        return !ejected;
+    }
+}
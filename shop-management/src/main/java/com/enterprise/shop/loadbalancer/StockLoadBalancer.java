@@ -0,0 +1,302 @@
+package com.enterprise.shop.loadbalancer;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Client-side load balancer over the product-stock instances
+ *
+ * Instances come from stock-service.load-balancer.instances (static list) or,
+ * with discovery=dns, from every address the base-url host resolves to.
+ * Each request goes to the better of two randomly chosen healthy instances
+ * (power of two choices), scored by outstanding requests x EWMA latency.
+ *
+ * An instance that fails failure-threshold times in a row is ejected for
+ * ejection-time (doubling while it keeps failing) and readmitted once that
+ * time is up and its health endpoint answers 2xx. If every instance is
+ * ejected, all of them are used again rather than failing every request.
+ * The attempts of a hedged request go to different instances where possible
+ * ({@link TriedInstances}).
+ *
+ * Metrics (tagged by instance host:port): shop.stock.lb.outstanding,
+ * shop.stock.lb.healthy, shop.stock.lb.ejections.
+ */
+@Component
+public class StockLoadBalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockLoadBalancer.class);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, StockInstance> known = new ConcurrentHashMap<>();
+    private final Map<String, List<Meter>> instanceMeters = new ConcurrentHashMap<>();
+    private volatile List<StockInstance> instances = List.of();
+    private ScheduledExecutorService scheduler;
+    private HttpClient healthClient;
+
+    @Value("${stock-service.base-url}")
+    private String baseUrl;
+
+    @Value("${stock-service.load-balancer.instances:}")
+    private String staticInstances;
+
+    @Value("${stock-service.load-balancer.discovery:static}")
+    private String discovery;
+
+    @Value("${stock-service.load-balancer.dns-refresh-interval:30000}")
+    private long dnsRefreshInterval;
+
+    @Value("${stock-service.load-balancer.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${stock-service.load-balancer.ejection-time:10000}")
+    private long ejectionTime;
+
+    @Value("${stock-service.load-balancer.max-ejection-time:300000}")
+    private long maxEjectionTime;
+
+    @Value("${stock-service.load-balancer.health-check-interval:5000}")
+    private long healthCheckInterval;
+
+    @Value("${stock-service.load-balancer.health-check-path:/actuator/health}")
+    private String healthCheckPath;
+
+    public StockLoadBalancer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("stock-lb").daemon(true).factory());
+        healthClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+
+        if ("dns".equalsIgnoreCase(discovery)) {
+            refreshFromDns();
+            scheduler.scheduleWithFixedDelay(this::refreshFromDns,
+                    dnsRefreshInterval, dnsRefreshInterval, TimeUnit.MILLISECONDS);
+        } else {
+            List<URI> uris = StringUtils.hasText(staticInstances)
+                    ? Arrays.stream(staticInstances.split(",")).map(String::trim)
+                            .filter(StringUtils::hasText).map(URI::create).toList()
+                    : List.of(URI.create(baseUrl));
+            update(uris);
+        }
+        scheduler.scheduleWithFixedDelay(this::checkEjected,
+                healthCheckInterval, healthCheckInterval, TimeUnit.MILLISECONDS);
+        logger.info("Stock load balancer started with {} instance(s): {}", instances.size(),
+                instances.stream().map(StockInstance::getId).toList());
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Picks the instance for the next request (power of two choices among healthy instances).
+     */
+    public StockInstance choose() {
+        return choose(TriedInstances.get());
+    }
+
+    /**
+     * As {@link #choose()}, but avoiding instances another attempt of the same request
+     * already went to while any healthy instance is left; the pick is added to tried.
+     * @param tried null for a request that is not hedged
+     */
+    public StockInstance choose(TriedInstances tried) {
+        List<StockInstance> all = instances;
+        List<StockInstance> healthy = all.stream().filter(StockInstance::isHealthy).toList();
+        List<StockInstance> candidates = tried == null ? healthy
+                : healthy.stream().filter(instance -> !tried.contains(instance)).toList();
+        if (candidates.isEmpty()) {
+            candidates = healthy.isEmpty() ? all : healthy;
+        }
+        StockInstance chosen = pickOfTwo(candidates);
+        if (tried != null) {
+            tried.add(chosen);
+        }
+        return chosen;
+    }
+
+    private static StockInstance pickOfTwo(List<StockInstance> candidates) {
+        int size = candidates.size();
+        if (size == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        StockInstance a = candidates.get(first);
+        StockInstance b = candidates.get(second);
+        return a.score() <= b.score() ? a : b;
+    }
+
+    /**
+     * Runs a blocking call against a chosen instance, tracking it as outstanding.
+     * @param isInstanceFailure which exceptions count against the instance's health
+     */
+    public <T> T execute(Function<StockInstance, T> call, Predicate<Throwable> isInstanceFailure) {
+        StockInstance instance = choose();
+        long start = begin(instance);
+        try {
+            T result = call.apply(instance);
+            complete(instance, start, false, true);
+            return result;
+        } catch (RuntimeException ex) {
+            complete(instance, start, isInstanceFailure.test(ex), true);
+            throw ex;
+        }
+    }
+
+    public long begin(StockInstance instance) {
+        instance.begin();
+        return System.nanoTime();
+    }
+
+    /**
+     * @param failed true for transport errors and 5xx - anything that says the instance is unwell
+     * @param measured false when the call was cancelled, so its latency says nothing
+     */
+    public void complete(StockInstance instance, long startNanos, boolean failed, boolean measured) {
+        if (instance.complete(System.nanoTime() - startNanos, failed, measured, failureThreshold)) {
+            instance.eject(TimeUnit.MILLISECONDS.toNanos(ejectionTime),
+                    TimeUnit.MILLISECONDS.toNanos(maxEjectionTime));
+            logger.warn("Ejected product-stock instance {} after {} consecutive failures",
+                    instance.getId(), failureThreshold);
+        }
+    }
+
+    public List<StockInstance> getInstances() {
+        return instances;
+    }
+
+    private void checkEjected() {
+        for (StockInstance instance : instances) {
+            if (instance.isEjected() && instance.ejectionElapsed() && isHealthy(instance)) {
+                instance.readmit();
+                logger.info("Readmitted product-stock instance {}", instance.getId());
+            }
+        }
+    }
+
+    private boolean isHealthy(StockInstance instance) {
+        if (!StringUtils.hasText(healthCheckPath)) {
+            return true;
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(instance.getBaseUri().resolve(healthCheckPath))
+                    .timeout(Duration.ofSeconds(2))
+                    .GET()
+                    .build();
+            int status = healthClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status >= 200 && status < 300;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            logger.debug("Health check failed for {}: {}", instance.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void refreshFromDns() {
+        URI base = URI.create(baseUrl);
+        try {
+            List<URI> uris = new ArrayList<>();
+            for (InetAddress address : InetAddress.getAllByName(base.getHost())) {
+                uris.add(new URI(base.getScheme(), null, address.getHostAddress(), base.getPort(),
+                        base.getPath(), null, null));
+            }
+            update(uris);
+        } catch (UnknownHostException e) {
+            logger.warn("DNS lookup for {} failed, keeping {} known instance(s)", base.getHost(), instances.size());
+        } catch (Exception e) {
+            logger.warn("DNS refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Swaps in a new instance list, keeping the statistics of instances that remain
+     * and dropping the meters of instances that left.
+     */
+    private void update(List<URI> uris) {
+        List<StockInstance> updated = new ArrayList<>();
+        for (URI uri : uris) {
+            // Keyed by host:port like the meters, so a URI spelled differently maps to the same instance
+            StockInstance instance = known.computeIfAbsent(StockInstance.idOf(uri),
+                    id -> register(new StockInstance(uri)));
+            if (!updated.contains(instance)) {
+                updated.add(instance);
+            }
+        }
+        if (!updated.isEmpty()) {
+            instances = List.copyOf(updated);
+            for (StockInstance instance : List.copyOf(known.values())) {
+                if (!updated.contains(instance)) {
+                    unregister(instance);
+                }
+            }
+        }
+    }
+
+    private StockInstance register(StockInstance instance) {
+        Gauge outstanding = Gauge.builder("shop.stock.lb.outstanding", instance, StockInstance::getOutstanding)
+                .description("Requests in flight to a product-stock instance")
+                .tag("instance", instance.getId())
+                .register(meterRegistry);
+        Gauge healthy = Gauge.builder("shop.stock.lb.healthy", instance, i -> i.isHealthy() ? 1 : 0)
+                .description("1 if the product-stock instance receives traffic, 0 while ejected")
+                .tag("instance", instance.getId())
+                .register(meterRegistry);
+        FunctionCounter ejections = FunctionCounter.builder("shop.stock.lb.ejections", instance,
+                        StockInstance::getEjections)
+                .description("Times the product-stock instance was ejected")
+                .tag("instance", instance.getId())
+                .register(meterRegistry);
+        instanceMeters.put(instance.getId(), List.of(outstanding, healthy, ejections));
+        return instance;
+    }
+
+    private void unregister(StockInstance instance) {
+        known.remove(instance.getId(), instance);
+        List<Meter> meters = instanceMeters.remove(instance.getId());
+        if (meters != null) {
+            meters.forEach(meterRegistry::remove);
+        }
+        logger.info("Product-stock instance {} left the instance list", instance.getId());
+    }
+}
@@ -0,0 +1,48 @@
+package com.enterprise.shop.loadbalancer;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instances already tried by the attempts of one logical request
+ *
+ * {@link com.enterprise.shop.resilience.RequestHedger} puts one in place for
+ * each attempt of a hedged call; {@link StockLoadBalancer} records every instance
+ * it picks into it and prefers instances not in it, so a hedge does not go to the
+ * instance the primary is waiting on. Carried to SOAP worker threads by
+ * {@link TriedInstancesThreadLocalAccessor} and to WebClient exchanges as a request
+ * attribute ({@link LoadBalancingExchangeFilter#captureTriedInstances}).
+ */
+public final class TriedInstances {
+
+    private static final ThreadLocal<TriedInstances> CURRENT = new ThreadLocal<>();
+
+    private final Set<String> ids = ConcurrentHashMap.newKeySet();
+
+    public static TriedInstances get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param tried the instances to avoid on this thread, or null to clear
+     */
+    public static void set(TriedInstances tried) {
+        if (tried == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(tried);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    void add(StockInstance instance) {
+        ids.add(instance.getId());
+    }
+
+    boolean contains(StockInstance instance) {
+        return ids.contains(instance.getId());
+    }
+}
@@ -0,0 +1,32 @@
+package com.enterprise.shop.loadbalancer;
+
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * Carries {@link TriedInstances} to the threads SOAP calls run on, so a hedged
+ * SOAP call also avoids the instance its primary went to.
+ */
+public class TriedInstancesThreadLocalAccessor implements ThreadLocalAccessor<TriedInstances> {
+
+    public static final String KEY = "shop.lb.tried-instances";
+
+    @Override
+    public Object key() {
+        return KEY;
+    }
+
+    @Override
+    public TriedInstances getValue() {
+        return TriedInstances.get();
+    }
+
+    @Override
+    public void setValue(TriedInstances value) {
+        TriedInstances.set(value);
+    }
+
+    @Override
+    public void setValue() {
+        TriedInstances.clear();
+    }
+}
@@ -0,0 +1,85 @@
+package com.enterprise.shop.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AIMD (additive increase / multiplicative decrease) concurrency limiter
+ *
+ * Admits a call only while in-flight calls are below the current limit. The limit
+ * grows by one after a fast, successful call made while the limiter was at least
+ * half used, and shrinks by backoffRatio when a call fails or exceeds the latency
+ * threshold - so when product-stock slows down, shop-management sends it less work
+ * instead of queueing (and retrying) more.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile double limit;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, long latencyThresholdNanos) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Claims an in-flight slot without waiting.
+     * @return false if the limit is reached and the call must be shed
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= getLimit()) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a slot after a completed call and adapts the limit.
+     * @param rttNanos call duration
+     * @param failed true if the call failed or timed out
+     */
+    public void release(long rttNanos, boolean failed) {
+        int inflightBefore = inflight.getAndDecrement();
+        synchronized (this) {
+            if (failed || rttNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inflightBefore * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
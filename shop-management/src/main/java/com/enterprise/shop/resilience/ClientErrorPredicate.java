@@ -0,0 +1,18 @@
+package com.enterprise.shop.resilience;
+
+import com.enterprise.shop.exception.StockServiceException;
+
+import java.util.function.Predicate;
+
+/**
+ * Circuit breaker ignore-predicate: a 4xx from product-stock (unknown SKU,
+ * insufficient stock, validation) means the service is healthy, so it must
+ * neither open the breaker nor count as a success.
+ */
+public class ClientErrorPredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable throwable) {
+        return throwable instanceof StockServiceException e && e.isClientError();
+    }
+}
@@ -0,0 +1,66 @@
+package com.enterprise.shop.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds one {@link AdaptiveConcurrencyLimiter} per upstream operation and
+ * publishes its limit, in-flight count and rejections to Micrometer
+ * (shop.upstream.concurrency.*, tagged by operation).
+ */
+@Component
+public class ConcurrencyLimiterRegistry {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Value("${stock-service.concurrency.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${stock-service.concurrency.min-limit:2}")
+    private int minLimit;
+
+    @Value("${stock-service.concurrency.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${stock-service.concurrency.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${stock-service.concurrency.latency-threshold:2000}")
+    private long latencyThresholdMs;
+
+    public ConcurrencyLimiterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public AdaptiveConcurrencyLimiter limiter(String operation) {
+        return limiters.computeIfAbsent(operation, this::create);
+    }
+
+    private AdaptiveConcurrencyLimiter create(String operation) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(operation,
+                initialLimit, minLimit, maxLimit, backoffRatio,
+                TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs));
+
+        Gauge.builder("shop.upstream.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit for calls to product-stock")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        Gauge.builder("shop.upstream.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInflight)
+                .description("Calls to product-stock currently in flight")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        FunctionCounter.builder("shop.upstream.concurrency.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .description("Calls shed because the concurrency limit was reached")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        return limiter;
+    }
+}
@@ -0,0 +1,48 @@
+package com.enterprise.shop.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Last-known-good responses from product-stock read operations
+ *
+ * Every successful read is remembered; while a circuit breaker is open the
+ * clients answer from here instead of failing. Entries are bounded in number
+ * and age so an outage never serves arbitrarily stale stock figures.
+ */
+@Component
+public class FallbackResponseCache {
+
+    private final Cache<String, Object> cache;
+
+    public FallbackResponseCache(MeterRegistry meterRegistry,
+                                 @Value("${stock-service.fallback-cache.max-entries:10000}") long maxEntries,
+                                 @Value("${stock-service.fallback-cache.ttl:600000}") long ttlMs) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "shop.fallback.cache");
+    }
+
+    public <T> T put(String operation, String key, T value) {
+        if (value != null && key != null) {
+            cache.put(operation + ':' + key, value);
+        }
+        return value;
+    }
+
+    public <T> Optional<T> get(String operation, String key, Class<T> type) {
+        return Optional.ofNullable(cache.getIfPresent(operation + ':' + key))
+                .filter(type::isInstance)
+                .map(type::cast);
+    }
+}
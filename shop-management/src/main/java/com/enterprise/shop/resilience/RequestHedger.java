@@ -0,0 +1,253 @@
+package com.enterprise.shop.resilience;
+
+import com.enterprise.shop.loadbalancer.TriedInstances;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Request hedging for idempotent product-stock reads
+ *
+ * If a call has not answered after the operation's recent p95 (configurable)
+ * latency, an identical second call is sent and whichever succeeds first wins;
+ * the loser is cancelled. A failed attempt never fails the request while the other
+ * may still succeed; when both fail the primary's error is returned. The hedge
+ * goes to a different product-stock instance than the primary where one is
+ * available ({@link TriedInstances}).
+ *
+ * The delay percentile is taken over every attempt's latency, cancelled losers
+ * included (with the time they had run), so hedging does not hide the slow tail
+ * it is meant to cut.
+ *
+ * Hedges are paid for from a token budget: every call earns budget-ratio tokens
+ * (capped at budget-burst) and every hedge spends one, so hedges stay below
+ * roughly budget-ratio of traffic even when product-stock is slow across the board.
+ *
+ * Metrics (tagged by operation): shop.hedge.calls, shop.hedge.sent,
+ * shop.hedge.wins, shop.hedge.budget.exhausted, shop.hedge.delay (ms).
+ */
+@Component
+public class RequestHedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestHedger.class);
+    private static final int WINDOW_SIZE = 1024;
+    private static final int MIN_SAMPLES = 100;
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final MeterRegistry meterRegistry;
+    private final ContextSnapshotFactory contextSnapshots;
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    @Value("${stock-service.hedging.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stock-service.hedging.operations:checkAvailability,fetchProductDetails,getWarehouseStatus}")
+    private List<String> operations;
+
+    @Value("${stock-service.hedging.percentile:0.95}")
+    private double percentile;
+
+    @Value("${stock-service.hedging.initial-delay:200}")
+    private long initialDelayMs;
+
+    @Value("${stock-service.hedging.min-delay:20}")
+    private long minDelayMs;
+
+    @Value("${stock-service.hedging.max-delay:2000}")
+    private long maxDelayMs;
+
+    @Value("${stock-service.hedging.budget-ratio:0.1}")
+    private double budgetRatio;
+
+    @Value("${stock-service.hedging.budget-burst:10}")
+    private double budgetBurst;
+
+    public RequestHedger(MeterRegistry meterRegistry, ContextSnapshotFactory contextSnapshots) {
+        this.meterRegistry = meterRegistry;
+        this.contextSnapshots = contextSnapshots;
+    }
+
+    /**
+     * Hedges a reactive call. The supplier is invoked once per attempt, so it must
+     * build a fresh request each time. Re-subscribing the result (e.g. a retry) hedges again.
+     */
+    public <T> Mono<T> hedge(String operation, Supplier<Mono<T>> call) {
+        if (!enabled || !operations.contains(operation)) {
+            return call.get();
+        }
+        OperationStats op = stats.computeIfAbsent(operation, this::register);
+        // Captured at assembly: re-subscriptions (retries) run on timer threads
+        ContextSnapshot context = contextSnapshots.captureAll();
+
+        return Mono.defer(() -> {
+            op.calls.increment();
+            op.budget.earn();
+
+            TriedInstances tried = new TriedInstances();
+            AtomicReference<Throwable> primaryError = new AtomicReference<>();
+            Sinks.One<Boolean> primaryFailed = Sinks.one();
+            Mono<T> primary = timed(op, withContext(context, tried, call))
+                    .doOnError(ex -> {
+                        primaryError.set(ex);
+                        primaryFailed.tryEmitValue(true);
+                    });
+            // A hedge that was not sent before the primary failed is not sent at all
+            Mono<T> hedge = Mono.firstWithSignal(
+                            Mono.delay(Duration.ofMillis(op.delayMs())),
+                            primaryFailed.asMono().then(Mono.<Long>empty()))
+                    .flatMap(tick -> {
+                        if (!op.budget.trySpend()) {
+                            op.budgetExhausted.increment();
+                            return Mono.<T>empty();
+                        }
+                        op.sent.increment();
+                        logger.debug("Hedging {} after {} ms", operation, op.delayMs());
+                        return timed(op, withContext(context, tried, call))
+                                .doOnNext(value -> op.wins.increment())
+                                // A failed hedge leaves the primary to finish
+                                .onErrorResume(ex -> Mono.empty());
+                    });
+            // The first value wins; the request fails only when no attempt succeeded,
+            // with the primary's own error rather than the combined one
+            return Mono.firstWithValue(primary, hedge)
+                    .onErrorResume(NoSuchElementException.class, ex -> primaryError.get() != null
+                            ? Mono.error(primaryError.get())
+                            : Mono.empty());
+        });
+    }
+
+    /**
+     * Hedges a future-based call (SOAP). Cancelling the losing future does not
+     * interrupt a blocking call that is already running; its result is discarded.
+     */
+    public <T> CompletableFuture<T> hedgeFuture(String operation, Supplier<CompletableFuture<T>> call) {
+        if (!enabled || !operations.contains(operation)) {
+            return call.get();
+        }
+        // call.get() runs eagerly so a hedge is submitted while withContext has the caller's context in place
+        return hedge(operation, () -> Mono.fromFuture(call.get())).toFuture();
+    }
+
+    /**
+     * Records the latency of an attempt that answered or was cancelled; a cancelled
+     * loser ran at least that long, and leaving it out would pull the percentile
+     * down whenever hedges win.
+     */
+    private <T> Mono<T> timed(OperationStats op, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doFinally(signal -> {
+                if (signal != SignalType.ON_ERROR) {
+                    op.record(System.nanoTime() - start);
+                }
+            });
+        });
+    }
+
+    /**
+     * Builds a request with the caller's context (MDC, request deadline, current
+     * observation) and the request's tried instances in place, since it may be
+     * assembled on a timer thread.
+     */
+    private static <T> Mono<T> withContext(ContextSnapshot context, TriedInstances tried, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            try (ContextSnapshot.Scope scope = context.setThreadLocals()) {
+                TriedInstances previous = TriedInstances.get();
+                TriedInstances.set(tried);
+                try {
+                    return call.get();
+                } finally {
+                    TriedInstances.set(previous);
+                }
+            }
+        });
+    }
+
+    private OperationStats register(String operation) {
+        OperationStats op = new OperationStats();
+        op.calls = counter("shop.hedge.calls", "Hedge-eligible calls", operation);
+        op.sent = counter("shop.hedge.sent", "Hedged (duplicate) requests sent", operation);
+        op.wins = counter("shop.hedge.wins", "Hedged requests that answered first", operation);
+        op.budgetExhausted = counter("shop.hedge.budget.exhausted",
+                "Hedges skipped because the hedge budget was spent", operation);
+        Gauge.builder("shop.hedge.delay", op, OperationStats::delayMs)
+                .description("Current hedge delay in milliseconds")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        return op;
+    }
+
+    private Counter counter(String name, String description, String operation) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Latency window, cached hedge delay and hedge budget for one operation.
+     */
+    private class OperationStats {
+
+        private final AtomicLongArray latencies = new AtomicLongArray(WINDOW_SIZE);
+        private final AtomicLong samples = new AtomicLong();
+        private volatile long delayMs = initialDelayMs;
+        private volatile long delayComputedAt = System.nanoTime();
+        private final TokenBudget budget = new TokenBudget(budgetRatio, budgetBurst);
+
+        private Counter calls;
+        private Counter sent;
+        private Counter wins;
+        private Counter budgetExhausted;
+
+        void record(long nanos) {
+            long index = samples.getAndIncrement();
+            latencies.set(Math.floorMod(index, WINDOW_SIZE), nanos);
+        }
+
+        long delayMs() {
+            long now = System.nanoTime();
+            if (now - delayComputedAt > DELAY_REFRESH_NANOS) {
+                delayComputedAt = now;
+                delayMs = computeDelay();
+            }
+            return delayMs;
+        }
+
+        private long computeDelay() {
+            int count = (int) Math.min(samples.get(), WINDOW_SIZE);
+            if (count < MIN_SAMPLES) {
+                return initialDelayMs;
+            }
+            long[] window = new long[count];
+            for (int i = 0; i < count; i++) {
+                window[i] = latencies.get(i);
+            }
+            Arrays.sort(window);
+            long millis = TimeUnit.NANOSECONDS.toMillis(window[(int) Math.ceil(percentile * count) - 1]);
+            return Math.max(minDelayMs, Math.min(maxDelayMs, millis));
+        }
+    }
+}
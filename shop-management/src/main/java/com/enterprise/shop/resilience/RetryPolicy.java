@@ -0,0 +1,166 @@
+package com.enterprise.shop.resilience;
+
+import com.enterprise.shop.context.RequestDeadline;
+import com.enterprise.shop.exception.StockServiceException;
+import com.enterprise.shop.jfr.UpstreamRetryEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Central retry policy for calls to product-stock
+ *
+ * Only idempotent calls (or calls carrying an idempotency key) are retried on
+ * transport errors and 5xx; any call may be retried when the connection was
+ * refused, since then the request never reached product-stock. Client errors,
+ * 504 deadline answers and expired deadlines are never retried.
+ *
+ * Backoff uses full jitter: retry n waits a random time in
+ * [0, min(max-backoff, backoff-delay * 2^n)], and never past the request deadline.
+ * Retries are paid for from a per-operation {@link TokenBudget}, so they stay
+ * around budget-ratio of traffic while product-stock is failing.
+ *
+ * Metrics (tagged by operation): shop.retry.calls, shop.retry.retries,
+ * shop.retry.exhausted, shop.retry.budget.exhausted. Each retry is also
+ * recorded as an {@link UpstreamRetryEvent} for JFR.
+ */
+@Component
+public class RetryPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryPolicy.class);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    @Value("${stock-service.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${stock-service.retry.backoff-delay:1000}")
+    private long backoffDelayMs;
+
+    @Value("${stock-service.retry.max-backoff:5000}")
+    private long maxBackoffMs;
+
+    @Value("${stock-service.retry.budget-ratio:0.1}")
+    private double budgetRatio;
+
+    @Value("${stock-service.retry.budget-burst:10}")
+    private double budgetBurst;
+
+    public RetryPolicy(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Applies the policy to a call.
+     * @param idempotent true for reads, PUT/DELETE and calls sent with an idempotency key
+     */
+    public <T> Mono<T> apply(String operation, boolean idempotent, Mono<T> call) {
+        OperationStats op = stats.computeIfAbsent(operation, this::register);
+        // Captured on the caller's thread; retries are scheduled on timer threads
+        Long deadline = RequestDeadline.get();
+
+        return Mono.defer(() -> {
+            op.calls.increment();
+            op.budget.earn();
+            return call.retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                Throwable failure = signal.failure();
+                long retry = signal.totalRetries();
+                if (!isRetryable(failure, idempotent)) {
+                    return Mono.error(failure);
+                }
+                if (retry + 1 >= maxAttempts) {
+                    op.exhausted.increment();
+                    return Mono.error(failure);
+                }
+                long backoffMs = fullJitter(retry);
+                if (deadline != null && RequestDeadline.remainingMillis(deadline) <= backoffMs) {
+                    return Mono.error(failure);
+                }
+                if (!op.budget.trySpend()) {
+                    op.budgetExhausted.increment();
+                    return Mono.error(failure);
+                }
+                op.retries.increment();
+                UpstreamRetryEvent event = new UpstreamRetryEvent();
+                if (event.shouldCommit()) {
+                    event.operation = operation;
+                    event.retry = retry + 1;
+                    event.backoff = backoffMs;
+                    event.failure = failure.getClass().getSimpleName();
+                    event.commit();
+                }
+                logger.debug("Retrying {} in {} ms (retry {}): {}", operation, backoffMs, retry + 1,
+                        failure.getMessage());
+                return Mono.delay(Duration.ofMillis(backoffMs));
+            })));
+        });
+    }
+
+    private long fullJitter(long retry) {
+        long ceiling = Math.min(maxBackoffMs, backoffDelayMs << Math.min(retry, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static boolean isRetryable(Throwable failure, boolean idempotent) {
+        if (failure instanceof WebClientRequestException && failure.getCause() instanceof ConnectException) {
+            return true;
+        }
+        if (!idempotent) {
+            return false;
+        }
+        if (failure instanceof WebClientRequestException) {
+            return true;
+        }
+        if (failure instanceof StockServiceException e) {
+            return e.getStatusCode() >= 500 && e.getStatusCode() != 504;
+        }
+        if (failure instanceof WebClientResponseException e) {
+            return e.getStatusCode().is5xxServerError() && e.getStatusCode().value() != 504;
+        }
+        return false;
+    }
+
+    private OperationStats register(String operation) {
+        OperationStats op = new OperationStats(new TokenBudget(budgetRatio, budgetBurst));
+        op.calls = counter("shop.retry.calls", "Calls subject to the retry policy", operation);
+        op.retries = counter("shop.retry.retries", "Retries sent", operation);
+        op.exhausted = counter("shop.retry.exhausted", "Calls that failed after max-attempts", operation);
+        op.budgetExhausted = counter("shop.retry.budget.exhausted",
+                "Retries skipped because the retry budget was spent", operation);
+        return op;
+    }
+
+    private Counter counter(String name, String description, String operation) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static class OperationStats {
+
+        private final TokenBudget budget;
+        private Counter calls;
+        private Counter retries;
+        private Counter exhausted;
+        private Counter budgetExhausted;
+
+        OperationStats(TokenBudget budget) {
+            this.budget = budget;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.enterprise.shop.resilience;
+
+/**
+ * Token bucket that keeps optional extra requests (retries, hedges) to a fraction
+ * of real traffic: every call earns ratio tokens, capped at burst, and every extra
+ * request spends one whole token.
+ */
+public class TokenBudget {
+
+    private final double ratio;
+    private final double burst;
+    private double tokens;
+
+    public TokenBudget(double ratio, double burst) {
+        this.ratio = ratio;
+        this.burst = burst;
+        this.tokens = burst;
+    }
+
+    public synchronized void earn() {
+        tokens = Math.min(burst, tokens + ratio);
+    }
+
+    public synchronized boolean trySpend() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
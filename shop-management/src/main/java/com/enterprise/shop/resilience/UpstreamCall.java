@@ -0,0 +1,85 @@
+package com.enterprise.shop.resilience;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Outcome of the calls to product-stock made by one orchestration operation
+ *
+ * StockOrchestrationService answers most upstream failures with an error DTO
+ * rather than an exception, so the aspects around it (concurrency limit, use case
+ * metrics) cannot tell from the result whether product-stock failed. They open an
+ * UpstreamCall on the calling thread for the duration of the operation, and
+ * UpstreamFailureAspect records into it the first exception a stock client threw
+ * or completed its future with, whatever the service made of it afterwards.
+ */
+public final class UpstreamCall {
+
+    private static final ThreadLocal<UpstreamCall> CURRENT = new ThreadLocal<>();
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private int depth;
+
+    private UpstreamCall() {
+    }
+
+    /**
+     * Joins the call already open on this thread (the aspects nest), or opens one.
+     * Must be paired with {@link #close()} on the same thread.
+     */
+    public static UpstreamCall open() {
+        UpstreamCall call = CURRENT.get();
+        if (call == null) {
+            call = new UpstreamCall();
+            CURRENT.set(call);
+        }
+        call.depth++;
+        return call;
+    }
+
+    /**
+     * The call open on this thread, or null outside an orchestration operation.
+     */
+    public static UpstreamCall current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Records a failure against the call open on this thread, if any.
+     */
+    public static void recordFailure(Throwable failure) {
+        UpstreamCall call = CURRENT.get();
+        if (call != null) {
+            call.fail(failure);
+        }
+    }
+
+    public void close() {
+        if (--depth == 0) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Keeps the first failure; later ones are usually consequences of it.
+     */
+    public void fail(Throwable failure) {
+        this.failure.compareAndSet(null, unwrap(failure));
+    }
+
+    /**
+     * @return the first upstream failure, or null if every call succeeded
+     */
+    public Throwable failure() {
+        return failure.get();
+    }
+
+    public static Throwable unwrap(Throwable failure) {
+        while ((failure instanceof CompletionException || failure instanceof ExecutionException)
+                && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+}
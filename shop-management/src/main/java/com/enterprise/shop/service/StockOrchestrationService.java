@@ -2,12 +2,26 @@ package com.enterprise.shop.service;
 
 import com.enterprise.shop.client.StockGraphQLClient;
 import com.enterprise.shop.client.StockRestClient;
+import com.enterprise.shop.context.RequestDeadline;
 import com.enterprise.shop.dto.*;
-import com.enterprise.shop.soap.client.StockSoapClient;
+import com.enterprise.shop.resilience.UpstreamCall;
+import com.enterprise.shop.soap.client.StockSoapAsyncClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * Stock Orchestration Service
  * Orchestrates all calls to the product-stock service using various protocols
@@ -19,14 +33,26 @@ public class StockOrchestrationService {
 
     private final StockRestClient restClient;
     private final StockGraphQLClient graphQLClient;
-    private final StockSoapClient soapClient;
+    private final StockSoapAsyncClient soapAsyncClient;
+    private final ExecutorService orchestrationExecutor;
+
+    @Value("${stock-service.overview.product-timeout:3000}")
+    private long productTimeoutMs;
+
+    @Value("${stock-service.overview.availability-timeout:2000}")
+    private long availabilityTimeoutMs;
+
+    @Value("${stock-service.overview.warehouse-timeout:3000}")
+    private long warehouseTimeoutMs;
 
     public StockOrchestrationService(StockRestClient restClient,
                                      StockGraphQLClient graphQLClient,
-                                     StockSoapClient soapClient) {
+                                     StockSoapAsyncClient soapAsyncClient,
+                                     @Qualifier("orchestrationExecutor") ExecutorService orchestrationExecutor) {
         this.restClient = restClient;
         this.graphQLClient = graphQLClient;
-        this.soapClient = soapClient;
+        this.soapAsyncClient = soapAsyncClient;
+        this.orchestrationExecutor = orchestrationExecutor;
     }
 
     // ==========================================================================
@@ -77,6 +103,30 @@ public class StockOrchestrationService {
         }
     }
 
+    /**
+     * Reserve all lines of an order in a single call (REST POST)
+     */
+    public BatchReservationDto reserveStockBatch(BatchReservationDto batch) {
+        logger.info("Orchestrating batch stock reservation for Order: {}", batch.getOrderId());
+        try {
+            BatchReservationDto response = restClient.reserveStockBatch(batch);
+            logger.info("Batch reservation completed for Order: {} - Status: {}, Reserved: {}/{}",
+                    batch.getOrderId(), response.getStatus(), response.getSuccessCount(), response.getTotalLines());
+            return response;
+        } catch (Exception e) {
+            logger.error("Batch reservation failed for Order: {}", batch.getOrderId(), e);
+            return BatchReservationDto.builder()
+                    .orderId(batch.getOrderId())
+                    .mode(batch.getMode())
+                    .totalLines(batch.getLines() != null ? batch.getLines().size() : 0)
+                    .successCount(0)
+                    .success(false)
+                    .status("FAILED")
+                    .message("Batch reservation failed: " + e.getMessage())
+                    .build();
+        }
+    }
+
     /**
      * Use Case 3: Update stock threshold (REST PUT)
      */
@@ -162,41 +212,59 @@ public class StockOrchestrationService {
      * Use Case 4: Bulk stock update (SOAP)
      */
     public BulkStockUpdateDto bulkStockUpdate(BulkStockUpdateDto request) {
+        return bulkStockUpdateAsync(request).join();
+    }
+
+    /**
+     * Use Case 4: Bulk stock update (SOAP, async - does not hold the caller's thread)
+     */
+    public CompletableFuture<BulkStockUpdateDto> bulkStockUpdateAsync(BulkStockUpdateDto request) {
         logger.info("Orchestrating bulk stock update via SOAP - Items: {}", 
                 request.getItems() != null ? request.getItems().size() : 0);
-        try {
-            BulkStockUpdateDto response = soapClient.bulkStockUpdate(request);
-            logger.info("Bulk update completed - Success: {}, Failed: {}", 
-                    response.getSuccessCount(), response.getFailureCount());
-            return response;
-        } catch (Exception e) {
-            logger.error("Bulk stock update failed", e);
-            return BulkStockUpdateDto.builder()
-                    .batchId(request.getBatchId())
-                    .status("FAILED")
-                    .message("Bulk update failed: " + e.getMessage())
-                    .build();
-        }
+        return soapAsyncClient.bulkStockUpdateAsync(request)
+                .thenApply(response -> {
+                    logger.info("Bulk update completed - Success: {}, Failed: {}", 
+                            response.getSuccessCount(), response.getFailureCount());
+                    return response;
+                })
+                .exceptionally(e -> {
+                    Throwable cause = unwrap(e);
+                    logger.error("Bulk stock update failed", cause);
+                    return BulkStockUpdateDto.builder()
+                            .batchId(request.getBatchId())
+                            .status("FAILED")
+                            .message("Bulk update failed: " + cause.getMessage())
+                            .build();
+                });
     }
 
     /**
      * Use Case 5: Legacy warehouse status check (SOAP)
      */
     public WarehouseStatusDto getWarehouseStatus(String warehouseCode) {
+        return getWarehouseStatusAsync(warehouseCode).join();
+    }
+
+    /**
+     * Use Case 5: Legacy warehouse status check (SOAP, async - does not hold the caller's thread)
+     */
+    public CompletableFuture<WarehouseStatusDto> getWarehouseStatusAsync(String warehouseCode) {
         logger.info("Orchestrating warehouse status check via SOAP for: {}", warehouseCode);
-        try {
-            WarehouseStatusDto response = soapClient.getWarehouseStatus(warehouseCode);
-            logger.info("Warehouse status retrieved for: {} - Status: {}", 
-                    warehouseCode, response.getStatus());
-            return response;
-        } catch (Exception e) {
-            logger.error("Warehouse status check failed for: {}", warehouseCode, e);
-            return WarehouseStatusDto.builder()
-                    .warehouseCode(warehouseCode)
-                    .isOperational(false)
-                    .message("Status check failed: " + e.getMessage())
-                    .build();
-        }
+        return soapAsyncClient.getWarehouseStatusAsync(warehouseCode)
+                .thenApply(response -> {
+                    logger.info("Warehouse status retrieved for: {} - Status: {}", 
+                            warehouseCode, response.getStatus());
+                    return response;
+                })
+                .exceptionally(e -> {
+                    Throwable cause = unwrap(e);
+                    logger.error("Warehouse status check failed for: {}", warehouseCode, cause);
+                    return WarehouseStatusDto.builder()
+                            .warehouseCode(warehouseCode)
+                            .isOperational(false)
+                            .message("Status check failed: " + cause.getMessage())
+                            .build();
+                });
     }
 
     // ==========================================================================
@@ -241,4 +309,102 @@ public class StockOrchestrationService {
                     .build();
         }
     }
+
+    // ==========================================================================
+    // Composite Operations
+    // ==========================================================================
+
+    /**
+     * Product overview: product details (GraphQL), availability (REST) and warehouse
+     * status (SOAP) fetched concurrently, so latency is the slowest branch rather than
+     * the sum. The branches call the clients directly, so a failed call surfaces as an
+     * exception rather than an error DTO. Each branch has its own timeout; a branch
+     * that times out or fails is left out and reported in missingSections instead of
+     * failing the whole overview. Without an explicit warehouseCode, the warehouse
+     * branch follows the availability branch and uses the warehouse it reports.
+     */
+    public ProductOverviewDto getProductOverview(String sku, String warehouseCode) {
+        logger.info("Orchestrating product overview for SKU: {}", sku);
+        long startTime = System.currentTimeMillis();
+        // Branch failures still count against the concurrency limit of the overview
+        UpstreamCall upstream = UpstreamCall.current();
+
+        CompletableFuture<ProductDetailsDto> product = branch("PRODUCT",
+                () -> graphQLClient.fetchProductDetails(sku), productTimeoutMs, upstream);
+        CompletableFuture<StockAvailabilityDto> availability = branch("AVAILABILITY",
+                () -> restClient.checkAvailability(sku), availabilityTimeoutMs, upstream);
+        CompletableFuture<WarehouseStatusDto> warehouse = warehouseCode != null
+                ? warehouseBranch(warehouseCode, upstream)
+                : availability.thenCompose(result -> result != null && result.getWarehouseCode() != null
+                        ? warehouseBranch(result.getWarehouseCode(), upstream)
+                        : CompletableFuture.completedFuture(null));
+
+        CompletableFuture.allOf(product, availability, warehouse).join();
+
+        List<String> missing = new ArrayList<>();
+        if (product.join() == null) missing.add("PRODUCT");
+        if (availability.join() == null) missing.add("AVAILABILITY");
+        if (warehouse.join() == null) missing.add("WAREHOUSE");
+
+        long elapsedMs = System.currentTimeMillis() - startTime;
+        logger.info("Product overview completed for SKU: {} in {}ms - Missing: {}", sku, elapsedMs, missing);
+
+        return ProductOverviewDto.builder()
+                .sku(sku)
+                .product(product.join())
+                .availability(availability.join())
+                .warehouse(warehouse.join())
+                .complete(missing.isEmpty())
+                .missingSections(missing.isEmpty() ? null : missing)
+                .elapsedMs(elapsedMs)
+                .message(missing.isEmpty()
+                        ? "Product overview retrieved successfully"
+                        : "Partial product overview - unavailable: " + String.join(", ", missing))
+                .build();
+    }
+
+    private CompletableFuture<WarehouseStatusDto> warehouseBranch(String warehouseCode, UpstreamCall upstream) {
+        return branch("WAREHOUSE", () -> soapAsyncClient.getWarehouseStatusAsync(warehouseCode).get(),
+                warehouseTimeoutMs, upstream);
+    }
+
+    /**
+     * Runs one blocking fan-out branch on the orchestration executor (which carries the
+     * caller's context), completing with null on timeout or failure. The branch's calls
+     * run with a request deadline of at most timeoutMs, so product-stock gives up on them
+     * too, and a branch still running at its timeout is interrupted.
+     */
+    private <T> CompletableFuture<T> branch(String section, Callable<T> call, long timeoutMs,
+                                            UpstreamCall upstream) {
+        long branchDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = orchestrationExecutor.submit(() -> {
+            // The executor restores the caller's deadline once the task is done
+            Long requestDeadline = RequestDeadline.get();
+            RequestDeadline.set(requestDeadline != null && requestDeadline - branchDeadline < 0
+                    ? requestDeadline : branchDeadline);
+            try {
+                result.complete(call.call());
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .exceptionally(ex -> {
+                    Throwable cause = UpstreamCall.unwrap(ex);
+                    if (cause instanceof TimeoutException) {
+                        task.cancel(true);
+                    }
+                    logger.warn("Product overview section {} unavailable: {}", section, cause.toString());
+                    if (upstream != null) {
+                        upstream.fail(cause);
+                    }
+                    return null;
+                });
+    }
+
+    private Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
 }
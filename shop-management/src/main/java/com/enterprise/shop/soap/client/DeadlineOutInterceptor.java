@@ -0,0 +1,42 @@
+package com.enterprise.shop.soap.client;
+
+import com.enterprise.shop.context.RequestDeadline;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+
+/**
+ * CXF out interceptor that sends the calling thread's remaining request budget
+ * as {@link RequestDeadline#HEADER} and caps the receive timeout at that budget.
+ * Runs before the HTTP conduit is prepared, which is where the timeout is read.
+ */
+public class DeadlineOutInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    public DeadlineOutInterceptor() {
+        super(Phase.SETUP);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void handleMessage(Message message) {
+        OptionalLong remaining = RequestDeadline.remainingMillis();
+        if (remaining.isEmpty()) {
+            return;
+        }
+        long remainingMs = Math.max(1, remaining.getAsLong());
+
+        Map<String, List<String>> headers = (Map<String, List<String>>) message.get(Message.PROTOCOL_HEADERS);
+        if (headers == null) {
+            headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            message.put(Message.PROTOCOL_HEADERS, headers);
+        }
+        headers.put(RequestDeadline.HEADER, new ArrayList<>(List.of(Long.toString(remainingMs))));
+        message.put(Message.RECEIVE_TIMEOUT, remainingMs);
+    }
+}
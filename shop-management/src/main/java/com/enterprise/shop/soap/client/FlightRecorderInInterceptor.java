@@ -0,0 +1,55 @@
+package com.enterprise.shop.soap.client;
+
+import com.enterprise.shop.jfr.UpstreamCallEvent;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * CXF in interceptor (responses and faults) that adds the HTTP status and response
+ * size to the {@link UpstreamCallEvent} started by {@link FlightRecorderOutInterceptor}.
+ */
+public class FlightRecorderInInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    public FlightRecorderInInterceptor() {
+        super(Phase.RECEIVE);
+    }
+
+    @Override
+    public void handleMessage(Message message) {
+        UpstreamCallEvent event = message.getExchange().get(UpstreamCallEvent.class);
+        if (event == null) {
+            return;
+        }
+        if (message.get(Message.RESPONSE_CODE) instanceof Integer status) {
+            event.status = status;
+        }
+        InputStream in = message.getContent(InputStream.class);
+        if (in == null) {
+            return;
+        }
+        message.setContent(InputStream.class, new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b >= 0) {
+                    event.responseBytes++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = in.read(b, off, len);
+                if (n > 0) {
+                    event.responseBytes += n;
+                }
+                return n;
+            }
+        });
+    }
+}
@@ -0,0 +1,75 @@
+package com.enterprise.shop.soap.client;
+
+import com.enterprise.shop.jfr.UpstreamCallEvent;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * CXF out interceptor that records an {@link UpstreamCallEvent} per SOAP call
+ *
+ * Counts the request bytes as they are written. Closing the request stream sends
+ * the call and, for the synchronous proxy, reads and unmarshals the response
+ * (counted by {@link FlightRecorderInInterceptor}), so the event is committed there.
+ */
+public class FlightRecorderOutInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    public FlightRecorderOutInterceptor() {
+        super(Phase.PRE_STREAM);
+    }
+
+    @Override
+    public void handleMessage(Message message) {
+        OutputStream out = message.getContent(OutputStream.class);
+        UpstreamCallEvent event = new UpstreamCallEvent();
+        if (out == null || !event.isEnabled()) {
+            return;
+        }
+        Exchange exchange = message.getExchange();
+        exchange.put(UpstreamCallEvent.class, event);
+        event.begin();
+        message.setContent(OutputStream.class, new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                event.requestBytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                event.requestBytes += len;
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } catch (IOException | RuntimeException e) {
+                    event.failure = e.getClass().getSimpleName();
+                    throw e;
+                } finally {
+                    commit(event, message);
+                }
+            }
+        });
+    }
+
+    private static void commit(UpstreamCallEvent event, Message message) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.protocol = "soap";
+            event.method = "POST";
+            event.url = (String) message.get(Message.ENDPOINT_ADDRESS);
+            if (message.getExchange().getBindingOperationInfo() != null) {
+                event.operation = message.getExchange().getBindingOperationInfo().getName().getLocalPart();
+            }
+            event.commit();
+        }
+    }
+}
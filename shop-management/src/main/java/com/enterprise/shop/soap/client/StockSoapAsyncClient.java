@@ -0,0 +1,140 @@
+package com.enterprise.shop.soap.client;
+
+import com.enterprise.shop.dto.BulkStockUpdateDto;
+import com.enterprise.shop.dto.WarehouseStatusDto;
+import com.enterprise.shop.context.RequestDeadline;
+import com.enterprise.shop.exception.DeadlineExceededException;
+import com.enterprise.shop.loadbalancer.StockLoadBalancer;
+import com.enterprise.shop.resilience.FallbackResponseCache;
+import com.enterprise.shop.resilience.RequestHedger;
+import com.enterprise.shop.resilience.UpstreamCall;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import jakarta.xml.ws.BindingProvider;
+import jakarta.xml.ws.WebServiceException;
+import jakarta.xml.ws.soap.SOAPFaultException;
+import org.apache.cxf.frontend.ClientProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade over the shared {@link StockSoapClient} proxy
+ *
+ * Calls run off the caller's (servlet) thread and return a CompletableFuture.
+ * At most maxConcurrentCalls SOAP calls are in flight; further calls wait up to
+ * acquireTimeoutMs for a slot and then fail with RejectedExecutionException.
+ * Calls go through the "stockSoap" circuit breaker; while it is open, warehouse
+ * status is served from {@link FallbackResponseCache}. Each call is sent to the
+ * product-stock instance chosen by {@link StockLoadBalancer}, set on the proxy's
+ * thread-local request context.
+ */
+public class StockSoapAsyncClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockSoapAsyncClient.class);
+    private static final String CIRCUIT_BREAKER = "stockSoap";
+
+    private final StockSoapClient soapClient;
+    private final ExecutorService executor;
+    private final FallbackResponseCache responseCache;
+    private final RequestHedger hedger;
+    private final StockLoadBalancer loadBalancer;
+    private final URI endpointAddress;
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+
+    public StockSoapAsyncClient(StockSoapClient soapClient, ExecutorService executor,
+                                FallbackResponseCache responseCache, RequestHedger hedger,
+                                StockLoadBalancer loadBalancer,
+                                int maxConcurrentCalls, long acquireTimeoutMs) {
+        this.soapClient = soapClient;
+        this.executor = executor;
+        this.responseCache = responseCache;
+        this.hedger = hedger;
+        this.loadBalancer = loadBalancer;
+        this.endpointAddress = URI.create(ClientProxy.getClient(soapClient).getEndpoint()
+                .getEndpointInfo().getAddress());
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    /**
+     * Use Case 4: SOAP - Bulk stock update (async)
+     */
+    @CircuitBreaker(name = CIRCUIT_BREAKER)
+    public CompletableFuture<BulkStockUpdateDto> bulkStockUpdateAsync(BulkStockUpdateDto request) {
+        return submit(() -> soapClient.bulkStockUpdate(request));
+    }
+
+    /**
+     * Use Case 5: SOAP - Legacy warehouse status check (async)
+     */
+    @CircuitBreaker(name = CIRCUIT_BREAKER, fallbackMethod = "getWarehouseStatusFromCache")
+    public CompletableFuture<WarehouseStatusDto> getWarehouseStatusAsync(String warehouseCode) {
+        return hedger.hedgeFuture("getWarehouseStatus",
+                        () -> submit(() -> soapClient.getWarehouseStatus(warehouseCode)))
+                .thenApply(status -> responseCache.put("warehouseStatus", warehouseCode, status));
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private CompletableFuture<WarehouseStatusDto> getWarehouseStatusFromCache(String warehouseCode,
+                                                                             CallNotPermittedException ex) {
+        UpstreamCall.recordFailure(ex);
+        logger.warn("Circuit {} open - serving cached status for warehouse: {}", CIRCUIT_BREAKER, warehouseCode);
+        return responseCache.get("warehouseStatus", warehouseCode, WarehouseStatusDto.class)
+                .map(CompletableFuture::completedFuture)
+                .orElseGet(() -> CompletableFuture.failedFuture(ex));
+    }
+
+    /**
+     * The executor runs the call with the caller's context (MDC, request deadline,
+     * current observation) in place.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            Long deadline = RequestDeadline.get();
+            boolean acquired = false;
+            try {
+                acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+                if (!acquired) {
+                    throw new RejectedExecutionException("SOAP concurrency limit reached");
+                }
+                if (deadline != null && RequestDeadline.remainingMillis(deadline) <= 0) {
+                    throw new DeadlineExceededException("Request deadline expired before SOAP call");
+                }
+                return loadBalancer.execute(instance -> {
+                    ((BindingProvider) soapClient).getRequestContext().put(
+                            BindingProvider.ENDPOINT_ADDRESS_PROPERTY,
+                            instance.resolve(endpointAddress).toString());
+                    return call.get();
+                }, StockSoapAsyncClient::isTransportFailure);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            } finally {
+                if (acquired) {
+                    permits.release();
+                }
+            }
+        }, executor);
+    }
+
+    /**
+     * SOAP faults are answers from a healthy instance; anything else from the JAX-WS
+     * runtime (connect, timeout, HTTP 5xx) counts against the instance.
+     */
+    private static boolean isTransportFailure(Throwable ex) {
+        return ex instanceof WebServiceException && !(ex instanceof SOAPFaultException);
+    }
+}
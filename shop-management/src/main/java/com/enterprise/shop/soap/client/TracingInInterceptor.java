@@ -0,0 +1,35 @@
+package com.enterprise.shop.soap.client;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.transport.RequestReplySenderContext;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+/**
+ * CXF in interceptor (responses and faults) that closes the client span opened by
+ * {@link TracingOutInterceptor}, tagged with the HTTP status.
+ */
+public class TracingInInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    public TracingInInterceptor() {
+        super(Phase.RECEIVE);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void handleMessage(Message message) {
+        if (!(message.getExchange().remove(Observation.class) instanceof Observation observation)) {
+            return;
+        }
+        Object status = message.get(Message.RESPONSE_CODE);
+        if (observation.getContext() instanceof RequestReplySenderContext<?, ?> context) {
+            ((RequestReplySenderContext<Message, Message>) context).setResponse(message);
+        }
+        observation.lowCardinalityKeyValue("status", status != null ? status.toString() : "0");
+        if (status instanceof Integer code && code >= 500) {
+            observation.highCardinalityKeyValue("error", "HTTP " + code);
+        }
+        observation.stop();
+    }
+}
@@ -0,0 +1,74 @@
+package com.enterprise.shop.soap.client;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.RequestReplySenderContext;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.BindingOperationInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * CXF out interceptor that opens a client span per SOAP call
+ *
+ * The span is a child of the caller's current observation and its W3C traceparent
+ * header is sent to product-stock. {@link TracingInInterceptor} closes it when the
+ * response or fault arrives; a call that fails before that is closed here.
+ */
+public class TracingOutInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    static final String OBSERVATION_NAME = "soap.client.requests";
+
+    private final ObservationRegistry observationRegistry;
+
+    public TracingOutInterceptor(ObservationRegistry observationRegistry) {
+        super(Phase.SETUP);
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public void handleMessage(Message message) {
+        RequestReplySenderContext<Message, Message> context =
+                new RequestReplySenderContext<>(TracingOutInterceptor::setHeader);
+        context.setCarrier(message);
+        context.setRemoteServiceName("product-stock");
+
+        BindingOperationInfo operation = message.getExchange().getBindingOperationInfo();
+        String operationName = operation != null ? operation.getName().getLocalPart() : "unknown";
+        Observation observation = Observation.createNotStarted(OBSERVATION_NAME, () -> context, observationRegistry)
+                .contextualName("soap " + operationName)
+                .lowCardinalityKeyValue("operation", operationName)
+                .highCardinalityKeyValue("url", String.valueOf(message.get(Message.ENDPOINT_ADDRESS)))
+                .start();
+        message.getExchange().put(Observation.class, observation);
+    }
+
+    @Override
+    public void handleFault(Message message) {
+        Exchange exchange = message.getExchange();
+        Observation observation = exchange.remove(Observation.class) instanceof Observation o ? o : null;
+        if (observation != null) {
+            Exception failure = message.getContent(Exception.class);
+            if (failure != null) {
+                observation.error(failure);
+            }
+            observation.lowCardinalityKeyValue("status", "0").stop();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void setHeader(Message message, String name, String value) {
+        Map<String, List<String>> headers = (Map<String, List<String>>) message.get(Message.PROTOCOL_HEADERS);
+        if (headers == null) {
+            headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            message.put(Message.PROTOCOL_HEADERS, headers);
+        }
+        headers.put(name, new ArrayList<>(List.of(value)));
+    }
+}
@@ -0,0 +1,104 @@
+package com.enterprise.shop.aspect;
+
+import com.enterprise.shop.client.StockGraphQLClient;
+import com.enterprise.shop.client.StockRestClient;
+import com.enterprise.shop.dto.StockAvailabilityDto;
+import com.enterprise.shop.dto.WarehouseStatusDto;
+import com.enterprise.shop.exception.StockServiceException;
+import com.enterprise.shop.resilience.AdaptiveConcurrencyLimiter;
+import com.enterprise.shop.resilience.ConcurrencyLimiterRegistry;
+import com.enterprise.shop.service.StockOrchestrationService;
+import com.enterprise.shop.soap.client.StockSoapAsyncClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.xml.ws.WebServiceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class ConcurrencyLimitAspectTest {
+
+    private final StockRestClient restClient = mock(StockRestClient.class);
+    private final StockSoapAsyncClient soapClient = mock(StockSoapAsyncClient.class);
+    private ConcurrencyLimiterRegistry limiters;
+    private StockOrchestrationService service;
+
+    @BeforeEach
+    void setUp() {
+        limiters = new ConcurrencyLimiterRegistry(new SimpleMeterRegistry());
+        setField(limiters, "initialLimit", 20);
+        setField(limiters, "minLimit", 2);
+        setField(limiters, "maxLimit", 200);
+        setField(limiters, "backoffRatio", 0.5);
+        setField(limiters, "latencyThresholdMs", 2000L);
+
+        UpstreamFailureAspect failures = new UpstreamFailureAspect();
+        service = proxy(new StockOrchestrationService(proxy(restClient, failures),
+                        proxy(mock(StockGraphQLClient.class), failures), proxy(soapClient, failures),
+                        Executors.newVirtualThreadPerTaskExecutor()),
+                new ConcurrencyLimitAspect(limiters));
+    }
+
+    @Test
+    void upstreamErrorAnsweredWithAnErrorDtoShrinksTheLimit() {
+        when(restClient.checkAvailability("SKU-1"))
+                .thenThrow(new StockServiceException(HttpStatus.SERVICE_UNAVAILABLE, "unavailable"));
+
+        StockAvailabilityDto answer = service.checkAvailability("SKU-1");
+
+        assertThat(answer.getStatus()).isEqualTo("ERROR");
+        assertThat(limiter("checkAvailability").getLimit()).isEqualTo(10);
+        assertThat(limiter("checkAvailability").getInflight()).isZero();
+    }
+
+    @Test
+    void clientErrorLeavesTheLimitAlone() {
+        when(restClient.checkAvailability("SKU-1"))
+                .thenThrow(new StockServiceException(HttpStatus.NOT_FOUND, "unknown SKU"));
+
+        service.checkAvailability("SKU-1");
+
+        assertThat(limiter("checkAvailability").getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void successLeavesTheLimitAlone() {
+        when(restClient.checkAvailability("SKU-1"))
+                .thenReturn(StockAvailabilityDto.builder().sku("SKU-1").isAvailable(true).build());
+
+        service.checkAvailability("SKU-1");
+
+        assertThat(limiter("checkAvailability").getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void failedFutureAnsweredWithAnErrorDtoShrinksTheLimit() {
+        when(soapClient.getWarehouseStatusAsync("WH-1"))
+                .thenReturn(CompletableFuture.failedFuture(new WebServiceException("connection refused")));
+
+        WarehouseStatusDto answer = service.getWarehouseStatusAsync("WH-1").join();
+
+        assertThat(answer.getIsOperational()).isFalse();
+        assertThat(limiter("getWarehouseStatus").getLimit()).isEqualTo(10);
+        assertThat(limiter("getWarehouseStatus").getInflight()).isZero();
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(String operation) {
+        return limiters.limiter(operation);
+    }
+
+    static <T> T proxy(T target, Object aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+}
@@ -0,0 +1,151 @@
+package com.enterprise.shop.aspect;
+
+import com.enterprise.shop.client.StockGraphQLClient;
+import com.enterprise.shop.client.StockRestClient;
+import com.enterprise.shop.dto.StockAvailabilityDto;
+import com.enterprise.shop.dto.StockReservationDto;
+import com.enterprise.shop.dto.WarehouseStatusDto;
+import com.enterprise.shop.exception.DeadlineExceededException;
+import com.enterprise.shop.exception.LoadSheddingException;
+import com.enterprise.shop.exception.StockServiceException;
+import com.enterprise.shop.service.StockOrchestrationService;
+import com.enterprise.shop.soap.client.StockSoapAsyncClient;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.xml.ws.WebServiceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+import static com.enterprise.shop.aspect.ConcurrencyLimitAspectTest.proxy;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class UseCaseMetricsAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StockRestClient restClient = mock(StockRestClient.class);
+    private final StockSoapAsyncClient soapClient = mock(StockSoapAsyncClient.class);
+    private StockOrchestrationService service;
+
+    @BeforeEach
+    void setUp() {
+        UseCaseMetricsAspect metrics = new UseCaseMetricsAspect(meterRegistry);
+        setField(metrics, "maxWarehouses", 2);
+
+        UpstreamFailureAspect failures = new UpstreamFailureAspect();
+        service = proxy(new StockOrchestrationService(proxy(restClient, failures),
+                        proxy(mock(StockGraphQLClient.class), failures), proxy(soapClient, failures),
+                        Executors.newVirtualThreadPerTaskExecutor()),
+                metrics);
+    }
+
+    @Test
+    void upstreamFailureAnsweredWithAnErrorDtoIsNotASuccess() {
+        when(restClient.checkAvailability("SKU-1"))
+                .thenThrow(new StockServiceException(HttpStatus.SERVICE_UNAVAILABLE, "unavailable"));
+
+        assertThat(service.checkAvailability("SKU-1").getStatus()).isEqualTo("ERROR");
+
+        assertThat(timer("checkAvailability", "server_error", "none").count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedFutureAnsweredWithAnErrorDtoIsNotASuccess() {
+        when(soapClient.getWarehouseStatusAsync("WH-1"))
+                .thenReturn(CompletableFuture.failedFuture(new WebServiceException("connection refused")));
+
+        assertThat(service.getWarehouseStatusAsync("WH-1").join().getIsOperational()).isFalse();
+
+        assertThat(timer("getWarehouseStatus", "server_error", "WH-1").count()).isEqualTo(1);
+    }
+
+    @Test
+    void openCircuitIsShed() {
+        when(restClient.checkAvailability("SKU-1")).thenThrow(
+                CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("stockRest")));
+
+        service.checkAvailability("SKU-1");
+
+        assertThat(timer("checkAvailability", "shed", "none").count()).isEqualTo(1);
+    }
+
+    @Test
+    void businessRejectionIsRejected() {
+        when(restClient.reserveStock(any())).thenReturn(StockReservationDto.builder()
+                .sku("SKU-1").warehouseCode("WH-1").success(false).status("REJECTED").build());
+
+        service.reserveStock(StockReservationDto.builder().sku("SKU-1").orderId("ORD-1").quantity(1).build());
+
+        assertThat(timer("reserveStock", "rejected", "WH-1").count()).isEqualTo(1);
+    }
+
+    @Test
+    void successTakesTheWarehouseFromTheAnswer() {
+        when(restClient.checkAvailability("SKU-1")).thenReturn(
+                StockAvailabilityDto.builder().sku("SKU-1").warehouseCode("WH-2").isAvailable(true).build());
+
+        service.checkAvailability("SKU-1");
+
+        assertThat(timer("checkAvailability", "success", "WH-2").count()).isEqualTo(1);
+    }
+
+    @Test
+    void outcomeMapping() {
+        StockServiceException notFound = new StockServiceException(HttpStatus.NOT_FOUND, "unknown SKU");
+        StockServiceException gatewayTimeout = new StockServiceException(HttpStatus.GATEWAY_TIMEOUT, "deadline");
+
+        assertThat(UseCaseMetricsAspect.outcome(null, null, null)).isEqualTo("success");
+        assertThat(UseCaseMetricsAspect.outcome(null, null, notFound)).isEqualTo("client_error");
+        assertThat(UseCaseMetricsAspect.outcome(null, null, gatewayTimeout)).isEqualTo("timeout");
+        assertThat(UseCaseMetricsAspect.outcome(null, null, new TimeoutException())).isEqualTo("timeout");
+        assertThat(UseCaseMetricsAspect.outcome(null, new DeadlineExceededException("expired"), null))
+                .isEqualTo("timeout");
+        assertThat(UseCaseMetricsAspect.outcome(null, new LoadSheddingException("searchStock", 2), null))
+                .isEqualTo("shed");
+        assertThat(UseCaseMetricsAspect.outcome(null, new CompletionException(notFound), null))
+                .isEqualTo("client_error");
+        // searchStock rethrows the client's exception wrapped: the upstream failure decides
+        assertThat(UseCaseMetricsAspect.outcome(null, new RuntimeException("Stock search failed", notFound),
+                notFound)).isEqualTo("client_error");
+        assertThat(UseCaseMetricsAspect.outcome(null, new IllegalStateException(), null))
+                .isEqualTo("server_error");
+    }
+
+    @Test
+    void warehouseTagStaysLowCardinality() {
+        when(soapClient.getWarehouseStatusAsync(any())).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                WarehouseStatusDto.builder().warehouseCode(invocation.getArgument(0)).isOperational(true).build()));
+
+        for (String warehouse : new String[] {"WH-1", "not a code!", "WH-2", "WH-3", "WH-1"}) {
+            service.getWarehouseStatus(warehouse);
+        }
+        when(restClient.checkAvailability("SKU-1")).thenReturn(StockAvailabilityDto.builder().sku("SKU-1").build());
+        service.checkAvailability("SKU-1");
+
+        assertThat(meterRegistry.get(UseCaseMetricsAspect.TIMER).tag("usecase", "getWarehouseStatus").timers())
+                .extracting(timer -> timer.getId().getTag("warehouse"))
+                .containsExactlyInAnyOrder("WH-1", "WH-2", "other");
+        assertThat(timer("getWarehouseStatus", "success", "WH-1").count()).isEqualTo(2);
+        assertThat(timer("getWarehouseStatus", "success", "other").count()).isEqualTo(2);
+        assertThat(timer("checkAvailability", "success", "none").count()).isEqualTo(1);
+    }
+
+    private Timer timer(String useCase, String outcome, String warehouse) {
+        return meterRegistry.get(UseCaseMetricsAspect.TIMER)
+                .tag("usecase", useCase)
+                .tag("outcome", outcome)
+                .tag("warehouse", warehouse)
+                .timer();
+    }
+}
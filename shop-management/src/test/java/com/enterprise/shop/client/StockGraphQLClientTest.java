@@ -0,0 +1,83 @@
+package com.enterprise.shop.client;
+
+import com.enterprise.shop.dto.ProductDetailsDto;
+import com.enterprise.shop.exception.StockServiceException;
+import com.enterprise.shop.resilience.ClientErrorPredicate;
+import com.enterprise.shop.resilience.FallbackResponseCache;
+import com.enterprise.shop.resilience.RequestHedger;
+import com.enterprise.shop.resilience.RetryPolicy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class StockGraphQLClientTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void errorStatusSurfacesAsStockServiceException() {
+        StockGraphQLClient client = client(HttpStatus.NOT_FOUND, "");
+
+        StockServiceException thrown = catchThrowableOfType(
+                () -> client.fetchProductDetails("SKU-1"), StockServiceException.class);
+
+        assertThat(thrown.getStatusCode()).isEqualTo(404);
+        assertThat(new ClientErrorPredicate().test(thrown)).isTrue();
+    }
+
+    @Test
+    void nestedProductIsFlattened() {
+        StockGraphQLClient client = client(HttpStatus.OK, """
+                {"data": {"product": {
+                    "sku": "SKU-1", "productName": "Widget", "isActive": true,
+                    "stock": {"stockCount": 10, "reservedCount": 3, "availableCount": 7, "warehouseCode": "WH-1",
+                        "warehouse": {"warehouseName": "Main", "warehouseLocation": "Berlin", "warehouseRegion": "EU"}}
+                }}}
+                """);
+
+        ProductDetailsDto details = client.fetchProductDetails("SKU-1");
+
+        assertThat(details.getProductName()).isEqualTo("Widget");
+        assertThat(details.getAvailableCount()).isEqualTo(7);
+        assertThat(details.getWarehouseCode()).isEqualTo("WH-1");
+        assertThat(details.getWarehouseLocation()).isEqualTo("Berlin");
+        assertThat(details.getWarehouseRegion()).isEqualTo("EU");
+    }
+
+    @Test
+    void unknownProductIsReportedAsNotFound() {
+        StockGraphQLClient client = client(HttpStatus.OK, "{\"data\": {\"product\": null}}");
+
+        ProductDetailsDto details = client.fetchProductDetails("SKU-9");
+
+        assertThat(details.getSku()).isEqualTo("SKU-9");
+        assertThat(details.getMessage()).isEqualTo("Product not found");
+    }
+
+    private StockGraphQLClient client(HttpStatus status, String body) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(status)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(body)
+                        .build()))
+                .build();
+        RetryPolicy retryPolicy = new RetryPolicy(meterRegistry);
+        setField(retryPolicy, "maxAttempts", 1);
+        return new StockGraphQLClient(webClient, new ObjectMapper().registerModule(new JavaTimeModule()),
+                new FallbackResponseCache(meterRegistry, 100, 60000),
+                new RequestHedger(meterRegistry, ContextSnapshotFactory.builder().build()),
+                retryPolicy, false);
+    }
+}
@@ -0,0 +1,49 @@
+package com.enterprise.shop.config;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JacksonConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(JacksonAutoConfiguration.class))
+            .withUserConfiguration(JacksonConfig.class)
+            .withPropertyValues(
+                    "spring.jackson.serialization.indent-output=false",
+                    "spring.jackson.deserialization.fail-on-unknown-properties=false",
+                    "spring.jackson.default-property-inclusion=non_null");
+
+    @Test
+    void wireMapperIsBuiltFromSpringJacksonProperties() {
+        contextRunner.run(context -> {
+            ObjectMapper wire = context.getBean(ObjectMapper.class);
+
+            assertThat(wire.isEnabled(SerializationFeature.INDENT_OUTPUT)).isFalse();
+            assertThat(wire.isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)).isFalse();
+            assertThat(wire.getSerializationConfig().getDefaultPropertyInclusion().getValueInclusion())
+                    .isEqualTo(JsonInclude.Include.NON_NULL);
+            assertThat(wire.getRegisteredModuleIds()).contains(
+                    "com.fasterxml.jackson.module.blackbird.BlackbirdModule",
+                    "jackson-datatype-jsr310");
+        });
+    }
+
+    @Test
+    void diagnosticsMapperPrettyPrintsACopy() {
+        contextRunner.run(context -> {
+            ObjectMapper diagnostics = context.getBean("diagnosticsObjectMapper", ObjectMapper.class);
+
+            assertThat(diagnostics).isNotSameAs(context.getBean(ObjectMapper.class));
+            assertThat(diagnostics.isEnabled(SerializationFeature.INDENT_OUTPUT)).isTrue();
+            assertThat(diagnostics.isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)).isFalse();
+        });
+    }
+}
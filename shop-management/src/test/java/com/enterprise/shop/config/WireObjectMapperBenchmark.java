@@ -0,0 +1,119 @@
+package com.enterprise.shop.config;
+
+import com.enterprise.shop.dto.StockSearchResponseDto;
+import com.enterprise.shop.dto.StockSearchResponseDto.PaginationInfo;
+import com.enterprise.shop.dto.StockSearchResponseDto.StockSearchItem;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing and reading a 500-item stock search response with the
+ * {@link JacksonConfig} wire mapper versus the mapper it replaced
+ *
+ * The old mapper pretty-printed everything and used reflection; reads went
+ * through treeToValue with a Class, as StockGraphQLClient did. The wire mapper is
+ * compact, uses Blackbird and a cached ObjectReader/ObjectWriter. The wire mapper
+ * is built from a Jackson2ObjectMapperBuilder carrying the spring.jackson.*
+ * settings of application.yml. Run with:
+ * java -cp target/test-classes:target/classes:&lt;test classpath&gt; org.openjdk.jmh.Main WireObjectMapperBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireObjectMapperBenchmark {
+
+    private ObjectMapper previousMapper;
+    private ObjectMapper wireMapper;
+    private ObjectWriter wireWriter;
+    private ObjectReader wireReader;
+    private StockSearchResponseDto response;
+    private byte[] indentedJson;
+    private byte[] compactJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        previousMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT);
+
+        JacksonConfig config = new JacksonConfig();
+        wireMapper = config.objectMapper(Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS,
+                        SerializationFeature.INDENT_OUTPUT,
+                        DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .modulesToInstall(config.blackbirdModule()));
+        wireWriter = wireMapper.writerFor(StockSearchResponseDto.class);
+        wireReader = wireMapper.readerFor(StockSearchResponseDto.class);
+
+        List<StockSearchItem> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            items.add(StockSearchItem.builder()
+                    .sku("SKU-" + i)
+                    .productName("Product " + i)
+                    .category("Category " + (i % 10))
+                    .quantity(100 + i)
+                    .reservedQuantity(i % 7)
+                    .availableQuantity(100 + i - i % 7)
+                    .warehouseCode("WH-" + (i % 3))
+                    .warehouseLocation("Aisle " + (i % 20))
+                    .stockStatus("IN_STOCK")
+                    .lastUpdated("2024-01-01T12:00:00")
+                    .build());
+        }
+        response = StockSearchResponseDto.builder()
+                .items(items)
+                .pagination(PaginationInfo.builder()
+                        .currentPage(0).pageSize(500).totalElements(500L).totalPages(1)
+                        .hasNext(false).hasPrevious(false)
+                        .build())
+                .build();
+        indentedJson = previousMapper.writeValueAsBytes(response);
+        compactJson = wireWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] writePrevious() throws IOException {
+        return previousMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] writeWire() throws IOException {
+        return wireWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public StockSearchResponseDto readPrevious() throws IOException {
+        return previousMapper.treeToValue(previousMapper.readTree(indentedJson), StockSearchResponseDto.class);
+    }
+
+    @Benchmark
+    public StockSearchResponseDto readWire() throws IOException {
+        return wireReader.readValue(wireMapper.readTree(compactJson));
+    }
+}
@@ -0,0 +1,242 @@
+package com.enterprise.shop.context;
+
+import com.enterprise.shop.config.ContextPropagationConfig;
+import com.enterprise.shop.config.OrchestrationConfig;
+import com.enterprise.shop.exception.StockServiceException;
+import com.enterprise.shop.resilience.RequestHedger;
+import com.enterprise.shop.resilience.RetryPolicy;
+import io.micrometer.context.ContextRegistry;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.context.ThreadLocalAccessor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * Many requests, each with its own traceId and deadline, run concurrently through
+ * every thread hop the shop makes: the orchestration executor, a retried
+ * bodyToMono chain and hedged calls. None of them may see another request's MDC
+ * or deadline, and pooled threads must be left clean.
+ */
+class RequestContextPropagationTest {
+
+    private static final int REQUESTS = 1000;
+    private static final int CONCURRENCY = 64;
+
+    private final Queue<String> leaks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger checked = new AtomicInteger();
+    private final Set<String> failedOnce = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService orchestrationExecutor;
+    private ExecutorService requestThreads;
+    private RetryPolicy retryPolicy;
+    private RequestHedger hedger;
+    private WebClient webClient;
+
+    @BeforeAll
+    static void enableReactorPropagation() {
+        // What spring.reactor.context-propagation=auto does in the application
+        Hooks.enableAutomaticContextPropagation();
+    }
+
+    @AfterAll
+    static void disableReactorPropagation() {
+        Hooks.disableAutomaticContextPropagation();
+    }
+
+    @BeforeEach
+    void setUp() {
+        ContextSnapshotFactory snapshots = new ContextPropagationConfig().contextSnapshotFactory();
+        orchestrationExecutor = new OrchestrationConfig().orchestrationExecutor(snapshots);
+        requestThreads = Executors.newFixedThreadPool(CONCURRENCY);
+
+        retryPolicy = new RetryPolicy(new SimpleMeterRegistry());
+        setField(retryPolicy, "maxAttempts", 3);
+        setField(retryPolicy, "backoffDelayMs", 1L);
+        setField(retryPolicy, "maxBackoffMs", 5L);
+        setField(retryPolicy, "budgetRatio", 1.0);
+        setField(retryPolicy, "budgetBurst", (double) REQUESTS);
+
+        // Hedge almost every call so both attempts race on timer threads
+        hedger = new RequestHedger(new SimpleMeterRegistry(), snapshots);
+        setField(hedger, "enabled", true);
+        setField(hedger, "operations", List.of("checkAvailability", "getWarehouseStatus"));
+        setField(hedger, "percentile", 0.95);
+        setField(hedger, "initialDelayMs", 1L);
+        setField(hedger, "minDelayMs", 1L);
+        setField(hedger, "maxDelayMs", 5L);
+        setField(hedger, "budgetRatio", 1.0);
+        setField(hedger, "budgetBurst", (double) REQUESTS);
+
+        webClient = WebClient.builder()
+                .defaultRequest(DeadlineExchangeFilter::captureDeadline)
+                .filter(new DeadlineExchangeFilter())
+                .exchangeFunction(this::exchange)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orchestrationExecutor.shutdownNow();
+        requestThreads.shutdownNow();
+        MDC.clear();
+        RequestDeadline.clear();
+    }
+
+    @Test
+    void accessorsAreRegisteredWithTheGlobalRegistry() {
+        assertThat(ContextRegistry.getInstance().getThreadLocalAccessors())
+                .extracting(ThreadLocalAccessor::key)
+                .contains(MdcThreadLocalAccessor.KEY, RequestDeadlineThreadLocalAccessor.KEY);
+    }
+
+    @Test
+    void concurrentRequestsNeverSeeEachOthersContext() throws Exception {
+        List<Future<?>> requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            String traceId = "trace-" + i;
+            // Distinct per request and far enough out that no call is cut short
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(5) + i;
+            requests.add(requestThreads.submit(() -> serve(traceId, deadline)));
+        }
+        for (Future<?> request : requests) {
+            request.get(60, TimeUnit.SECONDS);
+        }
+
+        assertThat(leaks).isEmpty();
+        // At least 13 checks per request, more for every hedge that was sent
+        assertThat(checked.get()).isGreaterThanOrEqualTo(REQUESTS * 13);
+        assertThat(failedOnce).hasSize(REQUESTS);
+        assertCleanAfterwards(Schedulers.parallel());
+        assertCleanAfterwards(Schedulers.boundedElastic());
+    }
+
+    private void serve(String traceId, long deadline) {
+        MDC.put("traceId", traceId);
+        RequestDeadline.set(deadline);
+        try {
+            String expected = traceId + "|" + deadline;
+
+            // Orchestration fan-out
+            check(expected, CompletableFuture.supplyAsync(this::seen, orchestrationExecutor).join(), "executor");
+
+            // Retried bodyToMono chain: the first attempt fails with a 503
+            check(expected, retryPolicy.apply("searchStock", true,
+                    webClient.get()
+                            .uri("/retry/{traceId}/{deadline}", traceId, deadline)
+                            .retrieve()
+                            .onStatus(HttpStatusCode::isError, response ->
+                                    Mono.error(new StockServiceException(response.statusCode(), "retry")))
+                            .bodyToMono(String.class)
+                            .map(body -> check(expected, seen(), "bodyToMono") + "|" + body))
+                    .block(), "retried call");
+
+            // Hedged WebClient call
+            check(expected, hedger.hedge("checkAvailability", () -> webClient.get()
+                            .uri("/hedge/{traceId}/{deadline}", traceId, deadline)
+                            .retrieve()
+                            .bodyToMono(String.class)
+                            .map(body -> check(expected, seen(), "hedged bodyToMono")))
+                    .block(), "hedged call");
+
+            // Hedged future (SOAP) call on the orchestration executor
+            check(expected, hedger.hedgeFuture("getWarehouseStatus", () -> CompletableFuture.supplyAsync(() -> {
+                sleepUpTo(5);
+                return seen();
+            }, orchestrationExecutor)).join(), "hedged future");
+
+            check(expected, seen(), "request thread");
+        } finally {
+            MDC.clear();
+            RequestDeadline.clear();
+        }
+    }
+
+    /**
+     * Stub of product-stock that answers on a Reactor timer thread and checks the
+     * request was sent with the caller's context and deadline.
+     */
+    private Mono<ClientResponse> exchange(ClientRequest request) {
+        String[] path = request.url().getPath().split("/");
+        String expected = path[2] + "|" + path[3];
+        check(expected, seen(), "exchange");
+        check(path[3], String.valueOf(request.attribute(DeadlineExchangeFilter.DEADLINE_ATTRIBUTE).orElse(null)),
+                "deadline attribute");
+        assertThat(request.headers().getFirst(RequestDeadline.HEADER)).isNotNull();
+
+        HttpStatus status = "retry".equals(path[1]) && failedOnce.add(path[2])
+                ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.OK;
+        return Mono.delay(Duration.ofMillis(ThreadLocalRandom.current().nextInt(5)))
+                .map(tick -> ClientResponse.create(status).body(expected).build());
+    }
+
+    private String check(String expected, String seen, String where) {
+        if (expected.equals(seen) || seen.startsWith(expected + "|")) {
+            checked.incrementAndGet();
+        } else {
+            leaks.add(where + ": expected " + expected + " but saw " + seen);
+        }
+        return seen;
+    }
+
+    private String seen() {
+        return MDC.get("traceId") + "|" + RequestDeadline.get();
+    }
+
+    private void assertCleanAfterwards(Scheduler scheduler) throws InterruptedException {
+        int tasks = 100;
+        CountDownLatch done = new CountDownLatch(tasks);
+        Queue<String> dirty = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < tasks; i++) {
+            scheduler.schedule(() -> {
+                if (MDC.get("traceId") != null || RequestDeadline.get() != null) {
+                    dirty.add(Thread.currentThread().getName() + ": " + seen());
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(dirty).isEmpty();
+    }
+
+    private static void sleepUpTo(int millis) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(millis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.enterprise.shop.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.getField;
+import static org.springframework.test.util.ReflectionTestUtils.invokeMethod;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class StockLoadBalancerTest {
+
+    private static final long EJECTION_MS = 1000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StockLoadBalancer loadBalancer;
+
+    @BeforeEach
+    void setUp() {
+        loadBalancer = new StockLoadBalancer(meterRegistry);
+        setField(loadBalancer, "baseUrl", "http://stock-a:8081");
+        setField(loadBalancer, "staticInstances", "http://stock-a:8081,http://stock-b:8081,http://stock-c:8081");
+        setField(loadBalancer, "discovery", "static");
+        setField(loadBalancer, "failureThreshold", 2);
+        setField(loadBalancer, "ejectionTime", EJECTION_MS);
+        setField(loadBalancer, "maxEjectionTime", 4 * EJECTION_MS);
+        setField(loadBalancer, "healthCheckInterval", 60000L);
+        // No health endpoint: an ejected instance is readmitted as soon as its time is up
+        setField(loadBalancer, "healthCheckPath", "");
+        loadBalancer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        loadBalancer.stop();
+    }
+
+    @Test
+    void busiestInstanceLosesEveryPairing() {
+        StockInstance busy = instance("stock-b:8081");
+        loadBalancer.begin(busy);
+        loadBalancer.begin(busy);
+
+        Set<String> chosen = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            chosen.add(loadBalancer.choose(null).getId());
+        }
+
+        assertThat(chosen).containsExactlyInAnyOrder("stock-a:8081", "stock-c:8081");
+    }
+
+    @Test
+    void failingInstanceIsEjectedForLongerEachTimeUntilItSucceeds() {
+        StockInstance failing = instance("stock-b:8081");
+
+        fail(failing, 2);
+        assertThat(failing.isHealthy()).isFalse();
+        assertThat(remainingEjectionMs(failing)).isBetween(EJECTION_MS / 2, EJECTION_MS);
+        assertThat(Stream.generate(() -> loadBalancer.choose(null)).limit(100)).doesNotContain(failing);
+
+        // Still ejected while its time is not up
+        invokeMethod(loadBalancer, "checkEjected");
+        assertThat(failing.isHealthy()).isFalse();
+
+        failing.readmit();
+        fail(failing, 2);
+        assertThat(remainingEjectionMs(failing)).isBetween(EJECTION_MS, 2 * EJECTION_MS);
+
+        failing.readmit();
+        fail(failing, 2);
+        assertThat(remainingEjectionMs(failing)).isBetween(2 * EJECTION_MS, 4 * EJECTION_MS);
+
+        // Capped at max-ejection-time
+        failing.readmit();
+        fail(failing, 2);
+        assertThat(remainingEjectionMs(failing)).isBetween(2 * EJECTION_MS, 4 * EJECTION_MS);
+
+        // A success ends the streak: the next ejection is back to the base time
+        failing.readmit();
+        loadBalancer.complete(failing, loadBalancer.begin(failing), false, true);
+        fail(failing, 2);
+        assertThat(remainingEjectionMs(failing)).isBetween(EJECTION_MS / 2, EJECTION_MS);
+        assertThat(failing.getEjections()).isEqualTo(5);
+    }
+
+    @Test
+    void ejectedInstanceIsReadmittedOnceItsTimeIsUp() {
+        StockInstance failing = instance("stock-b:8081");
+        fail(failing, 2);
+
+        setField(failing, "ejectedUntilNanos", System.nanoTime() - 1);
+        invokeMethod(loadBalancer, "checkEjected");
+
+        assertThat(failing.isHealthy()).isTrue();
+    }
+
+    @Test
+    void everyInstanceIsUsedWhenAllAreEjected() {
+        loadBalancer.getInstances().forEach(instance -> fail(instance, 2));
+
+        assertThat(loadBalancer.choose(null)).isIn(loadBalancer.getInstances());
+    }
+
+    @Test
+    void dnsRefreshKeepsRemainingInstancesAndDropsTheMetersOfThoseThatLeft() {
+        StockInstance b = instance("stock-b:8081");
+        loadBalancer.begin(b);
+
+        invokeMethod(loadBalancer, "update", List.of(
+                URI.create("http://stock-b:8081"), URI.create("http://stock-d:8081")));
+
+        assertThat(loadBalancer.getInstances()).extracting(StockInstance::getId)
+                .containsExactly("stock-b:8081", "stock-d:8081");
+        assertThat(instance("stock-b:8081")).isSameAs(b);
+        assertThat(b.getOutstanding()).isEqualTo(1);
+        assertThat(meteredInstances()).containsExactlyInAnyOrder("stock-b:8081", "stock-d:8081");
+    }
+
+    @Test
+    void sameHostAndPortSpelledDifferentlyIsTheSameInstance() {
+        StockInstance a = instance("stock-a:8081");
+
+        invokeMethod(loadBalancer, "update", List.of(
+                URI.create("http://stock-a:8081/"), URI.create("http://stock-b:8081")));
+
+        assertThat(instance("stock-a:8081")).isSameAs(a);
+        assertThat(meteredInstances()).containsExactlyInAnyOrder("stock-a:8081", "stock-b:8081");
+    }
+
+    private void fail(StockInstance instance, int times) {
+        for (int i = 0; i < times; i++) {
+            loadBalancer.complete(instance, loadBalancer.begin(instance), true, true);
+        }
+    }
+
+    private StockInstance instance(String id) {
+        return loadBalancer.getInstances().stream()
+                .filter(instance -> instance.getId().equals(id))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static long remainingEjectionMs(StockInstance instance) {
+        long until = (long) getField(instance, "ejectedUntilNanos");
+        return TimeUnit.NANOSECONDS.toMillis(until - System.nanoTime());
+    }
+
+    private Set<String> meteredInstances() {
+        Set<String> ids = new HashSet<>();
+        meterRegistry.find("shop.stock.lb.outstanding").gauges()
+                .forEach(gauge -> ids.add(gauge.getId().getTag("instance")));
+        return ids;
+    }
+}
@@ -0,0 +1,165 @@
+package com.enterprise.shop.resilience;
+
+import com.enterprise.shop.loadbalancer.LoadBalancingExchangeFilter;
+import com.enterprise.shop.loadbalancer.StockInstance;
+import com.enterprise.shop.loadbalancer.StockLoadBalancer;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class RequestHedgerTest {
+
+    private static final String OPERATION = "checkAvailability";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RequestHedger hedger;
+
+    @BeforeEach
+    void setUp() {
+        hedger = new RequestHedger(meterRegistry, ContextSnapshotFactory.builder().build());
+        setField(hedger, "enabled", true);
+        setField(hedger, "operations", List.of(OPERATION));
+        setField(hedger, "percentile", 0.95);
+        setField(hedger, "initialDelayMs", 20L);
+        setField(hedger, "minDelayMs", 1L);
+        setField(hedger, "maxDelayMs", 2000L);
+        setField(hedger, "budgetRatio", 1.0);
+        setField(hedger, "budgetBurst", 1000.0);
+    }
+
+    @Test
+    void hedgeWinsWhenThePrimaryIsSlow() {
+        String answer = hedger.hedge(OPERATION, attempts(
+                Mono.delay(Duration.ofSeconds(5)).thenReturn("primary"),
+                Mono.just("hedge"))).block(Duration.ofSeconds(2));
+
+        assertThat(answer).isEqualTo("hedge");
+        assertThat(count("shop.hedge.sent")).isEqualTo(1);
+        assertThat(count("shop.hedge.wins")).isEqualTo(1);
+    }
+
+    @Test
+    void primaryWinsWhenTheHedgeFails() {
+        String answer = hedger.hedge(OPERATION, attempts(
+                Mono.delay(Duration.ofMillis(200)).thenReturn("primary"),
+                Mono.error(new IllegalStateException("hedge failed")))).block(Duration.ofSeconds(2));
+
+        assertThat(answer).isEqualTo("primary");
+        assertThat(count("shop.hedge.sent")).isEqualTo(1);
+        assertThat(count("shop.hedge.wins")).isZero();
+    }
+
+    @Test
+    void noHedgeIsSentOnceThePrimaryHasFailed() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> call = hedger.hedge(OPERATION, () -> attempts.getAndIncrement() == 0
+                ? Mono.error(new IllegalStateException("primary failed"))
+                : Mono.just("hedge"));
+
+        assertThatThrownBy(() -> call.block(Duration.ofSeconds(2))).hasMessage("primary failed");
+        assertThat(attempts).hasValue(1);
+        assertThat(count("shop.hedge.sent")).isZero();
+    }
+
+    @Test
+    void hedgesStopWhenTheBudgetIsSpent() {
+        setField(hedger, "budgetRatio", 0.0);
+        setField(hedger, "budgetBurst", 2.0);
+
+        for (int i = 0; i < 4; i++) {
+            hedger.hedge(OPERATION, attempts(
+                    Mono.delay(Duration.ofMillis(100)).thenReturn("primary"),
+                    Mono.just("hedge"))).block(Duration.ofSeconds(2));
+        }
+
+        assertThat(count("shop.hedge.calls")).isEqualTo(4);
+        assertThat(count("shop.hedge.sent")).isEqualTo(2);
+        assertThat(count("shop.hedge.budget.exhausted")).isEqualTo(2);
+    }
+
+    @Test
+    void delayFollowsThePercentileIncludingCancelledLosers() throws InterruptedException {
+        setField(hedger, "initialDelayMs", 50L);
+
+        // Every primary hangs until the hedge (sent after 50 ms) wins and it is cancelled
+        Flux.range(0, 120)
+                .flatMap(i -> hedger.hedge(OPERATION, attempts(Mono.never(), Mono.just("hedge"))))
+                .blockLast(Duration.ofSeconds(10));
+        Thread.sleep(1100);
+
+        // Half the samples are ~0 ms hedges; the p95 lies among the cancelled primaries
+        assertThat(meterRegistry.get("shop.hedge.delay").gauge().value()).isBetween(45.0, 1000.0);
+    }
+
+    @Test
+    void hedgeGoesToAnotherInstance() {
+        StockLoadBalancer loadBalancer = new StockLoadBalancer(meterRegistry);
+        setField(loadBalancer, "baseUrl", "http://stock:8081");
+        setField(loadBalancer, "staticInstances", "http://stock-a:8081,http://stock-b:8081");
+        setField(loadBalancer, "discovery", "static");
+        setField(loadBalancer, "failureThreshold", 5);
+        setField(loadBalancer, "healthCheckInterval", 60000L);
+        loadBalancer.start();
+        // stock-b looks slow, so only the exclusion sends anything there
+        StockInstance slow = loadBalancer.getInstances().get(1);
+        for (int i = 0; i < 10; i++) {
+            loadBalancer.complete(slow, loadBalancer.begin(slow) - TimeUnit.SECONDS.toNanos(1), false, true);
+        }
+        try {
+            List<String> hosts = new CopyOnWriteArrayList<>();
+            WebClient webClient = WebClient.builder()
+                    .baseUrl("http://stock:8081")
+                    .defaultRequest(LoadBalancingExchangeFilter::captureTriedInstances)
+                    .filter(new LoadBalancingExchangeFilter(loadBalancer))
+                    .exchangeFunction(request -> {
+                        hosts.add(request.url().getHost());
+                        // The primary never answers in time
+                        return hosts.size() % 2 == 1
+                                ? Mono.never()
+                                : Mono.just(ClientResponse.create(HttpStatus.OK).body("hedge").build());
+                    })
+                    .build();
+
+            for (int i = 0; i < 20; i++) {
+                hosts.clear();
+                String answer = hedger.hedge(OPERATION,
+                                () -> webClient.get().uri("/stock").retrieve().bodyToMono(String.class))
+                        .block(Duration.ofSeconds(2));
+
+                assertThat(answer).isEqualTo("hedge");
+                assertThat(hosts).containsExactly("stock-a", "stock-b");
+            }
+        } finally {
+            loadBalancer.stop();
+        }
+    }
+
+    /**
+     * The first invocation builds the primary, the second the hedge.
+     */
+    private static <T> Supplier<Mono<T>> attempts(Mono<T> primary, Mono<T> hedge) {
+        AtomicInteger attempt = new AtomicInteger();
+        return () -> attempt.getAndIncrement() == 0 ? primary : hedge;
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).tag("operation", OPERATION).counter().count();
+    }
+}
@@ -0,0 +1,109 @@
+package com.enterprise.shop.service;
+
+import com.enterprise.shop.client.StockGraphQLClient;
+import com.enterprise.shop.client.StockRestClient;
+import com.enterprise.shop.config.ContextPropagationConfig;
+import com.enterprise.shop.config.OrchestrationConfig;
+import com.enterprise.shop.context.RequestDeadline;
+import com.enterprise.shop.dto.ProductDetailsDto;
+import com.enterprise.shop.dto.ProductOverviewDto;
+import com.enterprise.shop.dto.StockAvailabilityDto;
+import com.enterprise.shop.dto.WarehouseStatusDto;
+import com.enterprise.shop.exception.StockServiceException;
+import com.enterprise.shop.soap.client.StockSoapAsyncClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class StockOrchestrationServiceTest {
+
+    private final StockRestClient restClient = mock(StockRestClient.class);
+    private final StockGraphQLClient graphQLClient = mock(StockGraphQLClient.class);
+    private final StockSoapAsyncClient soapClient = mock(StockSoapAsyncClient.class);
+    private ExecutorService executor;
+    private StockOrchestrationService service;
+
+    @BeforeEach
+    void setUp() {
+        executor = new OrchestrationConfig()
+                .orchestrationExecutor(new ContextPropagationConfig().contextSnapshotFactory());
+        service = new StockOrchestrationService(restClient, graphQLClient, soapClient, executor);
+        setField(service, "productTimeoutMs", 1000L);
+        setField(service, "availabilityTimeoutMs", 200L);
+        setField(service, "warehouseTimeoutMs", 1000L);
+
+        when(graphQLClient.fetchProductDetails("SKU-1"))
+                .thenReturn(ProductDetailsDto.builder().sku("SKU-1").build());
+        when(soapClient.getWarehouseStatusAsync("WH-1"))
+                .thenReturn(CompletableFuture.completedFuture(
+                        WarehouseStatusDto.builder().warehouseCode("WH-1").isOperational(true).build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void completeOverviewFollowsTheAvailabilityWarehouse() {
+        when(restClient.checkAvailability("SKU-1"))
+                .thenReturn(StockAvailabilityDto.builder().sku("SKU-1").warehouseCode("WH-1").build());
+
+        ProductOverviewDto overview = service.getProductOverview("SKU-1", null);
+
+        assertThat(overview.getComplete()).isTrue();
+        assertThat(overview.getMissingSections()).isNull();
+        assertThat(overview.getWarehouse().getWarehouseCode()).isEqualTo("WH-1");
+    }
+
+    @Test
+    void failedUpstreamCallIsReportedAsMissing() {
+        when(graphQLClient.fetchProductDetails("SKU-1"))
+                .thenThrow(new StockServiceException(HttpStatus.SERVICE_UNAVAILABLE, "unavailable"));
+        when(restClient.checkAvailability("SKU-1"))
+                .thenReturn(StockAvailabilityDto.builder().sku("SKU-1").warehouseCode("WH-1").build());
+        when(soapClient.getWarehouseStatusAsync("WH-1"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("SOAP fault")));
+
+        ProductOverviewDto overview = service.getProductOverview("SKU-1", null);
+
+        assertThat(overview.getComplete()).isFalse();
+        assertThat(overview.getMissingSections()).containsExactly("PRODUCT", "WAREHOUSE");
+        assertThat(overview.getProduct()).isNull();
+        assertThat(overview.getAvailability()).isNotNull();
+    }
+
+    @Test
+    void branchPastItsTimeoutIsInterruptedAndRunsWithItsOwnDeadline() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicLong remainingMs = new AtomicLong(-1);
+        when(restClient.checkAvailability("SKU-1")).thenAnswer(invocation -> {
+            remainingMs.set(RequestDeadline.remainingMillis().orElse(-1));
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        });
+
+        ProductOverviewDto overview = service.getProductOverview("SKU-1", "WH-1");
+
+        assertThat(overview.getMissingSections()).containsExactly("AVAILABILITY");
+        assertThat(overview.getWarehouse()).isNotNull();
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(remainingMs.get()).isBetween(0L, 200L);
+    }
+}